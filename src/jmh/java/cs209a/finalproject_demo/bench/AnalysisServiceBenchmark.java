@@ -0,0 +1,128 @@
+package cs209a.finalproject_demo.bench;
+
+import cs209a.finalproject_demo.FinalProjectDemoApplication;
+import cs209a.finalproject_demo.service.DataLoaderService;
+import cs209a.finalproject_demo.service.MultithreadingService;
+import cs209a.finalproject_demo.service.SolvableAnalysisService;
+import cs209a.finalproject_demo.service.TopOccurrenceService;
+import cs209a.finalproject_demo.service.TopicAnalysisService;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加载和各分析服务在 {@link SyntheticCorpus} 语料上的耗时。启动一个不带 Web 服务器的应用上下文，
+ * 直接调用服务方法，不经过结果缓存。用 -p threadCount=1000000 换更大的语料，-prof gc 查看分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AnalysisServiceBenchmark {
+    private static final List<String> TOPICS = List.of("collections", "io", "multithreading", "spring-boot");
+
+    @Param({"20000"})
+    public int threadCount;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private DataLoaderService dataLoaderService;
+    private SolvableAnalysisService solvableAnalysisService;
+    private TopicAnalysisService topicAnalysisService;
+    private TopOccurrenceService topOccurrenceService;
+    private MultithreadingService multithreadingService;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("service-bench");
+        Path jsonl = directory.resolve("threads.jsonl");
+        SyntheticCorpus.write(jsonl, threadCount, 42);
+        context = new SpringApplicationBuilder(FinalProjectDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // 命令行参数的优先级高于 application.properties
+                .run("--data.file.path=" + jsonl, "--data.snapshot.enabled=false", "--data.watch.enabled=false",
+                        "--cache.enabled=false", "--logging.level.cs209a.finalproject_demo=WARN");
+        dataLoaderService = context.getBean(DataLoaderService.class);
+        solvableAnalysisService = context.getBean(SolvableAnalysisService.class);
+        topicAnalysisService = context.getBean(TopicAnalysisService.class);
+        topOccurrenceService = context.getBean(TopOccurrenceService.class);
+        multithreadingService = context.getBean(MultithreadingService.class);
+        System.out.printf("%n%d threads, %d MB jsonl%n", dataLoaderService.getSnapshot().size(),
+                Files.size(jsonl) >> 20);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /** 解析 JSONL 并建立全部索引，发布新版本快照 */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public boolean load() {
+        return dataLoaderService.reload();
+    }
+
+    @Benchmark
+    public Object solvableAnalysis() {
+        return solvableAnalysisService.getAnalysis();
+    }
+
+    @Benchmark
+    public Object topicTrendsByMonth() {
+        return topicAnalysisService.getTopicTrends(TOPICS, "2008-01-01", "2024-12-31", "month");
+    }
+
+    @Benchmark
+    public Object topicTrendsByDay() {
+        return topicAnalysisService.getTopicTrends(TOPICS, "2008-01-01", "2024-12-31", "day");
+    }
+
+    @Benchmark
+    public Object topicActivityByMonth() {
+        return topicAnalysisService.getTopicActivityScore(TOPICS, "2008-01-01", "2024-12-31", "month");
+    }
+
+    @Benchmark
+    public Object topOccurrence() {
+        return topOccurrenceService.getTopOccurrence(10);
+    }
+
+    @Benchmark
+    public Object topTagOccurrenceInRange() {
+        return topOccurrenceService.getTopTagOccurrenceBetween("2012-03-05", "2019-08-17", 10);
+    }
+
+    @Benchmark
+    public Object recurrenceProblems() {
+        return multithreadingService.getRecurrenceProblems(10);
+    }
+}
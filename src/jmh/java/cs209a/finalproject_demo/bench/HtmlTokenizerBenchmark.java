@@ -0,0 +1,67 @@
+package cs209a.finalproject_demo.bench;
+
+import cs209a.finalproject_demo.util.HtmlTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 正则去标签 + split 与 HtmlTokenizer 统计单词数的对比，文本为带 HTML 标签的随机正文。
+ * 建议加 -prof gc 查看每次调用的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlTokenizerBenchmark {
+
+    @Param({"1000"})
+    public int textCount;
+
+    private List<String> texts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        texts = new ArrayList<>(textCount);
+        for (int i = 0; i < textCount; i++) {
+            texts.add(ThreadParserBenchmark.randomText(random, 200));
+        }
+    }
+
+    @Benchmark
+    public long regexSplit() {
+        long words = 0;
+        for (String text : texts) {
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            words += text.replaceAll("<[^>]+>", " ").trim().split("\\s+").length;
+        }
+        return words;
+    }
+
+    @Benchmark
+    public long tokenizer() {
+        long words = 0;
+        for (String text : texts) {
+            words += HtmlTokenizer.countWords(text);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,86 @@
+package cs209a.finalproject_demo.bench;
+
+import cs209a.finalproject_demo.config.PatternMatchingConfig;
+import cs209a.finalproject_demo.config.PatternMatchingConfig.PitfallPattern;
+import cs209a.finalproject_demo.matcher.PitfallMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐个模式执行 java.util.regex 与 PitfallMatcher 一次扫描的对比，文本为随机正文并夹杂部分问题描述
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PitfallMatcherBenchmark {
+
+    @Param({"1000"})
+    public int textCount;
+
+    private static final String[] PHRASES = {"a deadlock between two threads", "java.lang.OutOfMemoryError: heap space",
+            "the pool is exhausted", "it works in debug mode", "thread is stuck", "InterruptedException",
+            "sometimes the value is different", "high cpu usage", "volatile field"};
+
+    private List<PitfallPattern> patterns;
+    private PitfallMatcher matcher;
+    private List<String> texts;
+
+    @Setup
+    public void setUp() {
+        patterns = new PatternMatchingConfig().concurrencyPatterns();
+        matcher = new PitfallMatcher(patterns);
+        Random random = new Random(42);
+        texts = new ArrayList<>(textCount);
+        for (int i = 0; i < textCount; i++) {
+            String text = ThreadParserBenchmark.randomText(random, 200);
+            if (random.nextInt(4) == 0) {
+                text = text + PHRASES[random.nextInt(PHRASES.length)] + " " + ThreadParserBenchmark.randomText(random, 50);
+            }
+            texts.add(text);
+        }
+    }
+
+    @Benchmark
+    public int regexPerPattern() {
+        int matches = 0;
+        for (String text : texts) {
+            BitSet matched = new BitSet();
+            for (int p = 0; p < patterns.size(); p++) {
+                if (patterns.get(p).compiledPattern.matcher(text).find()) {
+                    matched.set(p);
+                }
+            }
+            matches += matched.cardinality();
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int automaton() {
+        int matches = 0;
+        for (String text : texts) {
+            BitSet matched = new BitSet();
+            matcher.matchInto(text, matched);
+            matches += matched.cardinality();
+        }
+        return matches;
+    }
+}
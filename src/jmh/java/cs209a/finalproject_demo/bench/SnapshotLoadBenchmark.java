@@ -0,0 +1,95 @@
+package cs209a.finalproject_demo.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.loader.ParallelJsonlLoader;
+import cs209a.finalproject_demo.loader.StreamingThreadParser;
+import cs209a.finalproject_demo.loader.ThreadSnapshotFile;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动加载的两条路径：并行解析 JSONL 与读取二进制快照（含校验源文件的 CRC32）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SnapshotLoadBenchmark {
+
+    @Param({"20000"})
+    public int threadCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private Path directory;
+    private Path jsonl;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-bench");
+        jsonl = directory.resolve("threads.jsonl");
+        snapshot = directory.resolve("threads.jsonl.snapshot");
+        Random random = new Random(42);
+        try (OutputStream out = Files.newOutputStream(jsonl)) {
+            for (int i = 0; i < threadCount; i++) {
+                out.write(objectMapper.writeValueAsBytes(ThreadParserBenchmark.randomThread(random, i)));
+                out.write('\n');
+            }
+        }
+        ParallelJsonlLoader.Result result = jsonlLoader().load(jsonl);
+        ThreadSnapshotFile.write(snapshot, result.getEndOffset(),
+                ThreadSnapshotFile.checksum(jsonl, result.getEndOffset()), result.getFailCount(), result.getThreads());
+        System.out.printf("%njsonl %d MB, snapshot %d MB%n", Files.size(jsonl) >> 20, Files.size(snapshot) >> 20);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(jsonl);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<StackOverflowThread> parseJsonl() throws IOException {
+        return jsonlLoader().load(jsonl).getThreads();
+    }
+
+    @Benchmark
+    public List<StackOverflowThread> readSnapshot() throws IOException {
+        ThreadSnapshotFile file = ThreadSnapshotFile.open(snapshot);
+        if (ThreadSnapshotFile.checksum(jsonl, file.sourceLength()) != file.sourceChecksum()) {
+            throw new IllegalStateException("snapshot does not match");
+        }
+        return file.readThreads();
+    }
+
+    private ParallelJsonlLoader jsonlLoader() {
+        ConcurrentHashMap<String, String> tagPool = new ConcurrentHashMap<>();
+        return new ParallelJsonlLoader(Runtime.getRuntime().availableProcessors(),
+                () -> new StreamingThreadParser(objectMapper.getFactory(), tagPool));
+    }
+}
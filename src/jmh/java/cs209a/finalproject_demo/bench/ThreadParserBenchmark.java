@@ -0,0 +1,191 @@
+package cs209a.finalproject_demo.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import cs209a.finalproject_demo.loader.StreamingThreadParser;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Comment;
+import cs209a.finalproject_demo.model.Owner;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * databind(readValue) 与 streaming 两种解析方式的对比。
+ * 用 -prof gc 查看每次操作的分配量；Setup 阶段会打印两种方式解析后常驻堆的大小。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadParserBenchmark {
+
+    @Param({"2000"})
+    public int threadCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private List<byte[]> lines;
+    private ObjectReader databindReader;
+    private StreamingThreadParser streamingParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        lines = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            lines.add(objectMapper.writeValueAsBytes(randomThread(random, i)));
+        }
+        databindReader = objectMapper.readerFor(StackOverflowThread.class);
+        streamingParser = new StreamingThreadParser(objectMapper.getFactory(), new ConcurrentHashMap<>());
+
+        System.out.printf("%nretained heap for %d threads: databind %d KB, streaming %d KB%n", threadCount,
+                retainedBytes(true) >> 10, retainedBytes(false) >> 10);
+    }
+
+    @Benchmark
+    public void databind(Blackhole blackhole) throws IOException {
+        for (byte[] line : lines) {
+            blackhole.consume(databindReader.<StackOverflowThread>readValue(line, 0, line.length));
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        for (byte[] line : lines) {
+            blackhole.consume(streamingParser.parse(line, 0, line.length));
+        }
+    }
+
+    private long retainedBytes(boolean databind) throws IOException {
+        System.gc();
+        long before = usedHeap();
+        List<StackOverflowThread> parsed = new ArrayList<>(lines.size());
+        for (byte[] line : lines) {
+            parsed.add(databind
+                    ? databindReader.readValue(line, 0, line.length)
+                    : streamingParser.parse(line, 0, line.length));
+        }
+        System.gc();
+        long after = usedHeap();
+        if (parsed.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return Math.max(0, after - before);
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static final String[] TAGS = {"java", "spring-boot", "multithreading", "hashmap", "generics",
+            "lambda", "junit", "maven", "jdbc", "sockets", "reflection", "exception"};
+
+    static StackOverflowThread randomThread(Random random, int index) {
+        long creation = 1_262_304_000L + random.nextInt(400_000_000);
+        Question question = new Question();
+        List<String> tags = new ArrayList<>();
+        for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+            tags.add(TAGS[random.nextInt(TAGS.length)]);
+        }
+        question.setTags(tags);
+        question.setOwner(randomOwner(random));
+        question.setIsAnswered(random.nextBoolean());
+        question.setViewCount(random.nextInt(100_000));
+        question.setScore(random.nextInt(100) - 5);
+        question.setCreationDate(creation);
+        question.setLastActivityDate(creation + 1000);
+        question.setQuestionId(1_000_000L + index);
+        question.setContentLicense("CC BY-SA 4.0");
+        question.setLink("https://stackoverflow.com/questions/" + (1_000_000L + index));
+        question.setTitle(randomText(random, 10));
+        question.setBody(randomText(random, 200));
+
+        StackOverflowThread thread = new StackOverflowThread();
+        thread.setQuestion(question);
+        List<Answer> answers = new ArrayList<>();
+        Map<String, List<Comment>> answerComments = new LinkedHashMap<>();
+        for (int i = 0, n = random.nextInt(4); i < n; i++) {
+            Answer answer = new Answer();
+            answer.setOwner(randomOwner(random));
+            answer.setIsAccepted(i == 0 && random.nextBoolean());
+            answer.setScore(random.nextInt(30));
+            answer.setCreationDate(creation + random.nextInt(1_000_000));
+            answer.setLastActivityDate(creation + 2_000_000);
+            answer.setAnswerId(question.getQuestionId() * 10 + i);
+            answer.setQuestionId(question.getQuestionId());
+            answer.setContentLicense("CC BY-SA 4.0");
+            answer.setBody(randomText(random, 120));
+            answers.add(answer);
+            answerComments.put(String.valueOf(answer.getAnswerId()), randomComments(random, creation));
+        }
+        thread.setAnswers(answers);
+        thread.setQuestionComments(randomComments(random, creation));
+        thread.setAnswerComments(answerComments);
+        return thread;
+    }
+
+    private static List<Comment> randomComments(Random random, long creation) {
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0, n = random.nextInt(3); i < n; i++) {
+            Comment comment = new Comment();
+            comment.setOwner(randomOwner(random));
+            comment.setEdited(false);
+            comment.setScore(random.nextInt(5));
+            comment.setCreationDate(creation + random.nextInt(5_000_000));
+            comment.setPostId(creation);
+            comment.setCommentId((long) random.nextInt(Integer.MAX_VALUE));
+            comment.setContentLicense("CC BY-SA 4.0");
+            comment.setBody(randomText(random, 25));
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    private static Owner randomOwner(Random random) {
+        Owner owner = new Owner();
+        owner.setAccountId((long) random.nextInt(1_000_000));
+        owner.setReputation(random.nextInt(50_000));
+        owner.setUserId((long) random.nextInt(1_000_000));
+        owner.setUserType("registered");
+        owner.setProfileImage("https://www.gravatar.com/avatar/" + Long.toHexString(random.nextLong()));
+        owner.setDisplayName("user" + random.nextInt(100_000));
+        owner.setLink("https://stackoverflow.com/users/" + random.nextInt(1_000_000));
+        return owner;
+    }
+
+    private static final String[] WORDS = {"thread", "lock", "the", "a", "deadlock", "<code>synchronized</code>",
+            "map", "list", "spring", "bean", "exception", "<p>", "</p>", "stream", "connection", "timeout"};
+
+    static String randomText(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package cs209a.finalproject_demo.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.FinalProjectDemoApplication;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环的 HTTP 压测：按固定到达率发出 {@link WorkloadMix} 中的请求，不等待前一个请求返回，
+ * 延迟从请求<em>计划</em>发出的时刻算起，服务端变慢时排队的时间也计入，避免协调遗漏 (coordinated omission)。
+ * <p>
+ * 默认先用 {@link SyntheticCorpus} 生成语料，在随机端口上启动应用；指定 --url 时改为压测已运行的实例
+ * （同进程启动时压测端和服务端共用 CPU，定容量时应使用 --url）。预热阶段的请求照常发出但不计入结果。
+ * 每个端点写一份 HdrHistogram 百分位分布 (.hgrm，单位毫秒)，summary.txt 汇总 p50/p99 和吞吐。
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec \
+ *     -Dloadtest.args="--threads=20000 --rate=200 --warmup=10 --duration=60 --mix=trend=3,occurrence=1"
+ * </pre>
+ */
+public final class LoadDriver {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("url", "");
+        DEFAULTS.put("threads", "20000");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("cache", "true");
+        DEFAULTS.put("rate", "100");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("mix", WorkloadMix.DEFAULT_SPEC);
+        DEFAULTS.put("variants", "64");
+        DEFAULTS.put("max-in-flight", "2000");
+        DEFAULTS.put("timeout", "30");
+        DEFAULTS.put("out", "target/loadtest");
+    }
+
+    /** 单个端点的统计，只记录计划时刻落在测量窗口内的请求 */
+    private static final class Stats {
+        final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+    }
+
+    private LoadDriver() {
+    }
+
+    /** args: --key=value，见 DEFAULTS */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String url = options.get("url");
+        Path corpusDirectory = null;
+        ConfigurableApplicationContext context = null;
+        try {
+            if (url.isEmpty()) {
+                corpusDirectory = Files.createTempDirectory("loadtest");
+                Path jsonl = corpusDirectory.resolve("threads.jsonl");
+                int threads = Integer.parseInt(options.get("threads"));
+                SyntheticCorpus.write(jsonl, threads, Long.parseLong(options.get("seed")));
+                System.out.printf("generated %d threads (%d MB)%n", threads, Files.size(jsonl) >> 20);
+                // devtools 的重启会在新线程里再调用一次 main
+                System.setProperty("spring.devtools.restart.enabled", "false");
+                context = new SpringApplicationBuilder(FinalProjectDemoApplication.class)
+                        .logStartupInfo(false)
+                        // 命令行参数的优先级高于 application.properties
+                        .run("--server.port=0", "--data.file.path=" + jsonl, "--data.snapshot.enabled=false",
+                                "--data.watch.enabled=false", "--cache.enabled=" + options.get("cache"),
+                                "--logging.level.cs209a.finalproject_demo=WARN");
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                url = "http://localhost:" + port;
+            }
+            run(url, options);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (corpusDirectory != null) {
+                try (var files = Files.list(corpusDirectory)) {
+                    for (Path file : files.toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(corpusDirectory);
+            }
+        }
+    }
+
+    private static void run(String url, Map<String, String> options) throws Exception {
+        double rate = Double.parseDouble(options.get("rate"));
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        int maxInFlight = Integer.parseInt(options.get("max-in-flight"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.get("timeout")));
+        long seed = Long.parseLong(options.get("seed"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> topics = fetchTopics(client, url);
+        WorkloadMix mix = WorkloadMix.parse(options.get("mix"), topics,
+                Integer.parseInt(options.get("variants")), seed);
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (String endpoint : mix.endpoints()) {
+            stats.put(endpoint, new Stats());
+        }
+        System.out.printf("%s: %.0f req/s, %d s warmup + %d s measured, mix %s%n", url, rate,
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                options.get("mix"));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        AtomicInteger inFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        for (long i = 0; ; i++) {
+            // 第 i 个请求的计划时刻只取决于到达率，不受之前请求快慢的影响
+            long intended = start + (long) (i * 1e9 / rate);
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            WorkloadMix.Request request = mix.next(random);
+            Stats endpointStats = intended >= measureFrom ? stats.get(request.endpoint()) : null;
+            if (inFlight.get() >= maxInFlight) {
+                // 不能等待，否则又退化成闭环；超出上限的请求记为丢弃
+                if (endpointStats != null) {
+                    endpointStats.dropped.increment();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(url + request.path()))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            client.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - intended;
+                        inFlight.decrementAndGet();
+                        if (endpointStats == null) {
+                            return;
+                        }
+                        if (error != null || response.statusCode() != 200) {
+                            endpointStats.errors.increment();
+                        } else {
+                            endpointStats.latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+                        }
+                    });
+        }
+        long drainDeadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        report(stats, rate, durationNanos / 1e9, Paths.get(options.get("out")));
+    }
+
+    private static List<String> fetchTopics(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(url + "/api/topics/list")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET /api/topics/list returned " + response.statusCode());
+        }
+        return new ObjectMapper().readValue(response.body(), new TypeReference<List<String>>() {
+        });
+    }
+
+    private static void report(Map<String, Stats> stats, double rate, double seconds, Path out) throws IOException {
+        Files.createDirectories(out);
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        long allDropped = 0;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("offered %.0f req/s for %.0f s%n", rate, seconds));
+        summary.append(String.format("%-16s %9s %7s %8s %9s %9s %9s %9s %9s %9s%n", "endpoint", "requests",
+                "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats endpointStats = entry.getValue();
+            Histogram histogram = endpointStats.latencyMicros.copy();
+            long errors = endpointStats.errors.sum();
+            long dropped = endpointStats.dropped.sum();
+            all.add(histogram);
+            allErrors += errors;
+            allDropped += dropped;
+            summary.append(row(entry.getKey(), histogram, errors, dropped, seconds));
+            writePercentiles(histogram, out.resolve(entry.getKey() + ".hgrm"));
+        }
+        summary.append(row("all", all, allErrors, allDropped, seconds));
+        writePercentiles(all, out.resolve("all.hgrm"));
+        Files.writeString(out.resolve("summary.txt"), summary);
+        System.out.print(summary);
+        System.out.println("reports written to " + out.toAbsolutePath());
+    }
+
+    private static String row(String name, Histogram histogram, long errors, long dropped, double seconds) {
+        long requests = histogram.getTotalCount() + errors + dropped;
+        return String.format("%-16s %9d %7d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, requests, errors,
+                dropped, histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void writePercentiles(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --key=value, got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (!options.containsKey(key)) {
+                throw new IllegalArgumentException("unknown option --" + key + ", known: " + DEFAULTS.keySet());
+            }
+            options.put(key, arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,138 @@
+package cs209a.finalproject_demo.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 按权重混合的端点及参数组合，例如 "solvable=1,trend=3,activity=2,occurrence=2,multithreading=2"。
+ * 每个端点预先按种子生成 variants 组参数，请求时从中均匀抽取；组数越少，结果缓存的命中率越高。
+ */
+final class WorkloadMix {
+    static final String DEFAULT_SPEC = "solvable=1,trend=3,activity=2,occurrence=2,multithreading=2";
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2008, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+    // 看板上最常用的是按月，按天的请求少但响应大
+    private static final String[] PERIODS = {"month", "month", "month", "month", "month", "week", "week", "year",
+            "year", "day"};
+    private static final int[] OCCURRENCE_N = {5, 10, 10, 20, 50};
+    private static final int[] MULTITHREADING_N = {3, 5, 5, 10};
+
+    record Request(String endpoint, String path) {
+    }
+
+    private final String[] endpoints;
+    private final double[] cumulativeWeights;
+    private final String[][] paths;
+
+    private WorkloadMix(String[] endpoints, double[] cumulativeWeights, String[][] paths) {
+        this.endpoints = endpoints;
+        this.cumulativeWeights = cumulativeWeights;
+        this.paths = paths;
+    }
+
+    static WorkloadMix parse(String spec, List<String> topics, int variants, long seed) {
+        if (variants <= 0) {
+            throw new IllegalArgumentException("variants must be positive: " + variants);
+        }
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=", 2);
+            double weight = kv.length > 1 ? Double.parseDouble(kv[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative weight in mix: " + part);
+            }
+            if (weight > 0) {
+                weights.put(kv[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("empty mix: " + spec);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] endpoints = weights.keySet().toArray(new String[0]);
+        double[] cumulative = new double[endpoints.length];
+        String[][] paths = new String[endpoints.length][];
+        double total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulative[i] = total;
+            paths[i] = variants(endpoints[i], topics, variants, random);
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+        return new WorkloadMix(endpoints, cumulative, paths);
+    }
+
+    List<String> endpoints() {
+        return List.of(endpoints);
+    }
+
+    Request next(SplittableRandom random) {
+        double u = random.nextDouble();
+        int i = 0;
+        while (i < cumulativeWeights.length - 1 && u >= cumulativeWeights[i]) {
+            i++;
+        }
+        String[] candidates = paths[i];
+        return new Request(endpoints[i], candidates[random.nextInt(candidates.length)]);
+    }
+
+    private static String[] variants(String endpoint, List<String> topics, int count, SplittableRandom random) {
+        return switch (endpoint) {
+            // 没有参数，只有一种请求
+            case "solvable" -> new String[]{"/api/solvable"};
+            case "trend" -> topicRequests("/api/topics/trend", topics, count, random);
+            case "activity" -> topicRequests("/api/topics/activity", topics, count, random);
+            case "occurrence" -> topNRequests("/api/occurrence/top", OCCURRENCE_N, count, random);
+            case "multithreading" -> topNRequests("/api/multithreading/top", MULTITHREADING_N, count, random);
+            default -> throw new IllegalArgumentException("unknown endpoint in mix: " + endpoint
+                    + " (expected solvable, trend, activity, occurrence or multithreading)");
+        };
+    }
+
+    private static String[] topicRequests(String path, List<String> topics, int count, SplittableRandom random) {
+        if (topics.isEmpty()) {
+            throw new IllegalArgumentException("no topics configured for " + path);
+        }
+        long firstDay = FIRST_DAY.toEpochDay();
+        long lastDay = LAST_DAY.toEpochDay();
+        String[] requests = new String[count];
+        for (int i = 0; i < count; i++) {
+            List<String> pool = new ArrayList<>(topics);
+            int size = 1 + random.nextInt(Math.min(4, pool.size()));
+            StringBuilder chosen = new StringBuilder();
+            for (int j = 0; j < size; j++) {
+                String topic = pool.remove(random.nextInt(pool.size()));
+                if (j > 0) {
+                    chosen.append(',');
+                }
+                chosen.append(URLEncoder.encode(topic, StandardCharsets.UTF_8));
+            }
+            // 至少一个月，最长到语料末尾
+            long start = firstDay + random.nextLong(lastDay - firstDay - 30);
+            long end = start + 30 + random.nextLong(lastDay - start - 29);
+            requests[i] = path + "?topics=" + chosen
+                    + "&startDate=" + LocalDate.ofEpochDay(start)
+                    + "&endDate=" + LocalDate.ofEpochDay(end)
+                    + "&period=" + PERIODS[random.nextInt(PERIODS.length)];
+        }
+        return requests;
+    }
+
+    private static String[] topNRequests(String path, int[] choices, int count, SplittableRandom random) {
+        String[] requests = new String[Math.min(count, choices.length)];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = path + "?n=" + choices[count >= choices.length ? i : random.nextInt(choices.length)];
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,209 @@
+package cs209a.finalproject_demo.cache;
+
+import cs209a.finalproject_demo.service.DataLoaderService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * /api 接口的结果缓存。键为接口名加规范化后的参数，值为服务返回的结果对象。
+ * <p>
+ * 每个结果记录计算时的语料版本；DataLoaderService 发布新版本后，旧版本的结果不再命中，
+ * 并在下一次访问时整体清空。容量按权重（结果中 Map / 集合 / 值的节点数，或 {@link Weighted#weight()}）
+ * 限制，超出时按 LRU 淘汰。
+ * 缓存的结果会被多个请求共享：Map / List 结果在放入缓存前逐层包装为只读视图（保持原有的迭代顺序），
+ * 其它结果类型应本身不可变。同一个键同时未命中时可能重复计算，结果相同。
+ */
+@Service
+public class ResultCache implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    private final DataLoaderService dataLoaderService;
+
+    @Value("${cache.enabled:true}")
+    private boolean enabled;
+
+    // 所有结果的权重之和上限
+    @Value("${cache.max-weight:1000000}")
+    private long maxWeight;
+
+    // 以下字段只在持有 this 锁时访问
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedVersion = -1;
+    private long totalWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /** 自行给出权重的结果类型，权重应与结果中的条目数成正比 */
+    public interface Weighted {
+        long weight();
+    }
+
+    private record Key(String endpoint, List<Object> params) {
+    }
+
+    private record Entry(Object value, long weight) {
+    }
+
+    public ResultCache(DataLoaderService dataLoaderService) {
+        this.dataLoaderService = dataLoaderService;
+    }
+
+    /**
+     * 返回 endpoint 在 params 下的缓存结果，未命中时调用 compute 计算并缓存。
+     * params 应已规范化（例如主题去重排序），compute 抛出的异常直接传出，不缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, List<Object> params, Supplier<T> compute) {
+        if (!enabled) {
+            return compute.get();
+        }
+        Key key = new Key(endpoint, params);
+        // 先取版本再计算：计算期间发布了新版本时，结果记在旧版本下，下次访问即被清除
+        long version = dataLoaderService.getSnapshot().version();
+        synchronized (this) {
+            invalidateIfStale(version);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return (T) entry.value();
+            }
+        }
+        misses.increment();
+
+        T value = (T) readOnly(compute.get());
+        long weight = weigh(value);
+        synchronized (this) {
+            invalidateIfStale(version);
+            if (version == cachedVersion && weight <= maxWeight) {
+                Entry previous = entries.put(key, new Entry(value, weight));
+                totalWeight += weight - (previous == null ? 0 : previous.weight());
+                evictToFit();
+            }
+        }
+        return value;
+    }
+
+    private void invalidateIfStale(long version) {
+        if (version > cachedVersion) {
+            if (!entries.isEmpty()) {
+                logger.info("Corpus version {} published, dropping {} cached results", version, entries.size());
+                invalidations.increment();
+            }
+            entries.clear();
+            totalWeight = 0;
+            cachedVersion = version;
+        }
+    }
+
+    private void evictToFit() {
+        Iterator<Entry> lru = entries.values().iterator();
+        while (totalWeight > maxWeight && lru.hasNext()) {
+            totalWeight -= lru.next().weight();
+            lru.remove();
+            evictions.increment();
+        }
+    }
+
+    /** Map 和 List 逐层包装为只读视图；其余对象原样返回 */
+    static Object readOnly(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((k, v) -> copy.put(k, readOnly(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(element -> copy.add(readOnly(element)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /** 结果中 Map、集合和值的节点数 */
+    static long weigh(Object value) {
+        if (value instanceof Weighted weighted) {
+            return weighted.weight();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long weight = 1;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                weight += weigh(e.getKey()) + weigh(e.getValue());
+            }
+            return weight;
+        }
+        if (value instanceof Collection<?> collection) {
+            long weight = 1;
+            for (Object element : collection) {
+                weight += weigh(element);
+            }
+            return weight;
+        }
+        return 1;
+    }
+
+    /** 与 {@link #stats()} 相同的计数，按 Micrometer 缓存指标的命名导出 */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", "results").tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", "results").tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", "results")
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", invalidations, LongAdder::sum)
+                .tag("cache", "results")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.entries())
+                .tag("cache", "results")
+                .register(registry);
+        Gauge.builder("cache.weight", this, cache -> cache.weight())
+                .tag("cache", "results")
+                .register(registry);
+    }
+
+    private synchronized int entries() {
+        return entries.size();
+    }
+
+    private synchronized long weight() {
+        return totalWeight;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("enabled", enabled);
+            stats.put("corpusVersion", cachedVersion);
+            stats.put("entries", entries.size());
+            stats.put("weight", totalWeight);
+            stats.put("maxWeight", maxWeight);
+        }
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,197 @@
+package cs209a.finalproject_demo.concurrent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次请求内互相独立的子分析的结构化并发执行（analysis.fan-out.enabled，默认关闭时在调用线程上依次执行）。
+ * <p>
+ * {@link #invokeAll} 的子任务全部在调用返回前结束：任一子任务失败、超过截止时间或调用线程被中断时，
+ * 其余子任务被取消（中断），等它们全部退出后调用方才得到异常，不会有子任务在请求结束后继续运行。
+ * 子任务需要在处理较多数据时检查中断，否则取消要等到它自己运行结束。
+ * 运行在 Java 21+ 上时每个子任务一个虚拟线程，否则使用固定大小的平台线程池。
+ * 子任务内不要再调用 invokeAll，平台线程池可能被占满。
+ */
+@Component
+public class AnalysisExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisExecutor.class);
+
+    @Value("${analysis.fan-out.enabled:false}")
+    private boolean enabled;
+
+    // 一次 invokeAll 从开始到全部子任务完成的期限
+    @Value("${analysis.fan-out.deadline-ms:10000}")
+    private long deadlineMs;
+
+    // 没有虚拟线程时平台线程池的大小，<= 0 时使用 CPU 核数
+    @Value("${analysis.fan-out.threads:0}")
+    private int threads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            executor = newExecutor();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /** 子任务是否在线程池上并发执行；关闭时调用方可以换用更省开销的方式 */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * 执行 tasks 并按原顺序返回结果
+     *
+     * @param name 出现在超时异常信息中的分析名称
+     * @throws AnalysisTimeoutException 超过截止时间或调用线程被中断
+     */
+    public <T> List<T> invokeAll(String name, List<Callable<T>> tasks) {
+        if (executor == null) {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>(tasks.size());
+        Object[] results = new Object[tasks.size()];
+        // 每个子任务开始运行或被取消前抢先标记；未开始就被取消的子任务不会再运行，由取消方代为计数
+        AtomicBoolean[] claimed = new AtomicBoolean[tasks.size()];
+        CountDownLatch exited = new CountDownLatch(tasks.size());
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                int slot = i;
+                Callable<T> task = tasks.get(i);
+                claimed[slot] = new AtomicBoolean();
+                futures.add(completion.submit(() -> {
+                    if (!claimed[slot].compareAndSet(false, true)) {
+                        return slot;
+                    }
+                    try {
+                        results[slot] = task.call();
+                        return slot;
+                    } finally {
+                        exited.countDown();
+                    }
+                }));
+            }
+            // 按完成顺序等待，第一个失败的子任务立即结束整个调用
+            for (int done = 0; done < tasks.size(); done++) {
+                Future<Integer> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new AnalysisTimeoutException(name + " did not finish within " + deadlineMs + " ms");
+                }
+                next.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisTimeoutException(name + " was interrupted");
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } finally {
+            // 已完成的子任务不受影响；没有提交成功的子任务也要计数
+            for (int i = 0; i < tasks.size(); i++) {
+                if (i < futures.size()) {
+                    futures.get(i).cancel(true);
+                }
+                if (claimed[i] == null || claimed[i].compareAndSet(false, true)) {
+                    exited.countDown();
+                }
+            }
+            awaitUninterruptibly(exited);
+        }
+        // 每个子任务的结果在它完成之前写入，Future 完成保证了可见性
+        @SuppressWarnings("unchecked")
+        List<T> ordered = (List<T>) Arrays.asList(results);
+        return ordered;
+    }
+
+    /** 等待被取消的子任务退出；期间调用线程被中断时在返回后恢复中断标记 */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw propagate(e);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private ExecutorService newExecutor() {
+        // 虚拟线程在 Java 21 才正式可用，项目按 Java 17 编译，所以通过反射创建
+        if (Runtime.version().feature() >= 21) {
+            try {
+                ExecutorService virtual = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                logger.info("Analysis fan-out on virtual threads, deadline {} ms", deadlineMs);
+                return virtual;
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads unavailable, using platform threads: {}", e.toString());
+            }
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "analysis-fan-out-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        logger.info("Analysis fan-out on {} platform threads, deadline {} ms", poolSize, deadlineMs);
+        return Executors.newFixedThreadPool(poolSize, factory);
+    }
+}
@@ -0,0 +1,16 @@
+package cs209a.finalproject_demo.concurrent;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 子任务没有在截止时间内完成（或请求线程被中断），剩余的子任务已取消
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AnalysisTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AnalysisTimeoutException(String message) {
+        super(message);
+    }
+}
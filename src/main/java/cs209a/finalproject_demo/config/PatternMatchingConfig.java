@@ -12,10 +12,12 @@ public class PatternMatchingConfig {
         public String normalizedName; // e.g., "resource_exhaustion"
         public String category;       // e.g., "ROOT_CAUSE"
         public Pattern compiledPattern;
+        public List<String> regexStrings;  // 组成 compiledPattern 的各个备选项
 
         public PitfallPattern(String normalizedName, String category, List<String> regexStrings) {
             this.normalizedName = normalizedName;
             this.category = category;
+            this.regexStrings = List.copyOf(regexStrings);
             String combinedRegex = String.join("|", regexStrings);
             this.compiledPattern = Pattern.compile(combinedRegex, Pattern.CASE_INSENSITIVE);
         }
@@ -1,13 +1,19 @@
 package cs209a.finalproject_demo.config;
 
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class TopicKeywordsConfig {
 
     private final Map<String, List<String>> topicKeywords = new LinkedHashMap<>();
+    // 全部主题关键词预编译成一个自动机，构造完成后不再变化
+    private final TopicKeywordMatcher keywordMatcher;
+    // 标签 -> 主题掩码的缓存；Stack Overflow 的标签集合有限，加载语料时即被填满
+    private final Map<String, Long> tagTopicMasks = new ConcurrentHashMap<>();
 
     public TopicKeywordsConfig() {
         // Generics
@@ -91,6 +97,8 @@ public class TopicKeywordsConfig {
                 "connection", "preparedstatement", "resultset",
                 "transaction", "datasource"
         ));
+
+        keywordMatcher = new TopicKeywordMatcher(topicKeywords);
     }
 
     public Map<String, List<String>> getTopicKeywords() {
@@ -105,6 +113,24 @@ public class TopicKeywordsConfig {
         return topicKeywords.getOrDefault(topic, Collections.emptyList());
     }
 
+    /**
+     * 一次扫描判断文本（忽略大小写）包含哪些主题的关键词
+     */
+    public TopicKeywordMatcher getKeywordMatcher() {
+        return keywordMatcher;
+    }
+
+    /**
+     * 标签（忽略大小写）包含了哪些主题的关键词，返回主题掩码，第 i 位对应 getAllTopics() 的第 i 个主题。
+     * 结果按标签缓存，同一标签只计算一次
+     */
+    public long getTagTopicMask(String tag) {
+        if (tag == null || tag.isEmpty()) {
+            return 0;
+        }
+        return tagTopicMasks.computeIfAbsent(tag, keywordMatcher::match);
+    }
+
     /**
      * 将标签映射到对应的主题
      * @param tag Stack Overflow 标签
@@ -115,13 +141,8 @@ public class TopicKeywordsConfig {
             return null;
         }
 
-        String lowerTag = tag.toLowerCase();
-        for (Map.Entry<String, List<String>> entry : topicKeywords.entrySet()) {
-            if (entry.getValue().stream()
-                    .anyMatch(keyword -> lowerTag.contains(keyword.toLowerCase()))) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        // 配置顺序中第一个有关键词被标签（忽略大小写）包含的主题
+        long mask = getTagTopicMask(tag);
+        return mask == 0 ? null : keywordMatcher.topics().get(Long.numberOfTrailingZeros(mask));
     }
 }
@@ -0,0 +1,28 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.cache.ResultCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+    private final ResultCache resultCache;
+
+    public CacheController(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * 结果缓存的命中 / 未命中 / 淘汰次数
+     * 示例: GET /api/cache/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(resultCache.stats());
+    }
+}
@@ -1,5 +1,6 @@
 package cs209a.finalproject_demo.controller;
 
+import cs209a.finalproject_demo.cache.ResultCache;
 import cs209a.finalproject_demo.service.MultithreadingService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,21 +8,31 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/multithreading")
 public class MultithreadingController {
     private final MultithreadingService multithreadingService;
+    private final ResultCache resultCache;
 
-    public MultithreadingController(MultithreadingService multithreadingService) {
+    public MultithreadingController(MultithreadingService multithreadingService, ResultCache resultCache) {
         this.multithreadingService = multithreadingService;
+        this.resultCache = resultCache;
     }
+    /**
+     * 在 MVC 异步线程上计算，请求超时或客户端断开时 Spring 中断该线程，并发匹配的子任务随之取消
+     */
     @GetMapping("/top")
-    public ResponseEntity<Map<String, Object>> getTopCoOccurrence(
+    public Callable<ResponseEntity<Map<String, Object>>> getTopCoOccurrence(
             @RequestParam(defaultValue = "5") int n) {
 
-        Map<String, Object> result = multithreadingService.getRecurrenceProblems(n);
-        return ResponseEntity.ok(result);
+        return () -> {
+            Map<String, Object> result = resultCache.get("multithreading/top", List.of(n),
+                    () -> multithreadingService.getRecurrenceProblems(n));
+            return ResponseEntity.ok(result);
+        };
     }
 }
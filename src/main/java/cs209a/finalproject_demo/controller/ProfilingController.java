@@ -0,0 +1,65 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.profiling.ProfileSummary;
+import cs209a.finalproject_demo.profiling.ProfilingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/profiles")
+public class ProfilingController {
+    private final ProfilingService profilingService;
+
+    public ProfilingController(ProfilingService profilingService) {
+        this.profilingService = profilingService;
+    }
+
+    /**
+     * 开始一次 JFR 录制，窗口结束后用返回的 id 查询结果
+     * 示例: POST /api/admin/profiles?seconds=30
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startRecording(@RequestParam(defaultValue = "30") int seconds) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        try {
+            body.put("id", profilingService.start(seconds));
+            body.put("seconds", seconds);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+        } catch (IllegalArgumentException e) {
+            body.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(body);
+        } catch (IllegalStateException e) {
+            body.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
+    }
+
+    /**
+     * 最近完成的录制，新的在前
+     * 示例: GET /api/admin/profiles
+     */
+    @GetMapping
+    public ResponseEntity<List<ProfileSummary>> getRecent() {
+        return ResponseEntity.ok(profilingService.recent());
+    }
+
+    /**
+     * 示例: GET /api/admin/profiles/3
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ProfileSummary> getProfile(@PathVariable long id) {
+        return profilingService.find(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
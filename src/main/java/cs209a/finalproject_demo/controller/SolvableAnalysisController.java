@@ -1,5 +1,6 @@
 package cs209a.finalproject_demo.controller;
 
+import cs209a.finalproject_demo.cache.ResultCache;
 import cs209a.finalproject_demo.service.MultithreadingService;
 import cs209a.finalproject_demo.service.SolvableAnalysisService;
 import org.springframework.http.ResponseEntity;
@@ -8,20 +9,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class SolvableAnalysisController {
     private final SolvableAnalysisService solvableAnalysisService;
+    private final ResultCache resultCache;
 
-    public SolvableAnalysisController(SolvableAnalysisService solvableAnalysisService) {
+    public SolvableAnalysisController(SolvableAnalysisService solvableAnalysisService, ResultCache resultCache) {
         this.solvableAnalysisService = solvableAnalysisService;
+        this.resultCache = resultCache;
     }
 
     @GetMapping("/solvable")
     public ResponseEntity<Map<String, Object>> getSolvableAnalysis() {
-        Map<String, Object> result = solvableAnalysisService.getAnalysis();
+        Map<String, Object> result = resultCache.get("solvable", List.of(),
+                solvableAnalysisService::getAnalysis);
         return ResponseEntity.ok(result);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package cs209a.finalproject_demo.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.result.JsonStreamable;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * 把 {@link JsonStreamable} 结果用 JsonGenerator 直接写到响应流，不构建中间的对象树
+ */
+@Component
+public class StreamingJson {
+    private final JsonFactory jsonFactory;
+
+    public StreamingJson(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public ResponseEntity<StreamingResponseBody> ok(JsonStreamable result) {
+        StreamingResponseBody body = out -> {
+            // 响应流由容器关闭
+            try (JsonGenerator json = jsonFactory.createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                result.writeJson(json);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
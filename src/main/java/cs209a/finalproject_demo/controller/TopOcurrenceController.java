@@ -1,22 +1,31 @@
 package cs209a.finalproject_demo.controller;
 
+import cs209a.finalproject_demo.cache.ResultCache;
+import cs209a.finalproject_demo.result.PairRanking;
+import cs209a.finalproject_demo.result.TagNeighbours;
 import cs209a.finalproject_demo.service.TopOccurrenceService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/occurrence")
 public class TopOcurrenceController {
     private final TopOccurrenceService topOccurrenceService;
+    private final ResultCache resultCache;
+    private final StreamingJson streamingJson;
 
-    public TopOcurrenceController(TopOccurrenceService topOccurrenceService) {
+    public TopOcurrenceController(TopOccurrenceService topOccurrenceService, ResultCache resultCache,
+                                  StreamingJson streamingJson) {
         this.topOccurrenceService = topOccurrenceService;
+        this.resultCache = resultCache;
+        this.streamingJson = streamingJson;
     }
     
     /**
@@ -24,10 +33,69 @@ public class TopOcurrenceController {
      * 示例: GET /api/occurrence/top?n=10
      */
     @GetMapping("/top")
-    public ResponseEntity<Map<String, Object>> getTopCoOccurrence(
+    public ResponseEntity<StreamingResponseBody> getTopCoOccurrence(
             @RequestParam(defaultValue = "10") int n) {
 
-        Map<String, Object> result = topOccurrenceService.getTopOccurrence(n);
-        return ResponseEntity.ok(result);
+        PairRanking result = resultCache.get("occurrence/top", List.of(n),
+                () -> topOccurrenceService.getTopOccurrence(n));
+        return streamingJson.ok(result);
+    }
+
+    /**
+     * 获取共同出现次数最多的 N 对标签
+     * 示例: GET /api/occurrence/tags/top?n=10
+     */
+    @GetMapping("/tags/top")
+    public ResponseEntity<StreamingResponseBody> getTopTagCoOccurrence(
+            @RequestParam(defaultValue = "10") int n) {
+
+        PairRanking result = resultCache.get("occurrence/tags/top", List.of(n),
+                () -> topOccurrenceService.getTopTagOccurrence(n));
+        return streamingJson.ok(result);
+    }
+
+    /**
+     * 获取问题创建日期在区间内（含两端）的线程中共同出现次数最多的 N 对标签
+     * 示例: GET /api/occurrence/tags/range?startDate=2023-01-01&endDate=2023-06-30&n=10
+     */
+    @GetMapping("/tags/range")
+    public ResponseEntity<StreamingResponseBody> getTopTagCoOccurrenceBetween(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "10") int n) {
+
+        PairRanking result = resultCache.get("occurrence/tags/range",
+                List.of(LocalDate.parse(startDate), LocalDate.parse(endDate), n),
+                () -> topOccurrenceService.getTopTagOccurrenceBetween(startDate, endDate, n));
+        return streamingJson.ok(result);
+    }
+
+    /**
+     * 获取给定标签之间共同出现次数最多的 N 对
+     * 示例: GET /api/occurrence/tags/among?tags=java,spring,hibernate,maven&n=10
+     */
+    @GetMapping("/tags/among")
+    public ResponseEntity<StreamingResponseBody> getTopTagCoOccurrenceAmong(
+            @RequestParam List<String> tags,
+            @RequestParam(defaultValue = "10") int n) {
+
+        List<String> sortedTags = tags.stream().distinct().sorted().toList();
+        PairRanking result = resultCache.get("occurrence/tags/among", List.of(sortedTags, n),
+                () -> topOccurrenceService.getTopTagOccurrenceAmong(sortedTags, n));
+        return streamingJson.ok(result);
+    }
+
+    /**
+     * 获取与某个标签共同出现次数最多的 N 个标签
+     * 示例: GET /api/occurrence/tags/neighbours?tag=java&n=10
+     */
+    @GetMapping("/tags/neighbours")
+    public ResponseEntity<StreamingResponseBody> getTagNeighbours(
+            @RequestParam String tag,
+            @RequestParam(defaultValue = "10") int n) {
+
+        TagNeighbours result = resultCache.get("occurrence/tags/neighbours", List.of(tag, n),
+                () -> topOccurrenceService.getTagNeighbours(tag, n));
+        return streamingJson.ok(result);
     }
 }
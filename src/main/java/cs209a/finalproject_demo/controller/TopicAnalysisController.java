@@ -1,31 +1,42 @@
 package cs209a.finalproject_demo.controller;
 
+import cs209a.finalproject_demo.cache.ResultCache;
+import cs209a.finalproject_demo.result.TopicSeriesResult;
 import cs209a.finalproject_demo.service.TopicAnalysisService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/topics")
 public class TopicAnalysisController {
     private final TopicAnalysisService topicAnalysisService;
+    private final ResultCache resultCache;
+    private final StreamingJson streamingJson;
 
-    public TopicAnalysisController(TopicAnalysisService topicAnalysisService) {
+    public TopicAnalysisController(TopicAnalysisService topicAnalysisService, ResultCache resultCache,
+                                   StreamingJson streamingJson) {
         this.topicAnalysisService = topicAnalysisService;
+        this.resultCache = resultCache;
+        this.streamingJson = streamingJson;
     }
 
     @GetMapping("/trend")
-    public ResponseEntity<Map<String, Object>> getTopicTrends(
+    public ResponseEntity<StreamingResponseBody> getTopicTrends(
             @RequestParam List<String> topics,
             @RequestParam String startDate,
             @RequestParam String endDate,
             @RequestParam (required = false, defaultValue = "month") String period) {
 
-        Map<String, Object> result = topicAnalysisService.getTopicTrends(topics, startDate,
-                endDate, period.toLowerCase());
-        return ResponseEntity.ok(result);
+        // 按去重排序后的主题缓存，返回前再恢复请求中的主题顺序
+        List<String> sortedTopics = topics.stream().distinct().sorted().toList();
+        TopicSeriesResult result = resultCache.get("topics/trend",
+                List.of(sortedTopics, LocalDate.parse(startDate), LocalDate.parse(endDate), period.toLowerCase()),
+                () -> topicAnalysisService.getTopicTrends(sortedTopics, startDate, endDate, period.toLowerCase()));
+        return streamingJson.ok(result.inOrder(topics));
     }
 
     /**
@@ -37,14 +48,17 @@ public class TopicAnalysisController {
     }
 
     @GetMapping("/activity")
-    public ResponseEntity<Map<String, Object>> getTopicActivity(
+    public ResponseEntity<StreamingResponseBody> getTopicActivity(
             @RequestParam List<String> topics,
             @RequestParam String startDate,
             @RequestParam String endDate,
             @RequestParam (required = false, defaultValue = "month") String period) {
 
-        Map<String, Object> result = topicAnalysisService.getTopicActivityScore(topics, startDate,
-                endDate, period.toLowerCase());
-        return ResponseEntity.ok(result);
+        List<String> sortedTopics = topics.stream().distinct().sorted().toList();
+        TopicSeriesResult result = resultCache.get("topics/activity",
+                List.of(sortedTopics, LocalDate.parse(startDate), LocalDate.parse(endDate), period.toLowerCase()),
+                () -> topicAnalysisService.getTopicActivityScore(sortedTopics, startDate, endDate,
+                        period.toLowerCase()));
+        return streamingJson.ok(result.inOrder(topics));
     }
-}
\ No newline at end of file
+}
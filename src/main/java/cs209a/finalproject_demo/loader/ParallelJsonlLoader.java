@@ -0,0 +1,267 @@
+package cs209a.finalproject_demo.loader;
+
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 并行读取 JSONL 文件：按换行对齐切分字节区间，在线程池中分块解析，再按文件顺序合并结果
+ */
+public class ParallelJsonlLoader {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelJsonlLoader.class);
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;   // 1 MB
+    private static final long MAX_CHUNK_BYTES = 64L << 20;  // 64 MB
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * 解析单行 JSON，每个工作线程持有一个独立实例
+     */
+    public interface LineParser {
+        StackOverflowThread parse(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final int parallelism;
+    private final Supplier<LineParser> parserFactory;
+
+    public ParallelJsonlLoader(int parallelism, Supplier<LineParser> parserFactory) {
+        this.parallelism = Math.max(1, parallelism);
+        this.parserFactory = parserFactory;
+    }
+
+    public Result load(Path path) throws IOException {
+        return load(path, 0, false);
+    }
+
+    /**
+     * 解析文件中从 fromOffset 开始的部分
+     *
+     * @param fromOffset        起始字节位置，必须位于行首
+     * @param completeLinesOnly 为 true 时忽略文件末尾还没有写完换行符的半行，留到下次读取
+     */
+    public Result load(Path path, long fromOffset, boolean completeLinesOnly) throws IOException {
+        long startNanos = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long endOffset = completeLinesOnly ? lastLineEnd(channel, fromOffset, fileSize) : fileSize;
+            List<long[]> ranges = splitOnNewlines(channel, fromOffset, endOffset);
+            long splitNanos = System.nanoTime();
+
+            ThreadLocal<LineParser> workerParser = ThreadLocal.withInitial(parserFactory);
+            ExecutorService pool = Executors.newFixedThreadPool(
+                    Math.min(parallelism, Math.max(1, ranges.size())), workerThreadFactory());
+            List<ChunkResult> chunks = new ArrayList<>(ranges.size());
+            try {
+                List<Future<ChunkResult>> futures = new ArrayList<>(ranges.size());
+                for (long[] range : ranges) {
+                    futures.add(pool.submit(() -> parseChunk(channel, range[0], range[1], workerParser.get())));
+                }
+                for (Future<ChunkResult> future : futures) {
+                    chunks.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Loading interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to parse chunk: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            long parseNanos = System.nanoTime();
+
+            // 按文件顺序合并
+            int total = chunks.stream().mapToInt(c -> c.threads.size()).sum();
+            List<StackOverflowThread> threads = new ArrayList<>(total);
+            int successCount = 0;
+            int failCount = 0;
+            for (ChunkResult chunk : chunks) {
+                threads.addAll(chunk.threads);
+                successCount += chunk.successCount;
+                failCount += chunk.failCount;
+            }
+            long mergeNanos = System.nanoTime();
+
+            return new Result(threads, successCount, failCount, endOffset - fromOffset, endOffset, ranges.size(),
+                    splitNanos - startNanos, parseNanos - splitNanos, mergeNanos - parseNanos);
+        }
+    }
+
+    /**
+     * 把文件切成大致等长的区间，每个区间的结束位置都对齐到换行符之后
+     */
+    private List<long[]> splitOnNewlines(FileChannel channel, long from, long to) throws IOException {
+        long target = (to - from) / ((long) parallelism * CHUNKS_PER_WORKER) + 1;
+        target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, target));
+
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long start = from;
+        while (start < to) {
+            long end = Math.min(to, start + target);
+            if (end < to) {
+                end = nextLineStart(channel, end, to, probe);
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * 最后一个换行符之后的位置；[from, size) 中没有换行符时返回 from
+     */
+    private long lastLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > from) {
+            long start = Math.max(from, end - probe.capacity());
+            probe.clear().limit((int) (end - start));
+            int read = 0;
+            while (probe.hasRemaining()) {
+                int n = channel.read(probe, start + read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long fileSize, ByteBuffer probe) throws IOException {
+        long pos = position;
+        while (pos < fileSize) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return fileSize;
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long start, long end, LineParser parser) throws IOException {
+        long length = end - start;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Line too long near offset " + start);
+        }
+        byte[] buffer = new byte[(int) length];
+        ByteBuffer target = ByteBuffer.wrap(buffer);
+        long pos = start;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, pos);
+            if (read < 0) {
+                break;
+            }
+            pos += read;
+        }
+
+        ChunkResult result = new ChunkResult();
+        int limit = target.position();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int from = lineStart;
+            int to = lineEnd;
+            while (from < to && (buffer[from] & 0xff) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer[to - 1] & 0xff) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                try {
+                    result.threads.add(parser.parse(buffer, from, to - from));
+                    result.successCount++;
+                } catch (Exception e) {
+                    result.failCount++;
+                    logger.warn("parsing failed: {}", e.getMessage());
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "data-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class ChunkResult {
+        private final List<StackOverflowThread> threads = new ArrayList<>();
+        private int successCount;
+        private int failCount;
+    }
+
+    public static class Result {
+        private final List<StackOverflowThread> threads;
+        private final int successCount;
+        private final int failCount;
+        private final long bytes;
+        private final long endOffset;
+        private final int chunks;
+        private final long splitNanos;
+        private final long parseNanos;
+        private final long mergeNanos;
+
+        public Result(List<StackOverflowThread> threads, int successCount, int failCount, long bytes, long endOffset,
+                      int chunks, long splitNanos, long parseNanos, long mergeNanos) {
+            this.threads = threads;
+            this.successCount = successCount;
+            this.failCount = failCount;
+            this.bytes = bytes;
+            this.endOffset = endOffset;
+            this.chunks = chunks;
+            this.splitNanos = splitNanos;
+            this.parseNanos = parseNanos;
+            this.mergeNanos = mergeNanos;
+        }
+
+        public List<StackOverflowThread> getThreads() { return threads; }
+        public int getSuccessCount() { return successCount; }
+        public int getFailCount() { return failCount; }
+        public long getBytes() { return bytes; }
+        /** 本次读取到的文件位置，下次增量读取从这里开始 */
+        public long getEndOffset() { return endOffset; }
+        public int getChunks() { return chunks; }
+        public long getSplitNanos() { return splitNanos; }
+        public long getParseNanos() { return parseNanos; }
+        public long getMergeNanos() { return mergeNanos; }
+    }
+}
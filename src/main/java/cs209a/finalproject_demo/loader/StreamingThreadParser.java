@@ -0,0 +1,181 @@
+package cs209a.finalproject_demo.loader;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Comment;
+import cs209a.finalproject_demo.model.Owner;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 JsonParser 的流式解析，只解码分析服务用到的字段，其余字段直接 skipChildren()
+ */
+public class StreamingThreadParser implements ParallelJsonlLoader.LineParser {
+    private final JsonFactory jsonFactory;
+    // 标签在语料中高度重复，所有工作线程共享一份字符串池
+    private final Map<String, String> tagPool;
+
+    public StreamingThreadParser(JsonFactory jsonFactory, Map<String, String> tagPool) {
+        this.jsonFactory = jsonFactory;
+        this.tagPool = tagPool;
+    }
+
+    @Override
+    public StackOverflowThread parse(byte[] buffer, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(buffer, offset, length)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            return readThread(parser);
+        }
+    }
+
+    private StackOverflowThread readThread(JsonParser parser) throws IOException {
+        StackOverflowThread thread = new StackOverflowThread();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "question" -> thread.setQuestion(readQuestion(parser));
+                case "answers" -> thread.setAnswers(readAnswers(parser));
+                case "question_comments" -> thread.setQuestionComments(readComments(parser));
+                case "answer_comments" -> thread.setAnswerComments(readAnswerComments(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return thread;
+    }
+
+    private Question readQuestion(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT, parser);
+        Question question = new Question();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "tags" -> question.setTags(readTags(parser));
+                case "owner" -> question.setOwner(readOwner(parser));
+                case "is_answered" -> question.setIsAnswered(parser.getValueAsBoolean());
+                case "view_count" -> question.setViewCount(parser.getValueAsInt());
+                case "score" -> question.setScore(parser.getValueAsInt());
+                case "creation_date" -> question.setCreationDate(parser.getValueAsLong());
+                case "question_id" -> question.setQuestionId(parser.getValueAsLong());
+                case "title" -> question.setTitle(parser.getValueAsString());
+                case "body" -> question.setBody(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return question;
+    }
+
+    private List<String> readTags(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_ARRAY, parser);
+        List<String> tags = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String tag = parser.getValueAsString();
+            tags.add(tag == null ? null : tagPool.computeIfAbsent(tag, t -> t));
+        }
+        return tags;
+    }
+
+    private Owner readOwner(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT, parser);
+        Owner owner = new Owner();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_NULL && "reputation".equals(field)) {
+                owner.setReputation(parser.getValueAsInt());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return owner;
+    }
+
+    private List<Answer> readAnswers(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_ARRAY, parser);
+        List<Answer> answers = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                answers.add(null);
+                continue;
+            }
+            expect(parser.currentToken(), JsonToken.START_OBJECT, parser);
+            Answer answer = new Answer();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "is_accepted" -> answer.setIsAccepted(parser.getValueAsBoolean());
+                    case "score" -> answer.setScore(parser.getValueAsInt());
+                    case "creation_date" -> answer.setCreationDate(parser.getValueAsLong());
+                    case "body" -> answer.setBody(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+            answers.add(answer);
+        }
+        return answers;
+    }
+
+    private Map<String, List<Comment>> readAnswerComments(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT, parser);
+        Map<String, List<Comment>> answerComments = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String answerId = parser.currentName();
+            JsonToken value = parser.nextToken();
+            answerComments.put(answerId, value == JsonToken.VALUE_NULL ? null : readComments(parser));
+        }
+        return answerComments;
+    }
+
+    private List<Comment> readComments(JsonParser parser) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_ARRAY, parser);
+        List<Comment> comments = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                comments.add(null);
+                continue;
+            }
+            expect(parser.currentToken(), JsonToken.START_OBJECT, parser);
+            Comment comment = new Comment();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "score" -> comment.setScore(parser.getValueAsInt());
+                    case "creation_date" -> comment.setCreationDate(parser.getValueAsLong());
+                    default -> parser.skipChildren();
+                }
+            }
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual
+                    + " at " + parser.currentLocation());
+        }
+    }
+}
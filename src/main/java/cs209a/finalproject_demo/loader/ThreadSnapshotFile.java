@@ -0,0 +1,468 @@
+package cs209a.finalproject_demo.loader;
+
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Comment;
+import cs209a.finalproject_demo.model.Owner;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 解析结果的二进制快照文件，下次启动时内存映射读取，代替重新解析 JSON。
+ * <p>
+ * 格式：文件头（魔数、格式版本、源文件已解析的长度及其 CRC32、线程数、失败行数），
+ * 标签字典，然后逐条记录线程。整数用 zigzag varint，字符串为 varint 长度 + UTF-8 字节，
+ * 列表为 varint (长度 + 1)，0 表示 null；每个对象先写一个标记哪些字段非 null 的 varint。
+ * 保存的字段与 {@link StreamingThreadParser} 解码的字段相同。
+ */
+public final class ThreadSnapshotFile {
+    private static final long MAGIC = 0x534F_5448_534E_4150L; // "SOTHSNAP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 36;
+    private static final int CHECKSUM_WINDOW = 64 << 20;
+
+    private final MappedBufferReader in;
+    private final long sourceLength;
+    private final long sourceChecksum;
+    private final int threadCount;
+    private final int failCount;
+
+    private ThreadSnapshotFile(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getLong() != MAGIC) {
+            throw new IOException("Not a thread snapshot file");
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + version);
+        }
+        this.sourceLength = buffer.getLong();
+        this.sourceChecksum = buffer.getLong();
+        this.threadCount = buffer.getInt();
+        this.failCount = buffer.getInt();
+        this.in = new MappedBufferReader(buffer);
+    }
+
+    /**
+     * 映射快照文件并读取文件头；线程数据在 {@link #readThreads()} 时才解码
+     */
+    public static ThreadSnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size());
+            }
+            return new ThreadSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** 生成快照时源文件已解析部分的字节数 */
+    public long sourceLength() { return sourceLength; }
+
+    /** 源文件 [0, sourceLength) 的 CRC32 */
+    public long sourceChecksum() { return sourceChecksum; }
+
+    public int threadCount() { return threadCount; }
+
+    public int failCount() { return failCount; }
+
+    /** 按写入顺序解码全部线程，每个实例只能调用一次 */
+    public List<StackOverflowThread> readThreads() throws IOException {
+        try {
+            String[] tags = new String[in.readVarInt()];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = in.readString();
+            }
+            List<StackOverflowThread> threads = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                threads.add(readThread(tags));
+            }
+            return threads;
+        } catch (RuntimeException e) {
+            // 文件被截断或损坏时 ByteBuffer 抛出 BufferUnderflowException 等运行时异常
+            throw new IOException("Corrupt snapshot: " + e, e);
+        }
+    }
+
+    /**
+     * 写出快照。先写临时文件再原子替换，避免读到写了一半的快照。
+     */
+    public static void write(Path path, long sourceLength, long sourceChecksum, int failCount,
+                             List<StackOverflowThread> threads) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tmp)) {
+            Writer out = new Writer(new BufferedOutputStream(file, 1 << 16));
+            out.data.writeLong(MAGIC);
+            out.data.writeInt(FORMAT_VERSION);
+            out.data.writeLong(sourceLength);
+            out.data.writeLong(sourceChecksum);
+            out.data.writeInt(threads.size());
+            out.data.writeInt(failCount);
+
+            Map<String, Integer> tagIds = new HashMap<>();
+            List<String> tagNames = new ArrayList<>();
+            for (StackOverflowThread thread : threads) {
+                Question question = thread.getQuestion();
+                if (question != null && question.getTags() != null) {
+                    for (String tag : question.getTags()) {
+                        if (tag != null && tagIds.putIfAbsent(tag, tagNames.size()) == null) {
+                            tagNames.add(tag);
+                        }
+                    }
+                }
+            }
+            out.writeVarInt(tagNames.size());
+            for (String tag : tagNames) {
+                out.writeString(tag);
+            }
+            for (StackOverflowThread thread : threads) {
+                out.writeThread(thread, tagIds);
+            }
+            out.data.flush();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 文件 [0, length) 的 CRC32，分段映射读取
+     */
+    public static long checksum(Path path, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position = 0; position < length; position += CHECKSUM_WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHECKSUM_WINDOW, length - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    // ---- 解码 ----
+
+    private StackOverflowThread readThread(String[] tags) {
+        StackOverflowThread thread = new StackOverflowThread();
+        int flags = in.readVarInt();
+        if ((flags & 1) != 0) {
+            thread.setQuestion(readQuestion(tags));
+        }
+        int answerCount = in.readVarInt() - 1;
+        if (answerCount >= 0) {
+            List<Answer> answers = new ArrayList<>(answerCount);
+            for (int i = 0; i < answerCount; i++) {
+                answers.add(readAnswer());
+            }
+            thread.setAnswers(answers);
+        }
+        thread.setQuestionComments(readComments());
+        int answerCommentCount = in.readVarInt() - 1;
+        if (answerCommentCount >= 0) {
+            Map<String, List<Comment>> answerComments = new LinkedHashMap<>();
+            for (int i = 0; i < answerCommentCount; i++) {
+                String answerId = in.readString();
+                answerComments.put(answerId, readComments());
+            }
+            thread.setAnswerComments(answerComments);
+        }
+        return thread;
+    }
+
+    private Question readQuestion(String[] tags) {
+        Question question = new Question();
+        int flags = in.readVarInt();
+        if ((flags & Q_TAGS) != 0) {
+            int count = in.readVarInt();
+            List<String> questionTags = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int tagId = in.readVarInt();
+                questionTags.add(tagId == 0 ? null : tags[tagId - 1]);
+            }
+            question.setTags(questionTags);
+        }
+        if ((flags & Q_OWNER) != 0) {
+            Owner owner = new Owner();
+            if ((flags & Q_REPUTATION) != 0) {
+                owner.setReputation(in.readVarInt());
+            }
+            question.setOwner(owner);
+        }
+        if ((flags & Q_ANSWERED) != 0) {
+            question.setIsAnswered((flags & Q_ANSWERED_TRUE) != 0);
+        }
+        if ((flags & Q_VIEW_COUNT) != 0) {
+            question.setViewCount(in.readVarInt());
+        }
+        if ((flags & Q_SCORE) != 0) {
+            question.setScore(in.readVarInt());
+        }
+        if ((flags & Q_CREATION_DATE) != 0) {
+            question.setCreationDate(in.readVarLong());
+        }
+        if ((flags & Q_QUESTION_ID) != 0) {
+            question.setQuestionId(in.readVarLong());
+        }
+        if ((flags & Q_TITLE) != 0) {
+            question.setTitle(in.readString());
+        }
+        if ((flags & Q_BODY) != 0) {
+            question.setBody(in.readString());
+        }
+        return question;
+    }
+
+    private Answer readAnswer() {
+        int flags = in.readVarInt();
+        if ((flags & PRESENT) == 0) {
+            return null;
+        }
+        Answer answer = new Answer();
+        if ((flags & A_ACCEPTED) != 0) {
+            answer.setIsAccepted((flags & A_ACCEPTED_TRUE) != 0);
+        }
+        if ((flags & A_SCORE) != 0) {
+            answer.setScore(in.readVarInt());
+        }
+        if ((flags & A_CREATION_DATE) != 0) {
+            answer.setCreationDate(in.readVarLong());
+        }
+        if ((flags & A_BODY) != 0) {
+            answer.setBody(in.readString());
+        }
+        return answer;
+    }
+
+    private List<Comment> readComments() {
+        int count = in.readVarInt() - 1;
+        if (count < 0) {
+            return null;
+        }
+        List<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int flags = in.readVarInt();
+            if ((flags & PRESENT) == 0) {
+                comments.add(null);
+                continue;
+            }
+            Comment comment = new Comment();
+            if ((flags & C_SCORE) != 0) {
+                comment.setScore(in.readVarInt());
+            }
+            if ((flags & C_CREATION_DATE) != 0) {
+                comment.setCreationDate(in.readVarLong());
+            }
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    // 字段存在标记
+    private static final int PRESENT = 1;
+    private static final int Q_TAGS = 1;
+    private static final int Q_OWNER = 1 << 1;
+    private static final int Q_REPUTATION = 1 << 2;
+    private static final int Q_ANSWERED = 1 << 3;
+    private static final int Q_ANSWERED_TRUE = 1 << 4;
+    private static final int Q_VIEW_COUNT = 1 << 5;
+    private static final int Q_SCORE = 1 << 6;
+    private static final int Q_CREATION_DATE = 1 << 7;
+    private static final int Q_QUESTION_ID = 1 << 8;
+    private static final int Q_TITLE = 1 << 9;
+    private static final int Q_BODY = 1 << 10;
+    private static final int A_ACCEPTED = 1 << 1;
+    private static final int A_ACCEPTED_TRUE = 1 << 2;
+    private static final int A_SCORE = 1 << 3;
+    private static final int A_CREATION_DATE = 1 << 4;
+    private static final int A_BODY = 1 << 5;
+    private static final int C_SCORE = 1 << 1;
+    private static final int C_CREATION_DATE = 1 << 2;
+
+    private static final class MappedBufferReader {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[4096];
+
+        MappedBufferReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long raw = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                raw |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Writer {
+        private final DataOutputStream data;
+
+        Writer(OutputStream out) {
+            this.data = new DataOutputStream(out);
+        }
+
+        void writeThread(StackOverflowThread thread, Map<String, Integer> tagIds) throws IOException {
+            Question question = thread.getQuestion();
+            writeVarInt(question != null ? 1 : 0);
+            if (question != null) {
+                writeQuestion(question, tagIds);
+            }
+            List<Answer> answers = thread.getAnswers();
+            writeVarInt(answers == null ? 0 : answers.size() + 1);
+            if (answers != null) {
+                for (Answer answer : answers) {
+                    writeAnswer(answer);
+                }
+            }
+            writeComments(thread.getQuestionComments());
+            Map<String, List<Comment>> answerComments = thread.getAnswerComments();
+            writeVarInt(answerComments == null ? 0 : answerComments.size() + 1);
+            if (answerComments != null) {
+                for (Map.Entry<String, List<Comment>> entry : answerComments.entrySet()) {
+                    writeString(entry.getKey());
+                    writeComments(entry.getValue());
+                }
+            }
+        }
+
+        private void writeQuestion(Question question, Map<String, Integer> tagIds) throws IOException {
+            Owner owner = question.getOwner();
+            int flags = 0;
+            flags |= question.getTags() != null ? Q_TAGS : 0;
+            flags |= owner != null ? Q_OWNER : 0;
+            flags |= owner != null && owner.getReputation() != null ? Q_REPUTATION : 0;
+            flags |= question.getIsAnswered() != null ? Q_ANSWERED : 0;
+            flags |= Boolean.TRUE.equals(question.getIsAnswered()) ? Q_ANSWERED_TRUE : 0;
+            flags |= question.getViewCount() != null ? Q_VIEW_COUNT : 0;
+            flags |= question.getScore() != null ? Q_SCORE : 0;
+            flags |= question.getCreationDate() != null ? Q_CREATION_DATE : 0;
+            flags |= question.getQuestionId() != null ? Q_QUESTION_ID : 0;
+            flags |= question.getTitle() != null ? Q_TITLE : 0;
+            flags |= question.getBody() != null ? Q_BODY : 0;
+            writeVarInt(flags);
+
+            if (question.getTags() != null) {
+                writeVarInt(question.getTags().size());
+                for (String tag : question.getTags()) {
+                    writeVarInt(tag == null ? 0 : tagIds.get(tag) + 1);
+                }
+            }
+            if ((flags & Q_REPUTATION) != 0) {
+                writeVarInt(owner.getReputation());
+            }
+            if (question.getViewCount() != null) {
+                writeVarInt(question.getViewCount());
+            }
+            if (question.getScore() != null) {
+                writeVarInt(question.getScore());
+            }
+            if (question.getCreationDate() != null) {
+                writeVarLong(question.getCreationDate());
+            }
+            if (question.getQuestionId() != null) {
+                writeVarLong(question.getQuestionId());
+            }
+            if (question.getTitle() != null) {
+                writeString(question.getTitle());
+            }
+            if (question.getBody() != null) {
+                writeString(question.getBody());
+            }
+        }
+
+        private void writeAnswer(Answer answer) throws IOException {
+            if (answer == null) {
+                writeVarInt(0);
+                return;
+            }
+            int flags = PRESENT;
+            flags |= answer.getIsAccepted() != null ? A_ACCEPTED : 0;
+            flags |= Boolean.TRUE.equals(answer.getIsAccepted()) ? A_ACCEPTED_TRUE : 0;
+            flags |= answer.getScore() != null ? A_SCORE : 0;
+            flags |= answer.getCreationDate() != null ? A_CREATION_DATE : 0;
+            flags |= answer.getBody() != null ? A_BODY : 0;
+            writeVarInt(flags);
+            if (answer.getScore() != null) {
+                writeVarInt(answer.getScore());
+            }
+            if (answer.getCreationDate() != null) {
+                writeVarLong(answer.getCreationDate());
+            }
+            if (answer.getBody() != null) {
+                writeString(answer.getBody());
+            }
+        }
+
+        private void writeComments(List<Comment> comments) throws IOException {
+            writeVarInt(comments == null ? 0 : comments.size() + 1);
+            if (comments == null) {
+                return;
+            }
+            for (Comment comment : comments) {
+                if (comment == null) {
+                    writeVarInt(0);
+                    continue;
+                }
+                int flags = PRESENT;
+                flags |= comment.getScore() != null ? C_SCORE : 0;
+                flags |= comment.getCreationDate() != null ? C_CREATION_DATE : 0;
+                writeVarInt(flags);
+                if (comment.getScore() != null) {
+                    writeVarInt(comment.getScore());
+                }
+                if (comment.getCreationDate() != null) {
+                    writeVarLong(comment.getCreationDate());
+                }
+            }
+        }
+
+        void writeVarInt(int value) throws IOException {
+            writeVarLong(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            long raw = (value << 1) ^ (value >> 63);
+            while ((raw & ~0x7FL) != 0) {
+                data.write((int) ((raw & 0x7F) | 0x80));
+                raw >>>= 7;
+            }
+            data.write((int) raw);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+}
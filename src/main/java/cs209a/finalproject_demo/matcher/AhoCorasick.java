@@ -0,0 +1,157 @@
+package cs209a.finalproject_demo.matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * 多个 ASCII 字面量的 Aho-Corasick 自动机，忽略 ASCII 大小写
+ * （与不带 UNICODE_CASE 的 Pattern.CASE_INSENSITIVE 一致）。
+ * 构建时把失败转移展开成完整的转移表，扫描时每个字符只查一次表。构建后不可变，可并发使用。
+ */
+public final class AhoCorasick {
+    private static final int ALPHABET = 128;
+
+    // transitions[state * ALPHABET + c]
+    private final int[] transitions;
+    // 到达该状态时结束的全部字面量 id（已沿失败链合并）
+    private final int[][] outputs;
+
+    /** 接收一次命中 */
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(int literalId);
+    }
+
+    /**
+     * @param literals 字面量，下标即 id；只能包含 ASCII 字符且不能为空
+     */
+    public AhoCorasick(List<String> literals) {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<int[]> stateOutputs = new ArrayList<>();
+        gotoTable.add(newRow());
+        stateOutputs.add(new int[0]);
+
+        for (int id = 0; id < literals.size(); id++) {
+            String literal = literals.get(id);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Empty literal");
+            }
+            int state = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                int c = fold(literal.charAt(i));
+                if (c < 0) {
+                    throw new IllegalArgumentException("Non-ASCII literal: " + literal);
+                }
+                if (gotoTable.get(state)[c] < 0) {
+                    gotoTable.get(state)[c] = gotoTable.size();
+                    gotoTable.add(newRow());
+                    stateOutputs.add(new int[0]);
+                }
+                state = gotoTable.get(state)[c];
+            }
+            stateOutputs.set(state, append(stateOutputs.get(state), id));
+        }
+
+        int stateCount = gotoTable.size();
+        transitions = new int[stateCount * ALPHABET];
+        outputs = new int[stateCount][];
+        int[] failure = new int[stateCount];
+
+        // 按 BFS 顺序计算失败指针，同时把缺失的转移补成失败状态的转移
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = gotoTable.get(0)[c];
+            transitions[c] = Math.max(next, 0);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        outputs[0] = stateOutputs.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = concat(stateOutputs.get(state), outputs[failure[state]]);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = gotoTable.get(state)[c];
+                if (next >= 0) {
+                    failure[next] = transitions[failure[state] * ALPHABET + c];
+                    transitions[state * ALPHABET + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * ALPHABET + c] = transitions[failure[state] * ALPHABET + c];
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描一遍文本，对每个出现的字面量回调（同一字面量出现多次会回调多次）
+     */
+    public void scan(CharSequence text, HitConsumer consumer) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int c = fold(text.charAt(i));
+            // 字面量都是 ASCII，非 ASCII 字符不可能是任何字面量的一部分
+            state = c < 0 ? 0 : transitions[state * ALPHABET + c];
+            for (int id : outputs[state]) {
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * 按 text.toLowerCase().contains(literal) 的语义扫描（默认非土耳其语 locale），
+     * 返回命中的字面量在 literalMasks 中对应掩码的并集；不分配对象。
+     * 非 ASCII 字符中只有 KELVIN SIGN 小写后是 ASCII（'k'），'İ' 小写后是 "i" 加一个组合符号
+     */
+    public long matchMask(CharSequence text, long[] literalMasks) {
+        long mask = 0;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char ch = text.charAt(i);
+            int c = ch == '\u212A' ? 'k' : ch == '\u0130' ? 'i' : fold(ch);
+            state = c < 0 ? 0 : transitions[state * ALPHABET + c];
+            for (int id : outputs[state]) {
+                mask |= literalMasks[id];
+            }
+            if (ch == '\u0130') {
+                // 后面紧跟的 U+0307 不是任何字面量的一部分
+                state = 0;
+            }
+        }
+        return mask;
+    }
+
+    public int stateCount() { return outputs.length; }
+
+    /** ASCII 字符转成小写，非 ASCII 返回 -1 */
+    static int fold(char c) {
+        if (c >= ALPHABET) {
+            return -1;
+        }
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
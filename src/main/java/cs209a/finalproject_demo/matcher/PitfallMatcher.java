@@ -0,0 +1,210 @@
+package cs209a.finalproject_demo.matcher;
+
+import cs209a.finalproject_demo.config.PatternMatchingConfig.PitfallPattern;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 一次扫描同时匹配全部 PitfallPattern，结果与逐个执行 compiledPattern.matcher(text).find() 相同。
+ * <p>
+ * 每个模式是若干备选项的 "|" 组合，逐个备选项处理：
+ * <ul>
+ *     <li>纯字面量：直接放进 Aho-Corasick 自动机，命中即匹配；</li>
+ *     <li>只含 "." / ".*" 通配的：取其中最长的一段字面量放进自动机作为必需字面量，
+ *     命中后再确认整个备选项。确认用 {@link WildcardPattern} 在每一行内贪心查找各段字面量，
+ *     是线性的，避免 "a.*b" 在长文本上的回溯；</li>
+ *     <li>其他正则语法：无法预过滤，每次都执行正则。</li>
+ * </ul>
+ * 构建后不可变，可以被多个线程同时使用。
+ */
+public final class PitfallMatcher {
+    private static final String REGEX_META = "\\[](){}?+*^$|.";
+
+    private final List<PitfallPattern> patterns;
+    private final AhoCorasick automaton;
+    // 自动机字面量 id -> 命中后直接匹配的模式下标，或 -1
+    private final int[] literalPattern;
+    // 自动机字面量 id -> 命中后需要确认的备选项下标，或 -1
+    private final int[] literalVerification;
+    // 需要正则确认的备选项
+    private final List<Verification> verifications = new ArrayList<>();
+    // 没有必需字面量、每次都要执行的备选项
+    private final List<Verification> unconditional = new ArrayList<>();
+
+    private record Verification(int patternIndex, Predicate<CharSequence> finder) {
+    }
+
+    public PitfallMatcher(List<PitfallPattern> patterns) {
+        this.patterns = List.copyOf(patterns);
+        List<String> literals = new ArrayList<>();
+        List<Integer> literalPatterns = new ArrayList<>();
+        List<Integer> literalVerifications = new ArrayList<>();
+
+        for (int p = 0; p < this.patterns.size(); p++) {
+            for (String alternative : this.patterns.get(p).regexStrings) {
+                if (isAsciiLiteral(alternative)) {
+                    literals.add(alternative);
+                    literalPatterns.add(p);
+                    literalVerifications.add(-1);
+                    continue;
+                }
+                String required = requiredLiteral(alternative);
+                if (required == null) {
+                    Pattern regex = Pattern.compile(alternative, Pattern.CASE_INSENSITIVE);
+                    unconditional.add(new Verification(p, text -> regex.matcher(text).find()));
+                } else {
+                    literals.add(required);
+                    literalPatterns.add(-1);
+                    literalVerifications.add(verifications.size());
+                    verifications.add(new Verification(p, new WildcardPattern(alternative)::find));
+                }
+            }
+        }
+        this.automaton = new AhoCorasick(literals);
+        this.literalPattern = literalPatterns.stream().mapToInt(Integer::intValue).toArray();
+        this.literalVerification = literalVerifications.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public List<PitfallPattern> patterns() { return patterns; }
+
+    /**
+     * 把 text 匹配到的模式下标加入 matched。已经在 matched 中的模式不会再确认，
+     * 因此同一线程的多段文本可以共用一个 BitSet。
+     */
+    public void matchInto(CharSequence text, BitSet matched) {
+        BitSet candidates = new BitSet(verifications.size());
+        automaton.scan(text, id -> {
+            if (literalPattern[id] >= 0) {
+                matched.set(literalPattern[id]);
+            } else {
+                candidates.set(literalVerification[id]);
+            }
+        });
+        for (int v = candidates.nextSetBit(0); v >= 0; v = candidates.nextSetBit(v + 1)) {
+            verify(verifications.get(v), text, matched);
+        }
+        for (Verification verification : unconditional) {
+            verify(verification, text, matched);
+        }
+    }
+
+    private static void verify(Verification verification, CharSequence text, BitSet matched) {
+        if (!matched.get(verification.patternIndex()) && verification.finder().test(text)) {
+            matched.set(verification.patternIndex());
+        }
+    }
+
+    private static boolean isAsciiLiteral(String alternative) {
+        if (alternative.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < alternative.length(); i++) {
+            char c = alternative.charAt(i);
+            if (c >= 128 || REGEX_META.indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只由 ASCII 字面量、"." 和 ".*" 组成的备选项中最长的一段字面量；
+     * 任何匹配都必须包含这段文字。其他语法返回 null。
+     */
+    static String requiredLiteral(String alternative) {
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < alternative.length(); i++) {
+            char c = alternative.charAt(i);
+            if (c == '.') {
+                if (i + 1 < alternative.length() && alternative.charAt(i + 1) == '*') {
+                    i++;
+                }
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+            } else if (c >= 128 || REGEX_META.indexOf(c) >= 0) {
+                return null;
+            } else {
+                run.append(c);
+            }
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /**
+     * 只由 ASCII 字面量、"." 和 ".*" 组成的正则（CASE_INSENSITIVE）。"." 不匹配行结束符，
+     * 所以一次匹配必然落在一行之内；在每一行内依次找各段字面量最早的出现位置即可判断是否存在匹配。
+     */
+    static final class WildcardPattern {
+        private static final int ANY = -1;
+        // 被 ".*" 分隔的各段，段内的 "." 记为 ANY，其余字符已转小写
+        private final int[][] pieces;
+
+        WildcardPattern(String regex) {
+            List<int[]> parts = new ArrayList<>();
+            for (String part : regex.split("\\.\\*", -1)) {
+                int[] piece = new int[part.length()];
+                for (int i = 0; i < part.length(); i++) {
+                    piece[i] = part.charAt(i) == '.' ? ANY : AhoCorasick.fold(part.charAt(i));
+                }
+                parts.add(piece);
+            }
+            this.pieces = parts.toArray(new int[0][]);
+        }
+
+        boolean find(CharSequence text) {
+            int n = text.length();
+            int lineStart = 0;
+            while (lineStart <= n) {
+                int lineEnd = lineStart;
+                while (lineEnd < n && !isLineTerminator(text.charAt(lineEnd))) {
+                    lineEnd++;
+                }
+                if (findInLine(text, lineStart, lineEnd)) {
+                    return true;
+                }
+                lineStart = lineEnd + 1;
+            }
+            return false;
+        }
+
+        private boolean findInLine(CharSequence text, int from, int to) {
+            int position = from;
+            for (int[] piece : pieces) {
+                int at = indexOf(text, piece, position, to);
+                if (at < 0) {
+                    return false;
+                }
+                position = at + piece.length;
+            }
+            return true;
+        }
+
+        private static int indexOf(CharSequence text, int[] piece, int from, int to) {
+            for (int start = from, last = to - piece.length; start <= last; start++) {
+                int k = 0;
+                while (k < piece.length && (piece[k] == ANY || piece[k] == AhoCorasick.fold(text.charAt(start + k)))) {
+                    k++;
+                }
+                if (k == piece.length) {
+                    return start;
+                }
+            }
+            return -1;
+        }
+
+        /** 与 java.util.regex 默认（非 UNIX_LINES）的行结束符一致 */
+        private static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+    }
+}
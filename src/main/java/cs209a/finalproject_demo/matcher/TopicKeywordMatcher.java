@@ -0,0 +1,52 @@
+package cs209a.finalproject_demo.matcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 主题关键词匹配：一次扫描得到文本中出现了哪些主题的关键词。
+ * 结果与对每个关键词执行 text.toLowerCase().contains(keyword.toLowerCase()) 相同，
+ * 但不创建小写副本，扫描时不分配对象。
+ * <p>
+ * 主题按配置顺序编号，结果为 64 位掩码，第 i 位表示第 i 个主题。构建后不可变，可并发使用。
+ */
+public final class TopicKeywordMatcher {
+    private final List<String> topics;
+    private final AhoCorasick automaton;
+    // 关键词 id -> 包含该关键词的主题掩码
+    private final long[] keywordMasks;
+
+    public TopicKeywordMatcher(Map<String, List<String>> topicKeywords) {
+        if (topicKeywords.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " topics are supported");
+        }
+        this.topics = List.copyOf(topicKeywords.keySet());
+        // 同一个关键词可能属于多个主题，只放进自动机一次
+        Map<String, Long> masks = new LinkedHashMap<>();
+        int topic = 0;
+        for (List<String> keywords : topicKeywords.values()) {
+            long bit = 1L << topic++;
+            for (String keyword : keywords) {
+                masks.merge(keyword.toLowerCase(), bit, (a, b) -> a | b);
+            }
+        }
+        this.automaton = new AhoCorasick(new ArrayList<>(masks.keySet()));
+        this.keywordMasks = masks.values().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public List<String> topics() { return topics; }
+
+    /** 主题在配置中的下标，不存在时返回 -1 */
+    public int topicIndex(String topic) { return topics.indexOf(topic); }
+
+    public static long bit(int topicIndex) {
+        return topicIndex < 0 ? 0 : 1L << topicIndex;
+    }
+
+    /** 文本中出现了关键词的主题掩码，text 为 null 时为 0 */
+    public long match(CharSequence text) {
+        return text == null ? 0 : automaton.matchMask(text, keywordMasks);
+    }
+}
@@ -0,0 +1,61 @@
+package cs209a.finalproject_demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析服务内部各阶段的耗时，记录为计时器 analysis.phase（标签 analysis、phase），
+ * 用来找出一次分析的时间主要花在哪个阶段。
+ * <pre>
+ * AnalysisMetrics.Phases phases = analysisMetrics.start("recurrence");
+ * ... 过滤
+ * phases.end("filter");
+ * ... 匹配
+ * phases.end("match");
+ * </pre>
+ */
+@Component
+public class AnalysisMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public AnalysisMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Phases start(String analysis) {
+        return new Phases(analysis);
+    }
+
+    private Timer timer(String analysis, String phase) {
+        return timers.computeIfAbsent(analysis + '/' + phase, key -> Timer.builder("analysis.phase")
+                .description("Time spent in one phase of an analysis")
+                .tag("analysis", analysis)
+                .tag("phase", phase)
+                .register(registry));
+    }
+
+    /**
+     * 一次分析调用依次经过的阶段，只在调用线程中使用
+     */
+    public final class Phases {
+        private final String analysis;
+        private long phaseStart = System.nanoTime();
+
+        private Phases(String analysis) {
+            this.analysis = analysis;
+        }
+
+        /** 把上一阶段结束（或 start）到现在的时间记为 phase 阶段 */
+        public void end(String phase) {
+            long now = System.nanoTime();
+            timer(analysis, phase).record(now - phaseStart, TimeUnit.NANOSECONDS);
+            phaseStart = now;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cs209a.finalproject_demo.profiling;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * StreamingResponseBody 在 MVC 异步线程上写响应，这一段的 CPU 和分配同样归到发起请求的接口：
+ * 在异步任务的前后开始和提交一个 {@link RequestEvent}
+ */
+@Component
+public class AsyncRequestProfiling implements WebMvcConfigurer, CallableProcessingInterceptor {
+    private static final String EVENT_ATTRIBUTE = AsyncRequestProfiling.class.getName() + ".event";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(this);
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        if (servletRequest != null) {
+            request.setAttribute(EVENT_ATTRIBUTE, RequestProfilingFilter.begin(servletRequest),
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /** 异步任务抛出异常时也会调用，之后的异步分派结束整个请求 */
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        Object event = request.getAttribute(EVENT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (servletRequest != null && event instanceof RequestEvent requestEvent) {
+            request.removeAttribute(EVENT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            RequestProfilingFilter.end(requestEvent, servletRequest, false);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package cs209a.finalproject_demo.profiling;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 一个录制窗口按接口汇总的结果。cpuSamples 是执行采样数（每个线程约每 10 ms 一次），
+ * allocationBytes 是分配采样按权重估计的字节数，gcPauseMillis 是请求处理期间与 GC 停顿重叠的时间。
+ * 无法归到请求的采样记在 "(unattributed)" 下
+ */
+public record ProfileSummary(long id, Instant start, Instant end, long requests, long cpuSamples,
+                             long allocationBytes, long gcPauses, double gcPauseMillis,
+                             List<EndpointProfile> endpoints) {
+
+    /**
+     * @param topFrames            CPU 采样的栈顶方法
+     * @param topApplicationFrames CPU 采样中最靠近栈顶的本项目方法
+     * @param topAllocationSites   分配采样中最靠近栈顶的本项目方法，按字节数
+     */
+    public record EndpointProfile(String endpoint, long requests, double totalMillis, double gcPauseMillis,
+                                  long cpuSamples, long allocationBytes, List<FrameCount> topFrames,
+                                  List<FrameCount> topApplicationFrames, List<FrameCount> topAllocationSites) {
+    }
+
+    public record FrameCount(String frame, long count) {
+    }
+}
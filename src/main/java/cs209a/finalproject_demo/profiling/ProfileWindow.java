@@ -0,0 +1,268 @@
+package cs209a.finalproject_demo.profiling;
+
+import cs209a.finalproject_demo.util.TopK;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个录制窗口内收到的事件，窗口结束后按接口归类汇总。
+ * <p>
+ * 采样所在线程在该时刻正在处理某个请求的一段（包括异步请求在 MVC 异步线程上写响应的一段）时，直接归到这个请求的接口；
+ * 公共 ForkJoinPool 的工作线程（并行流）上的采样，在同一时刻只有一个接口有请求在处理时归到该接口。
+ * 事件由 RecordingStream 的线程写入，汇总在窗口结束后进行，方法都加锁
+ */
+final class ProfileWindow {
+    static final String UNATTRIBUTED = "(unattributed)";
+    private static final String APPLICATION_PACKAGE = "cs209a.finalproject_demo.";
+    private static final String PROFILING_PACKAGE = "cs209a.finalproject_demo.profiling.";
+    private static final String COMMON_POOL_WORKER = "ForkJoinPool.commonPool-worker";
+
+    /** 请求在一个线程上的一段处理 */
+    private record Segment(long thread, long start, long end, String endpoint) {
+    }
+
+    /** 已结束的请求，从请求开始到最后一段结束 */
+    private record Request(long start, long end, String endpoint) {
+    }
+
+    /** CPU 采样 weight 为 1，分配采样 weight 为估计的字节数 */
+    private record Sample(long thread, boolean poolWorker, long time, String topFrame, String applicationFrame,
+                          long weight) {
+    }
+
+    // open 之前收到的事件都落在窗口之外
+    private long windowStart = Long.MAX_VALUE;
+    private long windowEnd = Long.MIN_VALUE;
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<Request> requests = new ArrayList<>();
+    private final List<Sample> cpuSamples = new ArrayList<>();
+    private final List<Sample> allocationSamples = new ArrayList<>();
+    private final List<long[]> pauses = new ArrayList<>();
+
+    /** 录制真正开始之后再确定窗口，RecordingStream 启动本身可能要一秒以上 */
+    synchronized void open(Instant start, Instant end) {
+        windowStart = nanos(start);
+        windowEnd = nanos(end);
+    }
+
+    synchronized void onRequest(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        String endpoint = event.getString("endpoint");
+        long segmentStart = event.getLong("segmentStart");
+        long start = segmentStart > 0 ? segmentStart * 1_000_000L : nanos(event.getStartTime());
+        long end = nanos(event.getEndTime());
+        if (thread == null || endpoint == null || start > windowEnd) {
+            return;
+        }
+        // 录制开始前已在处理的请求只计窗口内的部分
+        segments.add(new Segment(thread.getJavaThreadId(), Math.max(start, windowStart), end, endpoint));
+        if (event.getBoolean("completed")) {
+            long requestStart = event.getLong("requestStart");
+            requests.add(new Request(Math.max(requestStart > 0 ? requestStart * 1_000_000L : start, windowStart),
+                    end, endpoint));
+        }
+    }
+
+    synchronized void onExecutionSample(RecordedEvent event) {
+        Sample sample = sample(event, event.getThread("sampledThread"), 1);
+        if (sample != null) {
+            cpuSamples.add(sample);
+        }
+    }
+
+    synchronized void onAllocationSample(RecordedEvent event) {
+        Sample sample = sample(event, event.getThread(), event.getLong("weight"));
+        if (sample != null) {
+            allocationSamples.add(sample);
+        }
+    }
+
+    synchronized void onPause(RecordedEvent event) {
+        long start = nanos(event.getStartTime());
+        if (start <= windowEnd) {
+            pauses.add(new long[]{start, nanos(event.getEndTime())});
+        }
+    }
+
+    private Sample sample(RecordedEvent event, RecordedThread thread, long weight) {
+        long time = nanos(event.getStartTime());
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (thread == null || stackTrace == null || time < windowStart || time > windowEnd) {
+            return null;
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String topFrame = frames.isEmpty() ? "(no frames)" : frameName(frames.get(0));
+        String applicationFrame = null;
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APPLICATION_PACKAGE) && !type.startsWith(PROFILING_PACKAGE)) {
+                applicationFrame = frameName(frame);
+                break;
+            }
+        }
+        String threadName = thread.getJavaName();
+        return new Sample(thread.getJavaThreadId(), threadName != null && threadName.startsWith(COMMON_POOL_WORKER),
+                time, topFrame, applicationFrame, weight);
+    }
+
+    synchronized ProfileSummary summarize(long id, int topN) {
+        Map<String, EndpointTotals> totals = new LinkedHashMap<>();
+        Map<Long, List<Segment>> byThread = new HashMap<>();
+        segments.sort(Comparator.comparingLong(Segment::start));
+        for (Segment segment : segments) {
+            byThread.computeIfAbsent(segment.thread(), t -> new ArrayList<>()).add(segment);
+        }
+        requests.sort(Comparator.comparingLong(Request::start));
+        for (Request request : requests) {
+            EndpointTotals endpoint = totals.computeIfAbsent(request.endpoint(), EndpointTotals::new);
+            endpoint.requests++;
+            endpoint.totalNanos += request.end() - request.start();
+            for (long[] pause : pauses) {
+                endpoint.gcPauseNanos += Math.max(0,
+                        Math.min(request.end(), pause[1]) - Math.max(request.start(), pause[0]));
+            }
+        }
+
+        attribute(cpuSamples, byThread, totals, false);
+        attribute(allocationSamples, byThread, totals, true);
+
+        List<ProfileSummary.EndpointProfile> endpoints = new ArrayList<>(totals.size());
+        long allocationBytes = 0;
+        for (EndpointTotals endpoint : totals.values()) {
+            endpoints.add(endpoint.toProfile(topN));
+            allocationBytes += endpoint.allocationBytes;
+        }
+        // 采样最多的接口在前
+        endpoints.sort(Comparator.comparingLong(ProfileSummary.EndpointProfile::cpuSamples).reversed());
+        long pauseNanos = 0;
+        for (long[] pause : pauses) {
+            pauseNanos += pause[1] - pause[0];
+        }
+        return new ProfileSummary(id, instant(windowStart), instant(windowEnd), requests.size(), cpuSamples.size(),
+                allocationBytes, pauses.size(), millis(pauseNanos), endpoints);
+    }
+
+    /**
+     * 按时间顺序扫描采样，同时维护每个时刻正在处理的请求段所属接口的计数
+     */
+    private void attribute(List<Sample> samples, Map<Long, List<Segment>> byThread,
+                           Map<String, EndpointTotals> totals, boolean allocation) {
+        samples.sort(Comparator.comparingLong(Sample::time));
+        Segment[] byStart = segments.toArray(new Segment[0]);
+        Segment[] byEnd = byStart.clone();
+        Arrays.sort(byEnd, Comparator.comparingLong(Segment::end));
+        Map<String, Integer> active = new HashMap<>();
+        int started = 0;
+        int ended = 0;
+        for (Sample sample : samples) {
+            while (started < byStart.length && byStart[started].start() <= sample.time()) {
+                active.merge(byStart[started++].endpoint(), 1, Integer::sum);
+            }
+            while (ended < byEnd.length && byEnd[ended].end() < sample.time()) {
+                active.merge(byEnd[ended++].endpoint(), -1, (count, delta) -> count + delta == 0 ? null : count + delta);
+            }
+
+            String endpoint = requestOnThread(byThread.get(sample.thread()), sample.time());
+            if (endpoint == null && sample.poolWorker() && active.size() == 1) {
+                endpoint = active.keySet().iterator().next();
+            }
+            EndpointTotals target = totals.computeIfAbsent(endpoint == null ? UNATTRIBUTED : endpoint,
+                    EndpointTotals::new);
+            if (allocation) {
+                target.allocationBytes += sample.weight();
+                if (sample.applicationFrame() != null) {
+                    target.allocationSites.merge(sample.applicationFrame(), sample.weight(), Long::sum);
+                }
+            } else {
+                target.cpuSamples++;
+                target.topFrames.merge(sample.topFrame(), 1L, Long::sum);
+                if (sample.applicationFrame() != null) {
+                    target.applicationFrames.merge(sample.applicationFrame(), 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /** 同一线程上的请求段互不重叠，按开始时间二分查找 */
+    private static String requestOnThread(List<Segment> threadSegments, long time) {
+        if (threadSegments == null) {
+            return null;
+        }
+        int lo = 0;
+        int hi = threadSegments.size() - 1;
+        Segment candidate = null;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (threadSegments.get(mid).start() <= time) {
+                candidate = threadSegments.get(mid);
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return candidate != null && candidate.end() >= time ? candidate.endpoint() : null;
+    }
+
+    private static final class EndpointTotals {
+        final String endpoint;
+        long requests;
+        long totalNanos;
+        long gcPauseNanos;
+        long cpuSamples;
+        long allocationBytes;
+        final Map<String, Long> topFrames = new HashMap<>();
+        final Map<String, Long> applicationFrames = new HashMap<>();
+        final Map<String, Long> allocationSites = new HashMap<>();
+
+        EndpointTotals(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        ProfileSummary.EndpointProfile toProfile(int topN) {
+            return new ProfileSummary.EndpointProfile(endpoint, requests, millis(totalNanos), millis(gcPauseNanos),
+                    cpuSamples, allocationBytes, top(topFrames, topN), top(applicationFrames, topN),
+                    top(allocationSites, topN));
+        }
+    }
+
+    /** 次数相同时按方法名排序 */
+    private static List<ProfileSummary.FrameCount> top(Map<String, Long> counts, int n) {
+        String[] frames = counts.keySet().toArray(new String[0]);
+        Arrays.sort(frames);
+        TopK topK = new TopK(n);
+        for (int i = 0; i < frames.length; i++) {
+            topK.offer(counts.get(frames[i]), i);
+        }
+        List<ProfileSummary.FrameCount> ranked = new ArrayList<>(topK.size());
+        topK.forEachRanked((count, i) -> ranked.add(new ProfileSummary.FrameCount(frames[(int) i], count)));
+        return ranked;
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        String name = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        return frame.getLineNumber() > 0 ? name + ":" + frame.getLineNumber() : name;
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static Instant instant(long nanos) {
+        return Instant.ofEpochSecond(0, nanos);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,170 @@
+package cs209a.finalproject_demo.profiling;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 进程内的 JFR 流式录制：CPU 执行采样、分配采样、GC 停顿和 {@link RequestEvent}，
+ * 每个窗口结束后按接口汇总为 {@link ProfileSummary}，最近 profiling.history 个保存在环形缓冲中。
+ * 同一时刻只有一个录制；profiling.continuous.window-seconds > 0 时连续不断地录制。
+ */
+@Service
+public class ProfilingService {
+    private static final Logger logger = LoggerFactory.getLogger(ProfilingService.class);
+    private static final Duration SAMPLE_PERIOD = Duration.ofMillis(10);
+    // 窗口结束后等待 RecordingStream 把窗口内的事件全部刷出，大约每秒刷出一次
+    private static final long FLUSH_GRACE_SECONDS = 5;
+
+    @Value("${profiling.history:5}")
+    private int historySize;
+
+    @Value("${profiling.max-seconds:300}")
+    private int maxSeconds;
+
+    @Value("${profiling.top-frames:15}")
+    private int topFrames;
+
+    @Value("${profiling.continuous.window-seconds:0}")
+    private int continuousWindowSeconds;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final ExecutorService recorder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jfr-profiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 以下字段只在持有 this 锁时访问
+    private final ArrayDeque<ProfileSummary> history = new ArrayDeque<>();
+    private boolean recording;
+
+    @PostConstruct
+    public void startContinuous() {
+        if (continuousWindowSeconds <= 0) {
+            return;
+        }
+        int seconds = Math.min(continuousWindowSeconds, maxSeconds);
+        synchronized (this) {
+            recording = true;
+        }
+        recorder.execute(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!recordWindow(ids.incrementAndGet(), seconds)) {
+                    break;
+                }
+            }
+        });
+        logger.info("Continuous JFR profiling in {} s windows", seconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        recorder.shutdownNow();
+    }
+
+    /**
+     * 开始录制 seconds 秒，立即返回录制编号；窗口结束后结果出现在 {@link #recent()} 中
+     *
+     * @throws IllegalStateException 已有录制在进行（包括连续录制）
+     */
+    public long start(int seconds) {
+        if (seconds <= 0 || seconds > maxSeconds) {
+            throw new IllegalArgumentException("seconds must be in [1, " + maxSeconds + "]: " + seconds);
+        }
+        synchronized (this) {
+            if (recording) {
+                throw new IllegalStateException("a recording is already running");
+            }
+            recording = true;
+        }
+        long id = ids.incrementAndGet();
+        recorder.execute(() -> {
+            try {
+                recordWindow(id, seconds);
+            } finally {
+                synchronized (this) {
+                    recording = false;
+                }
+            }
+        });
+        return id;
+    }
+
+    /** 最近完成的录制，新的在前 */
+    public synchronized List<ProfileSummary> recent() {
+        List<ProfileSummary> summaries = new ArrayList<>(history);
+        Collections.reverse(summaries);
+        return summaries;
+    }
+
+    public synchronized Optional<ProfileSummary> find(long id) {
+        return history.stream().filter(summary -> summary.id() == id).findFirst();
+    }
+
+    /**
+     * 在当前线程上录制一个窗口并保存结果
+     *
+     * @return 是否完整录制（被中断时返回 false，结果丢弃）
+     */
+    private boolean recordWindow(long id, int seconds) {
+        ProfileWindow window = new ProfileWindow();
+        CountDownLatch flushedAfterEnd = new CountDownLatch(1);
+        AtomicReference<Instant> end = new AtomicReference<>(Instant.MAX);
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("jdk.ExecutionSample").withPeriod(SAMPLE_PERIOD).withStackTrace();
+            stream.enable("jdk.ObjectAllocationSample").with("throttle", "300/s").withStackTrace();
+            stream.enable("jdk.GCPhasePause").withoutThreshold();
+            stream.enable(RequestEvent.class).withoutThreshold();
+            stream.onEvent("jdk.ExecutionSample", window::onExecutionSample);
+            stream.onEvent("jdk.ObjectAllocationSample", window::onAllocationSample);
+            stream.onEvent("jdk.GCPhasePause", window::onPause);
+            stream.onEvent("cs209a.HttpRequest", window::onRequest);
+            stream.onFlush(() -> {
+                if (Instant.now().isAfter(end.get())) {
+                    flushedAfterEnd.countDown();
+                }
+            });
+            stream.startAsync();
+            Instant start = Instant.now();
+            end.set(start.plusSeconds(seconds));
+            window.open(start, end.get());
+            logger.info("JFR recording {} started for {} s", id, seconds);
+            if (!flushedAfterEnd.await(seconds + FLUSH_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("JFR recording {} did not flush after its window, summarizing what arrived", id);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        ProfileSummary summary = window.summarize(id, topFrames);
+        synchronized (this) {
+            history.addLast(summary);
+            while (history.size() > Math.max(1, historySize)) {
+                history.removeFirst();
+            }
+        }
+        logger.info("JFR recording {} finished: {} requests, {} CPU samples", id, summary.requests(),
+                summary.cpuSamples());
+        return true;
+    }
+}
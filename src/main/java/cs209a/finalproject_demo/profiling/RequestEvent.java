@@ -0,0 +1,37 @@
+package cs209a.finalproject_demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * 一次 HTTP 请求在某个线程上的一段处理，用来把同一线程上的 CPU 和分配采样归到对应的接口。
+ * 同步请求只有一段；异步请求（StreamingResponseBody）还有 MVC 异步线程上写响应的一段和之后的异步分派，
+ * 只有结束请求的那一段 completed 为 true，请求数和耗时按它统计。
+ * 只在 {@link ProfilingService} 录制期间启用，其余时间 begin / shouldCommit 几乎没有开销
+ */
+@Name("cs209a.HttpRequest")
+@Label("HTTP Request")
+@Category("Java2Project")
+@Description("One segment of handling an HTTP request on one thread")
+@StackTrace(false)
+final class RequestEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    // 整个请求的开始时刻，异步请求的各段相同
+    @Label("Request Start")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long requestStart;
+
+    // 事件未启用时 begin() 不记录开始时间，录制开始前已在处理的一段靠这个字段得到真实的开始时刻
+    @Label("Segment Start")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long segmentStart;
+
+    @Label("Completed")
+    boolean completed;
+}
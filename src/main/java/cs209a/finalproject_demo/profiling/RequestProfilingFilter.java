@@ -0,0 +1,68 @@
+package cs209a.finalproject_demo.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jdk.jfr.FlightRecorder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * 录制期间为请求在 servlet 线程上的每次分派提交一个 {@link RequestEvent}，接口名为 "方法 路径模板"，
+ * 例如 "GET /api/solvable"。异步请求在 MVC 异步线程上的一段由 {@link AsyncRequestProfiling} 提交
+ */
+@Component
+public class RequestProfilingFilter extends OncePerRequestFilter {
+    static final String REQUEST_START_ATTRIBUTE = RequestProfilingFilter.class.getName() + ".requestStart";
+
+    static {
+        // 提前注册事件类，第一次录制开始时已在处理的请求在结束时也能提交
+        FlightRecorder.register(RequestEvent.class);
+    }
+
+    /** 异步分派同样要记录，流式响应写完之后请求才结束 */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestEvent event = begin(request);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            end(event, request, !request.isAsyncStarted());
+        }
+    }
+
+    /** 总是记下开始时间：录制开始时已在处理的请求在提交时也能被记录 */
+    static RequestEvent begin(HttpServletRequest request) {
+        long now = System.currentTimeMillis();
+        Object requestStart = request.getAttribute(REQUEST_START_ATTRIBUTE);
+        if (requestStart == null) {
+            requestStart = now;
+            request.setAttribute(REQUEST_START_ATTRIBUTE, requestStart);
+        }
+        RequestEvent event = new RequestEvent();
+        event.requestStart = (Long) requestStart;
+        event.segmentStart = now;
+        event.begin();
+        return event;
+    }
+
+    static void end(RequestEvent event, HttpServletRequest request, boolean completed) {
+        if (event.shouldCommit()) {
+            // 路径模板在分派到处理器之后才设置
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            event.endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            event.completed = completed;
+            event.commit();
+        }
+    }
+}
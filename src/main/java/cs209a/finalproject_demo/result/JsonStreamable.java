@@ -0,0 +1,12 @@
+package cs209a.finalproject_demo.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * 能把自己直接写成 JSON 的分析结果。控制器用流式写出，不再把结果转成 Map 树交给 Jackson 反射遍历
+ */
+public interface JsonStreamable {
+    void writeJson(JsonGenerator json) throws IOException;
+}
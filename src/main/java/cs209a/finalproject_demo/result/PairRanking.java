@@ -0,0 +1,81 @@
+package cs209a.finalproject_demo.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import cs209a.finalproject_demo.cache.ResultCache;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 共同出现次数最多的若干对主题或标签。写出的 JSON：
+ * <pre>
+ * {"totalPairs": ..., "topN": ..., "coOccurrences": [{"topic1": ..., "topic2": ..., "count": ...}, ...]}
+ * </pre>
+ * 标签组合的字段名为 tag1 / tag2；按日期区间或标签子集统计时，末尾另有 startDate / endDate 或 tags。
+ */
+public record PairRanking(Kind kind, long totalPairs, int topN, List<Pair> pairs,
+                          String startDate, String endDate, List<String> tags)
+        implements JsonStreamable, ResultCache.Weighted {
+
+    public enum Kind {
+        TOPIC("topic1", "topic2"),
+        TAG("tag1", "tag2");
+
+        private final String firstField;
+        private final String secondField;
+
+        Kind(String firstField, String secondField) {
+            this.firstField = firstField;
+            this.secondField = secondField;
+        }
+    }
+
+    /** 一个组合，first 按名称排在 second 之前 */
+    public record Pair(String first, String second, long count) {
+    }
+
+    public static PairRanking of(Kind kind, long totalPairs, int topN, List<Pair> pairs) {
+        return new PairRanking(kind, totalPairs, topN, pairs, null, null, null);
+    }
+
+    public PairRanking withDateRange(String startDate, String endDate) {
+        return new PairRanking(kind, totalPairs, topN, pairs, startDate, endDate, tags);
+    }
+
+    public PairRanking withTags(List<String> tags) {
+        return new PairRanking(kind, totalPairs, topN, pairs, startDate, endDate, tags);
+    }
+
+    @Override
+    public long weight() {
+        return 1 + pairs.size() + (tags == null ? 0 : tags.size());
+    }
+
+    @Override
+    public void writeJson(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("totalPairs", totalPairs);
+        json.writeNumberField("topN", topN);
+        json.writeArrayFieldStart("coOccurrences");
+        for (Pair pair : pairs) {
+            json.writeStartObject();
+            json.writeStringField(kind.firstField, pair.first());
+            json.writeStringField(kind.secondField, pair.second());
+            json.writeNumberField("count", pair.count());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        if (startDate != null) {
+            json.writeStringField("startDate", startDate);
+            json.writeStringField("endDate", endDate);
+        }
+        if (tags != null) {
+            json.writeArrayFieldStart("tags");
+            for (String tag : tags) {
+                json.writeString(tag);
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+    }
+}
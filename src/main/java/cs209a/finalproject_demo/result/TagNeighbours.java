@@ -0,0 +1,42 @@
+package cs209a.finalproject_demo.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import cs209a.finalproject_demo.cache.ResultCache;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 与一个标签共同出现次数最多的标签。写出的 JSON：
+ * <pre>
+ * {"tag": ..., "totalNeighbours": ..., "topN": ..., "neighbours": [{"tag": ..., "count": ...}, ...]}
+ * </pre>
+ */
+public record TagNeighbours(String tag, int totalNeighbours, int topN, List<Neighbour> neighbours)
+        implements JsonStreamable, ResultCache.Weighted {
+
+    public record Neighbour(String tag, long count) {
+    }
+
+    @Override
+    public long weight() {
+        return 1 + neighbours.size();
+    }
+
+    @Override
+    public void writeJson(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("tag", tag);
+        json.writeNumberField("totalNeighbours", totalNeighbours);
+        json.writeNumberField("topN", topN);
+        json.writeArrayFieldStart("neighbours");
+        for (Neighbour neighbour : neighbours) {
+            json.writeStartObject();
+            json.writeStringField("tag", neighbour.tag());
+            json.writeNumberField("count", neighbour.count());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+}
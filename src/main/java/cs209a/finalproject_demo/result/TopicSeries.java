@@ -0,0 +1,8 @@
+package cs209a.finalproject_demo.result;
+
+/**
+ * 一个主题按时间分桶的序列，periods[i] 对应 values[i]，按时间升序
+ */
+public record TopicSeries(String topic, String[] periods, long[] values) {
+    public int size() { return periods.length; }
+}
@@ -0,0 +1,97 @@
+package cs209a.finalproject_demo.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import cs209a.finalproject_demo.cache.ResultCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 主题趋势 / 活跃度接口的结果。写出的 JSON：
+ * <pre>
+ * {"period": ..., "dateRange": {"start": ..., "end": ...}, "totalThreads": ...,
+ *  "&lt;measure.field&gt;": {"&lt;topic&gt;": [{"period": ..., "&lt;measure.valueField&gt;": ...}, ...], ...}}
+ * </pre>
+ */
+public record TopicSeriesResult(Measure measure, String period, String startDate, String endDate,
+                                int totalThreads, List<TopicSeries> series)
+        implements JsonStreamable, ResultCache.Weighted {
+
+    public enum Measure {
+        /** 问题数 */
+        COUNT("topicTrends", "count"),
+        /** 活跃度，序列中的值以十分之一为单位，输出时保留两位小数 */
+        ACTIVITY("topicActivityScore", "activityScore");
+
+        private final String field;
+        private final String valueField;
+
+        Measure(String field, String valueField) {
+            this.field = field;
+            this.valueField = valueField;
+        }
+
+        private void writeValue(JsonGenerator json, long value) throws IOException {
+            if (this == COUNT) {
+                json.writeNumber(value);
+            } else {
+                json.writeNumber(Math.round(value / 10.0 * 100.0) / 100.0);
+            }
+        }
+    }
+
+    /** 按 topics 中的顺序排列序列；顺序相同时返回本对象 */
+    public TopicSeriesResult inOrder(List<String> topics) {
+        List<String> requested = topics.stream().distinct().toList();
+        if (requested.equals(series.stream().map(TopicSeries::topic).toList())) {
+            return this;
+        }
+        Map<String, TopicSeries> byTopic = series.stream()
+                .collect(Collectors.toMap(TopicSeries::topic, Function.identity()));
+        List<TopicSeries> ordered = new ArrayList<>(requested.size());
+        for (String topic : requested) {
+            ordered.add(byTopic.get(topic));
+        }
+        return new TopicSeriesResult(measure, period, startDate, endDate, totalThreads, ordered);
+    }
+
+    @Override
+    public long weight() {
+        long weight = 1;
+        for (TopicSeries topicSeries : series) {
+            weight += 1 + topicSeries.size();
+        }
+        return weight;
+    }
+
+    @Override
+    public void writeJson(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("period", period);
+        json.writeObjectFieldStart("dateRange");
+        json.writeStringField("start", startDate);
+        json.writeStringField("end", endDate);
+        json.writeEndObject();
+        json.writeNumberField("totalThreads", totalThreads);
+        json.writeObjectFieldStart(measure.field);
+        for (TopicSeries topicSeries : series) {
+            json.writeArrayFieldStart(topicSeries.topic());
+            String[] periods = topicSeries.periods();
+            long[] values = topicSeries.values();
+            for (int i = 0; i < periods.length; i++) {
+                json.writeStartObject();
+                json.writeStringField("period", periods[i]);
+                json.writeFieldName(measure.valueField);
+                measure.writeValue(json, values[i]);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+}
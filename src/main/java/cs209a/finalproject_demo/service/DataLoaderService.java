@@ -1,71 +1,465 @@
 package cs209a.finalproject_demo.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.loader.ParallelJsonlLoader;
+import cs209a.finalproject_demo.loader.StreamingThreadParser;
+import cs209a.finalproject_demo.loader.ThreadSnapshotFile;
 import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.io.BufferedReader;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
 @Service
-public class DataLoaderService {
+public class DataLoaderService implements MeterBinder {
     private static final Logger logger = LoggerFactory.getLogger(DataLoaderService.class);
+    // 用已读取部分首尾字节的校验和判断文件是否被整体重写
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+    private static final int FINGERPRINT_TAIL_BYTES = 4 * 1024;
+
     private final ObjectMapper objectMapper;
-    private List<StackOverflowThread> threads;
+    private final TopicKeywordsConfig topicKeywordsConfig;
+    // 当前发布的语料快照，替换是原子的，读取方不需要加锁
+    private volatile CorpusSnapshot snapshot;
+
+    // 以下增量加载状态只在持有 this 锁时访问
+    private long consumedOffset;
+    private long fingerprint;
+    private final Set<Long> knownQuestionIds = new HashSet<>();
+    private final Map<String, Long> dropFileSizes = new HashMap<>();
+    private final Set<String> processedDropFiles = new HashSet<>();
+    private ScheduledExecutorService watcher;
+
+    // 加载吞吐：完整加载和增量追加读到的线程数、解析失败的行数和字节数
+    private final LongAdder loadedThreads = new LongAdder();
+    private final LongAdder failedLines = new LongAdder();
+    private final LongAdder parsedBytes = new LongAdder();
+    private final LongAdder fullLoads = new LongAdder();
+    private final LongAdder fullLoadNanos = new LongAdder();
 
     @Value("${data.file.path:data/stackoverflow_threads.jsonl}")
     private String dataFilePath;
 
-    public DataLoaderService(ObjectMapper objectMapper) {
+    // databind: 完整绑定所有字段; streaming: 只解码分析用到的字段
+    @Value("${data.file.parser:databind}")
+    private String parserMode;
+
+    // 解析线程数，<= 0 时使用 CPU 核数
+    @Value("${data.load.parallelism:0}")
+    private int loadParallelism;
+
+    // 监视数据文件的追加内容（以及 drop 目录中的新文件），增量发布新版本
+    @Value("${data.watch.enabled:false}")
+    private boolean watchEnabled;
+
+    @Value("${data.watch.interval-ms:5000}")
+    private long watchIntervalMs;
+
+    @Value("${data.watch.drop-dir:}")
+    private String dropDir;
+
+    // 首次解析后写出二进制快照，之后启动时若源文件未变则直接读取快照
+    @Value("${data.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    // 为空时使用 data.file.path + ".snapshot"
+    @Value("${data.snapshot.path:}")
+    private String snapshotFilePath;
+
+    public DataLoaderService(ObjectMapper objectMapper, TopicKeywordsConfig topicKeywordsConfig) {
         this.objectMapper = objectMapper;
-        this.threads = new ArrayList<>();
+        this.topicKeywordsConfig = topicKeywordsConfig;
+        ThreadStore empty = ThreadStore.of(Collections.emptyList());
+        this.snapshot = CorpusSnapshot.build(0, empty, topicKeywordsConfig, ZoneId.systemDefault());
     }
 
     @PostConstruct
     public void loadData() {
+        reload();
+        if (watchEnabled) {
+            watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "data-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watcher.scheduleWithFixedDelay(this::pollSafely, watchIntervalMs, watchIntervalMs, TimeUnit.MILLISECONDS);
+            logger.info("Watching {} for appended threads every {} ms", dataFilePath, watchIntervalMs);
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    /**
+     * 重新解析数据文件并发布新版本快照。多次重新加载之间串行执行，
+     * 但不会阻塞正在使用旧快照的查询。
+     *
+     * @return 是否成功发布了新快照
+     */
+    public synchronized boolean reload() {
+        long start = System.nanoTime();
+        try {
+            return reloadFromSource();
+        } finally {
+            fullLoads.increment();
+            fullLoadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private boolean reloadFromSource() {
         logger.info("Start loading data from " + dataFilePath);
         File file = new File(dataFilePath);
         if (!file.exists()) {
             logger.error("File does not exists: {}", dataFilePath);
-            return;
+            return false;
         }
 
-        int successCount = 0;
-        int failCount = 0;
+        Path path = file.toPath();
+        if (snapshotEnabled && reloadFromSnapshot(path)) {
+            return true;
+        }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
+        int parallelism = parallelism();
+        ParallelJsonlLoader loader = new ParallelJsonlLoader(parallelism, lineParserFactory());
 
-                try {
-                    StackOverflowThread thread = objectMapper.readValue(line, StackOverflowThread.class);
-                    threads.add(thread);
-                    successCount++;
-                } catch (Exception e) {
-                    failCount++;
-                    logger.warn("parsing failed: {}", e.getMessage());
-                }
-            }
+        try {
+            // 监视模式下末尾未写完的半行留到下次追加时再读
+            ParallelJsonlLoader.Result result = loader.load(path, 0, watchEnabled);
+            countLoaded(result);
+
+            long storeStart = System.nanoTime();
+            ThreadStore store = ThreadStore.of(result.getThreads());
+            long storeNanos = System.nanoTime() - storeStart;
+            CorpusSnapshot published = publishLoaded(path, store, result.getEndOffset());
 
             logger.info("Data loading finished! success: {}, failed: {}, total: {}",
-                    successCount, failCount, threads.size());
+                    result.getSuccessCount(), result.getFailCount(), published.size());
+            logger.info("Loading phases: split {} ms, parse {} ms, merge {} ms, store {} ms ({} chunks, {} workers, {} MB, {} parser)",
+                    result.getSplitNanos() / 1_000_000, result.getParseNanos() / 1_000_000,
+                    result.getMergeNanos() / 1_000_000, storeNanos / 1_000_000, result.getChunks(), parallelism,
+                    result.getBytes() >> 20, parserMode);
+            if (snapshotEnabled) {
+                writeSnapshot(path, result);
+            }
+            return true;
 
         } catch (IOException e) {
             logger.error("Failed to read data: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 快照文件存在且源文件中它覆盖的部分没有变化时，直接从快照恢复语料，不再解析 JSON
+     */
+    private boolean reloadFromSnapshot(Path source) {
+        Path snapshotFile = snapshotPath();
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            ThreadSnapshotFile file = ThreadSnapshotFile.open(snapshotFile);
+            long size = Files.size(source);
+            // 监视模式下允许源文件在快照之后又追加了内容，追加部分由下一次轮询读取
+            boolean lengthMatches = watchEnabled ? size >= file.sourceLength() : size == file.sourceLength();
+            if (!lengthMatches || ThreadSnapshotFile.checksum(source, file.sourceLength()) != file.sourceChecksum()) {
+                logger.info("Snapshot {} does not match {}, parsing the data file", snapshotFile, dataFilePath);
+                return false;
+            }
+            long checksumNanos = System.nanoTime() - start;
+
+            List<StackOverflowThread> threads = file.readThreads();
+            loadedThreads.add(threads.size());
+            long decodeNanos = System.nanoTime() - start - checksumNanos;
+            ThreadStore store = ThreadStore.of(threads);
+            long storeNanos = System.nanoTime() - start - checksumNanos - decodeNanos;
+            CorpusSnapshot published = publishLoaded(source, store, file.sourceLength());
+
+            logger.info("Data loading finished! success: {}, failed: {}, total: {}",
+                    threads.size(), file.failCount(), published.size());
+            logger.info("Loaded from snapshot {}: checksum {} ms, decode {} ms, store {} ms",
+                    snapshotFile, checksumNanos / 1_000_000, decodeNanos / 1_000_000, storeNanos / 1_000_000);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to read snapshot {}, parsing the data file: {}", snapshotFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeSnapshot(Path source, ParallelJsonlLoader.Result result) {
+        Path snapshotFile = snapshotPath();
+        try {
+            long start = System.nanoTime();
+            long checksum = ThreadSnapshotFile.checksum(source, result.getEndOffset());
+            ThreadSnapshotFile.write(snapshotFile, result.getEndOffset(), checksum, result.getFailCount(),
+                    result.getThreads());
+            logger.info("Wrote snapshot {} ({} MB) in {} ms", snapshotFile, Files.size(snapshotFile) >> 20,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.warn("Failed to write snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 发布完整加载得到的语料，并重置增量加载状态
+     */
+    private CorpusSnapshot publishLoaded(Path source, ThreadStore store, long endOffset) throws IOException {
+        long indexStart = System.nanoTime();
+        // 分析服务按系统时区的本地日期分桶
+        CorpusSnapshot built = CorpusSnapshot.build(snapshot.version() + 1, store, topicKeywordsConfig,
+                ZoneId.systemDefault());
+        logger.info("Built indexes over {} tags and {} monthly partitions in {} ms", store.tagDictionarySize(),
+                built.dateIndex().partitionCount(), (System.nanoTime() - indexStart) / 1_000_000);
+        CorpusSnapshot published = publish(built);
+
+        knownQuestionIds.clear();
+        for (StackOverflowThread thread : store.threads()) {
+            Long questionId = questionId(thread);
+            if (questionId != null) {
+                knownQuestionIds.add(questionId);
+            }
+        }
+        consumedOffset = endOffset;
+        fingerprint = fingerprint(source, consumedOffset);
+        // 完整重新加载后 drop 目录中的文件需要重新导入
+        processedDropFiles.clear();
+        return published;
+    }
+
+    private Path snapshotPath() {
+        return Path.of(snapshotFilePath == null || snapshotFilePath.isBlank()
+                ? dataFilePath + ".snapshot" : snapshotFilePath);
+    }
+
+    /**
+     * 检查数据文件新追加的内容和 drop 目录中的新文件，只解析新增部分并追加到当前快照。
+     * 如果数据文件被截断或整体重写，则退回到完整的 {@link #reload()}。
+     *
+     * @return 新加入语料的线程数
+     */
+    public synchronized int pollForUpdates() throws IOException {
+        int added = 0;
+        Path path = Path.of(dataFilePath);
+        if (Files.exists(path)) {
+            long size = Files.size(path);
+            if (size < consumedOffset || fingerprint(path, consumedOffset) != fingerprint) {
+                logger.info("{} was truncated or rewritten, reloading from scratch", dataFilePath);
+                int before = snapshot.size();
+                reload();
+                return snapshot.size() - before;
+            }
+            if (size > consumedOffset) {
+                ParallelJsonlLoader.Result result = newLoader().load(path, consumedOffset, true);
+                if (result.getEndOffset() > consumedOffset) {
+                    consumedOffset = result.getEndOffset();
+                    fingerprint = fingerprint(path, consumedOffset);
+                    added += append(result, dataFilePath);
+                }
+            }
+        }
+        added += pollDropDirectory();
+        return added;
+    }
+
+    private void pollSafely() {
+        try {
+            pollForUpdates();
+        } catch (Exception e) {
+            logger.error("Failed to pick up new data: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * drop 目录中的 *.jsonl 文件在两次检查之间大小不变才认为已写完，每个文件只导入一次
+     */
+    private int pollDropDirectory() throws IOException {
+        if (dropDir == null || dropDir.isBlank() || !Files.isDirectory(Path.of(dropDir))) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(Path.of(dropDir))) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".jsonl"))
+                    .sorted()
+                    .toList();
+        }
+        int added = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (processedDropFiles.contains(name)) {
+                continue;
+            }
+            long size = Files.size(file);
+            Long previousSize = dropFileSizes.put(name, size);
+            if (previousSize == null || previousSize != size) {
+                continue;
+            }
+            added += append(newLoader().load(file), file.toString());
+            processedDropFiles.add(name);
+            dropFileSizes.remove(name);
+        }
+        return added;
+    }
+
+    /**
+     * 按 questionId 去重后把新线程追加到当前快照并发布
+     */
+    private int append(ParallelJsonlLoader.Result result, String source) {
+        countLoaded(result);
+        List<StackOverflowThread> fresh = new ArrayList<>(result.getThreads().size());
+        for (StackOverflowThread thread : result.getThreads()) {
+            Long questionId = questionId(thread);
+            if (questionId == null || knownQuestionIds.add(questionId)) {
+                fresh.add(thread);
+            }
+        }
+        logger.info("Read {} new lines from {}: success: {}, failed: {}, duplicates: {}",
+                result.getSuccessCount() + result.getFailCount(), source, result.getSuccessCount(),
+                result.getFailCount(), result.getThreads().size() - fresh.size());
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        publish(snapshot.append(snapshot.version() + 1, fresh));
+        return fresh.size();
+    }
+
+    private CorpusSnapshot publish(CorpusSnapshot next) {
+        snapshot = next;
+        logger.info("Published corpus version {} ({} threads)", next.version(), next.size());
+        return next;
+    }
+
+    private void countLoaded(ParallelJsonlLoader.Result result) {
+        loadedThreads.add(result.getSuccessCount());
+        failedLines.add(result.getFailCount());
+        parsedBytes.add(result.getBytes());
+    }
+
+    /**
+     * 加载吞吐和解析失败的计数器、完整加载的耗时，以及当前快照的规模。
+     * 堆内存由 Actuator 自带的 jvm.memory.* 指标给出
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("corpus.load.threads", loadedThreads, LongAdder::sum)
+                .description("Threads read by full loads and appends")
+                .register(registry);
+        FunctionCounter.builder("corpus.load.parse.failures", failedLines, LongAdder::sum)
+                .description("JSONL lines that failed to parse")
+                .register(registry);
+        FunctionCounter.builder("corpus.load.bytes", parsedBytes, LongAdder::sum)
+                .description("JSONL bytes parsed")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionTimer.builder("corpus.load", this, service -> service.fullLoads.sum(),
+                        service -> service.fullLoadNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Full reloads of the data file, including index building")
+                .register(registry);
+        Gauge.builder("corpus.threads", this, service -> service.snapshot.size())
+                .description("Threads in the published corpus snapshot")
+                .register(registry);
+        Gauge.builder("corpus.tags", this, service -> service.snapshot.store().tagDictionarySize())
+                .description("Distinct tags in the published corpus snapshot")
+                .register(registry);
+        Gauge.builder("corpus.version", this, service -> service.snapshot.version())
+                .description("Version of the published corpus snapshot")
+                .register(registry);
+    }
+
+    private static Long questionId(StackOverflowThread thread) {
+        return thread.getQuestion() == null ? null : thread.getQuestion().getQuestionId();
+    }
+
+    /**
+     * 已读取部分 [0, length) 的首尾各一段的校验和
+     */
+    private static long fingerprint(Path path, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes((int) Math.min(length, FINGERPRINT_BYTES));
+            crc.update(head);
+            long tailStart = Math.max(head.length, length - FINGERPRINT_TAIL_BYTES);
+            in.skipNBytes(tailStart - head.length);
+            crc.update(in.readNBytes((int) (length - tailStart)));
+        }
+        return crc.getValue();
+    }
+
+    private int parallelism() {
+        return loadParallelism > 0 ? loadParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    private ParallelJsonlLoader newLoader() {
+        return new ParallelJsonlLoader(parallelism(), lineParserFactory());
+    }
+
+    private Supplier<ParallelJsonlLoader.LineParser> lineParserFactory() {
+        if ("streaming".equalsIgnoreCase(parserMode)) {
+            Map<String, String> tagPool = new ConcurrentHashMap<>();
+            return () -> new StreamingThreadParser(objectMapper.getFactory(), tagPool);
+        }
+        if (!"databind".equalsIgnoreCase(parserMode)) {
+            logger.warn("Unknown data.file.parser '{}', falling back to databind", parserMode);
+        }
+        return () -> {
+            // 每个工作线程一个 ObjectReader
+            ObjectReader reader = objectMapper.readerFor(StackOverflowThread.class);
+            return (buffer, offset, length) -> reader.readValue(buffer, offset, length);
+        };
+    }
+
+    /**
+     * 当前版本的语料快照。一次请求内应只获取一次，保证读到的数据属于同一版本。
+     */
+    public CorpusSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 当前版本的全部线程，返回不可修改的视图，不做复制
+     */
     public List<StackOverflowThread> getAllThreads() {
-        return new ArrayList<>(threads);
+        return snapshot.threads();
+    }
+
+    public ThreadStore getThreadStore() {
+        return snapshot.store();
     }
 }
@@ -1,98 +1,137 @@
 package cs209a.finalproject_demo.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.concurrent.AnalysisExecutor;
+import cs209a.finalproject_demo.concurrent.AnalysisTimeoutException;
 import cs209a.finalproject_demo.config.PatternMatchingConfig;
 import cs209a.finalproject_demo.config.TopicKeywordsConfig;
-import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.matcher.PitfallMatcher;
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
 import cs209a.finalproject_demo.model.Question;
 import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadFeatures;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.util.TopK;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.LongAdder;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class MultithreadingService {
     private static final Logger logger = LoggerFactory.getLogger(MultithreadingService.class);
-    private final PatternMatchingConfig patternMatchingConfig;
+    // 并发匹配时每个子任务处理的线程数
+    static final int MATCH_CHUNK_SIZE = 1024;
     private final DataLoaderService dataLoaderService;
-    private final TopicKeywordsConfig topicKeywordsConfig;
-    private final List<String> keywords;
+    // multithreading 主题在关键词匹配结果中的掩码
+    private final long topicBit;
+    private final PitfallMatcher pitfallMatcher;
+    private final AnalysisMetrics analysisMetrics;
+    private final AnalysisExecutor analysisExecutor;
 
     public MultithreadingService(DataLoaderService dataLoaderService,
-                                 TopicKeywordsConfig topicKeywordsConfig, PatternMatchingConfig patternMatchingConfig) {
+                                 TopicKeywordsConfig topicKeywordsConfig, PatternMatchingConfig patternMatchingConfig,
+                                 AnalysisMetrics analysisMetrics, AnalysisExecutor analysisExecutor) {
         this.dataLoaderService = dataLoaderService;
-        this.topicKeywordsConfig = topicKeywordsConfig;
-        this.keywords = topicKeywordsConfig.getKeywordsForTopic("multithreading");
-        this.patternMatchingConfig = patternMatchingConfig;
+        this.analysisMetrics = analysisMetrics;
+        this.analysisExecutor = analysisExecutor;
+        TopicKeywordMatcher keywordMatcher = topicKeywordsConfig.getKeywordMatcher();
+        this.topicBit = TopicKeywordMatcher.bit(keywordMatcher.topicIndex("multithreading"));
+        this.pitfallMatcher = new PitfallMatcher(patternMatchingConfig.concurrencyPatterns());
     }
 
     public Map<String, Object> getRecurrenceProblems (int n) {
         logger.info("Analyzing top {} recurring problems in multithreading", n);
-        List<StackOverflowThread> allThreads = dataLoaderService.getAllThreads();
-
-        List<StackOverflowThread> filteredThreads = allThreads.parallelStream()
-                .filter(t -> {
-                    if (t.getQuestion() != null && questionContainsKeywords(t.getQuestion())) return true;
-                    if (t.getAnswers() != null && answersContainsKeywords(t.getAnswers())) return true;
+        AnalysisMetrics.Phases phases = analysisMetrics.start("recurrence");
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        ThreadStore store = snapshot.store();
+        ThreadFeatures features = snapshot.features();
+
+        // 标签命中关键词的线程直接从倒排索引取出，其余线程检查加载时对标题、正文和第一个回答算好的主题掩码
+        RoaringBitmap tagMatches = snapshot.index().tagsWithTopics(topicBit);
+
+        List<StackOverflowThread> filteredThreads = IntStream.range(0, store.size()).parallel()
+                .filter(id -> {
+                    if (tagMatches.contains(id)) return true;
+                    if ((features.questionTopics(id) & topicBit) != 0) return true;
+                    // 只检查第一个回答的正文
+                    if ((features.firstAnswerTopics(id) & topicBit) != 0) return true;
                     return false;
                 })
+                .mapToObj(store::thread)
                 .collect(Collectors.toList());
 
+        phases.end("filter");
         logger.info("Filtered {} threads with multithreading keywords", filteredThreads.size());
 
-        List<PatternMatchingConfig.PitfallPattern> pitfallPatterns = patternMatchingConfig.concurrencyPatterns();
+        List<PatternMatchingConfig.PitfallPattern> pitfallPatterns = pitfallMatcher.patterns();
 
-        Map<String, LongAdder> patternCounts = new ConcurrentHashMap<>();
-        Map<String, String> patternCategories = new HashMap<>();
-        
-        for (PatternMatchingConfig.PitfallPattern pattern : pitfallPatterns) {
-            patternCounts.put(pattern.normalizedName, new LongAdder());
-            patternCategories.put(pattern.normalizedName, pattern.category);
+        // 同名的模式共用一个计数，计数下标按名称第一次出现的顺序
+        Map<String, Integer> slotsByName = new LinkedHashMap<>();
+        int[] patternSlots = new int[pitfallPatterns.size()];
+        for (int p = 0; p < pitfallPatterns.size(); p++) {
+            Integer slot = slotsByName.putIfAbsent(pitfallPatterns.get(p).normalizedName, slotsByName.size());
+            patternSlots[p] = slot == null ? slotsByName.size() - 1 : slot;
+        }
+        List<String> patternNames = new ArrayList<>(slotsByName.keySet());
+        String[] patternCategories = new String[patternNames.size()];
+        for (int p = 0; p < pitfallPatterns.size(); p++) {
+            patternCategories[patternSlots[p]] = pitfallPatterns.get(p).category;
         }
 
-        filteredThreads.parallelStream().forEach(thread -> {
-
-            List<String> texts = extractAllTexts(thread);
-
-            Set<String> matchedInThisThread = new HashSet<>();
-
-            for (String text : texts) {
-                if (text == null || text.isEmpty()) continue;
-
-                for (PatternMatchingConfig.PitfallPattern pattern : pitfallPatterns) {
-                    if (pattern.compiledPattern.matcher(text).find()) {
-                        matchedInThisThread.add(pattern.normalizedName);
+        long[] patternCounts;
+        if (analysisExecutor.isEnabled()) {
+            // 按块并发匹配，请求超时或客户端断开时各块在处理下一个线程前退出
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (int from = 0; from < filteredThreads.size(); from += MATCH_CHUNK_SIZE) {
+                List<StackOverflowThread> chunk = filteredThreads.subList(from,
+                        Math.min(from + MATCH_CHUNK_SIZE, filteredThreads.size()));
+                tasks.add(() -> {
+                    long[] partial = new long[patternNames.size()];
+                    for (StackOverflowThread thread : chunk) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new AnalysisTimeoutException("recurrence match was interrupted");
+                        }
+                        countPatterns(thread, patternSlots, partial);
                     }
-                }
+                    return partial;
+                });
+            }
+            patternCounts = new long[patternNames.size()];
+            for (long[] partial : analysisExecutor.invokeAll("recurrence", tasks)) {
+                mergeCounts(patternCounts, partial);
             }
+        } else {
+            // 每个并行分片累加自己的计数数组，最后合并
+            patternCounts = filteredThreads.parallelStream().collect(() -> new long[patternNames.size()],
+                    (partial, thread) -> countPatterns(thread, patternSlots, partial),
+                    MultithreadingService::mergeCounts);
+        }
+        phases.end("match");
 
-            for (String patternName : matchedInThisThread) {
-                patternCounts.get(patternName).increment();
+        // 次数相同时按模式在配置中的顺序
+        TopK topK = new TopK(n);
+        for (int slot = 0; slot < patternCounts.length; slot++) {
+            if (patternCounts[slot] > 0) {
+                topK.offer(patternCounts[slot], slot);
             }
+        }
+        List<Map<String, Object>> topProblems = new ArrayList<>(topK.size());
+        topK.forEachRanked((count, slot) -> {
+            Map<String, Object> problem = new HashMap<>();
+            problem.put("patternName", patternNames.get((int) slot));
+            problem.put("category", patternCategories[(int) slot]);
+            problem.put("count", count);
+
+            topProblems.add(problem);
         });
-        
-        List<Map<String, Object>> topProblems = patternCounts.entrySet().stream()
-                .filter(entry -> entry.getValue().sum() > 0)
-                .sorted((e1, e2) -> Long.compare(e2.getValue().sum(), e1.getValue().sum()))
-                .limit(n)
-                .map(entry -> {
-                    Map<String, Object> problem = new HashMap<>();
-                    problem.put("patternName", entry.getKey());
-                    problem.put("category", patternCategories.get(entry.getKey()));
-                    problem.put("count", entry.getValue());
-
-                    return problem;
-                })
-                .collect(Collectors.toList());
+        phases.end("sort");
         
         Map<String, Object> result = new HashMap<>();
         result.put("totalThreads", filteredThreads.size());
@@ -103,6 +142,34 @@ public class MultithreadingService {
         return result;
     }
 
+    /** 统计一个线程命中的模式，同名的模式在一个线程中只计一次 */
+    private void countPatterns(StackOverflowThread thread, int[] patternSlots, long[] partial) {
+        List<String> texts = extractAllTexts(thread);
+
+        // 所有模式在每段文本上只扫描一遍
+        BitSet matchedInThisThread = new BitSet(patternSlots.length);
+
+        for (String text : texts) {
+            if (text == null || text.isEmpty()) continue;
+
+            pitfallMatcher.matchInto(text, matchedInThisThread);
+        }
+
+        BitSet matchedSlots = new BitSet(partial.length);
+        for (int p = matchedInThisThread.nextSetBit(0); p >= 0; p = matchedInThisThread.nextSetBit(p + 1)) {
+            matchedSlots.set(patternSlots[p]);
+        }
+        for (int slot = matchedSlots.nextSetBit(0); slot >= 0; slot = matchedSlots.nextSetBit(slot + 1)) {
+            partial[slot]++;
+        }
+    }
+
+    private static void mergeCounts(long[] left, long[] right) {
+        for (int slot = 0; slot < left.length; slot++) {
+            left[slot] += right[slot];
+        }
+    }
+
     private List<String> extractAllTexts(StackOverflowThread thread) {
         List<String> texts = new ArrayList<>();
         
@@ -131,47 +198,4 @@ public class MultithreadingService {
         
         return texts;
     }
-
-    private void saveThreadsToJson(List<StackOverflowThread> filteredThreads) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        try {
-            objectMapper.writerWithDefaultPrettyPrinter()
-                    .writeValue(new File("data/filtered_threads.json"), filteredThreads);
-            logger.info("Filtered threads have been saved to data/filtered_threads.json");
-        } catch (IOException e) {
-            logger.error("Error saving filtered threads to JSON file", e);
-        }
-    }
-
-    private boolean answersContainsKeywords(List<Answer> answers) {
-        for (Answer answer : answers) {
-            return keywords.stream().anyMatch(keyword -> {
-                if (answer.getBody() != null && answer.getBody().toLowerCase().contains(keyword)) {
-                    logger.info(keyword);
-                    return true;
-                }
-                return false;
-            });
-        }
-        return false;
-    }
-
-    private boolean questionContainsKeywords(Question question) {
-        return keywords.stream().anyMatch(keyword -> {
-            if (question.getTags() != null && question.getTags().stream().anyMatch(tag -> tag.toLowerCase().contains(keyword.toLowerCase()))) {
-                logger.info(keyword);
-                return true;
-            }
-            if (question.getTitle() != null && question.getTitle().toLowerCase().contains(keyword.toLowerCase())) {
-                logger.info(keyword);
-                return true;
-            }
-            if (question.getBody() != null && question.getBody().toLowerCase().contains(keyword.toLowerCase())) {
-                logger.info(keyword);
-                return true;
-            }
-            return false;
-        });
-    }
-
 }
@@ -1,40 +1,43 @@
 package cs209a.finalproject_demo.service;
 
-import cs209a.finalproject_demo.model.Answer;
-import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadFeatures;
+import cs209a.finalproject_demo.store.ThreadStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class SolvableAnalysisService {
     private static final Logger logger = LoggerFactory.getLogger(SolvableAnalysisService.class);
     private final DataLoaderService dataLoaderService;
+    private final AnalysisMetrics analysisMetrics;
 
-    public SolvableAnalysisService(DataLoaderService dataLoaderService) {
+    public SolvableAnalysisService(DataLoaderService dataLoaderService, AnalysisMetrics analysisMetrics) {
         this.dataLoaderService = dataLoaderService;
+        this.analysisMetrics = analysisMetrics;
     }
 
     public Map<String, Object> getAnalysis() {
         logger.info("Analyzing Solvable vs. Hard-to-Solve Questions");
-        List<StackOverflowThread> allThreads = dataLoaderService.getAllThreads();
+        AnalysisMetrics.Phases phases = analysisMetrics.start("solvable");
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        ThreadStore store = snapshot.store();
+        ThreadFeatures features = snapshot.features();
 
-        List<StackOverflowThread> solvable = allThreads.parallelStream()
-                .filter(StackOverflowThread::isSolvable)
-                .collect(Collectors.toList());
+        // 一次并行扫描同时累加两类问题的全部统计量，各分片的累加器在 fork-join 中逐级合并
+        Accumulator accumulator = IntStream.range(0, store.size()).parallel()
+                .collect(Accumulator::new, (acc, id) -> acc.add(store, features, id), Accumulator::merge);
+        SideStats solvable = accumulator.solvable;
+        SideStats notSolvable = accumulator.notSolvable;
+        phases.end("aggregate");
 
-        logger.info("filtered {} solvable threads", solvable.size());
-
-        List<StackOverflowThread> notSolvable = allThreads.parallelStream()
-                .filter(StackOverflowThread::notSolvable)
-                .collect(Collectors.toList());
-
-        logger.info("filtered {} not-solvable threads", notSolvable.size());
+        logger.info("filtered {} solvable threads", solvable.threads);
+        logger.info("filtered {} not-solvable threads", notSolvable.threads);
 
         Map<String, Object> result = new HashMap<>();
         
@@ -62,30 +65,16 @@ public class SolvableAnalysisService {
         result.put("titleLengthAnalysis", getTitleLengthAnalysis(solvable, notSolvable));
         
         // 9. 基本统计信息
-        result.put("basicStats", getBasicStats(solvable, notSolvable));
+        result.put("basicStats", getBasicStats(solvable.threads, notSolvable.threads));
+        phases.end("assemble");
 
         return result;
     }
 
-    private Map<String, Object> getReputationAnalysis(List<StackOverflowThread> solvable,
-                                                      List<StackOverflowThread> notSolvable) {
-        double solvableAvgReputation = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null
-                        && t.getQuestion().getOwner() != null
-                        && t.getQuestion().getOwner().getReputation() != null
-                )
-                .mapToInt(t -> t.getQuestion().getOwner().getReputation())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgReputation = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null
-                        && t.getQuestion().getOwner() != null
-                        && t.getQuestion().getOwner().getReputation() != null
-                )
-                .mapToInt(t -> t.getQuestion().getOwner().getReputation())
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getReputationAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgReputation = solvable.reputation.average();
+
+        double notSolvableAvgReputation = notSolvable.reputation.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvg", Math.round(solvableAvgReputation * 100.0) / 100.0);
@@ -95,32 +84,15 @@ public class SolvableAnalysisService {
         return map;
     }
 
-    private Map<String, Object> getQuestionLengthAnalysis(List<StackOverflowThread> solvable,
-                                                          List<StackOverflowThread> notSolvable) {
-        double solvableAvgLength = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> t.getQuestion().getBody().length())
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getQuestionLengthAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgLength = solvable.bodyCharacters.average();
 
-        double solvableAvgWords = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> countWords(t.getQuestion().getBody()))
-                .average()
-                .orElse(0.0);
+        double solvableAvgWords = solvable.bodyWords.average();
 
         // 不可解决问题的平均长度
-        double notSolvableAvgLength = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> t.getQuestion().getBody().length())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgWords = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> countWords(t.getQuestion().getBody()))
-                .average()
-                .orElse(0.0);
+        double notSolvableAvgLength = notSolvable.bodyCharacters.average();
+
+        double notSolvableAvgWords = notSolvable.bodyWords.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgCharacters", Math.round(solvableAvgLength * 100.0) / 100.0);
@@ -135,46 +107,18 @@ public class SolvableAnalysisService {
     /**
      * 分析代码片段的存在和数量
      */
-    private Map<String, Object> getCodeSnippetAnalysis(List<StackOverflowThread> solvable,
-                                                       List<StackOverflowThread> notSolvable) {
-        // 检测代码块的正则表达式（<code>、<pre>、```等）
-        Pattern codePattern = Pattern.compile("<code>|<pre>|```", Pattern.CASE_INSENSITIVE);
-
+    private Map<String, Object> getCodeSnippetAnalysis(SideStats solvable, SideStats notSolvable) {
         // 可解决问题中包含代码的比例
-        long solvableWithCode = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .filter(t -> {
-                    Matcher m = codePattern.matcher(t.getQuestion().getBody());
-                    return m.find();
-                })
-                .count();
-
-        double solvableCodeRatio = solvable.isEmpty() ? 0.0 : 
-                (double) solvableWithCode / solvable.size() * 100;
-
-        double solvableAvgCodeBlocks = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> countCodeBlocks(t.getQuestion().getBody()))
-                .average()
-                .orElse(0.0);
+        double solvableCodeRatio = solvable.threads == 0 ? 0.0 :
+                (double) solvable.withCode / solvable.threads * 100;
+
+        double solvableAvgCodeBlocks = solvable.codeBlocks.average();
 
         // 不可解决问题中包含代码的比例
-        long notSolvableWithCode = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .filter(t -> {
-                    Matcher m = codePattern.matcher(t.getQuestion().getBody());
-                    return m.find();
-                })
-                .count();
-
-        double notSolvableCodeRatio = notSolvable.isEmpty() ? 0.0 : 
-                (double) notSolvableWithCode / notSolvable.size() * 100;
-
-        double notSolvableAvgCodeBlocks = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getBody() != null)
-                .mapToInt(t -> countCodeBlocks(t.getQuestion().getBody()))
-                .average()
-                .orElse(0.0);
+        double notSolvableCodeRatio = notSolvable.threads == 0 ? 0.0 :
+                (double) notSolvable.withCode / notSolvable.threads * 100;
+
+        double notSolvableAvgCodeBlocks = notSolvable.codeBlocks.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableWithCodePercentage", Math.round(solvableCodeRatio * 100.0) / 100.0);
@@ -189,19 +133,10 @@ public class SolvableAnalysisService {
     /**
      * 分析标签数量
      */
-    private Map<String, Object> getTagCountAnalysis(List<StackOverflowThread> solvable,
-                                                    List<StackOverflowThread> notSolvable) {
-        double solvableAvgTags = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTags() != null)
-                .mapToInt(t -> t.getQuestion().getTags().size())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgTags = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTags() != null)
-                .mapToInt(t -> t.getQuestion().getTags().size())
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getTagCountAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgTags = solvable.tags.average();
+
+        double notSolvableAvgTags = notSolvable.tags.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgTags", Math.round(solvableAvgTags * 100.0) / 100.0);
@@ -214,47 +149,16 @@ public class SolvableAnalysisService {
     /**
      * 分析响应时间（从问题创建到第一个回答的时间）
      */
-    private Map<String, Object> getResponseTimeAnalysis(List<StackOverflowThread> solvable,
-                                                        List<StackOverflowThread> notSolvable) {
+    private Map<String, Object> getResponseTimeAnalysis(SideStats solvable, SideStats notSolvable) {
         // 可解决问题的平均响应时间（秒转小时）
-        double solvableAvgResponseTime = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getAnswers() != null && !t.getAnswers().isEmpty())
-                .filter(t -> t.getQuestion().getCreationDate() != null)
-                .mapToLong(t -> {
-                    long questionTime = t.getQuestion().getCreationDate();
-                    long firstAnswerTime = t.getAnswers().stream()
-                            .filter(a -> a.getCreationDate() != null)
-                            .mapToLong(Answer::getCreationDate)
-                            .min()
-                            .orElse(questionTime);
-                    return firstAnswerTime - questionTime;
-                })
-                .average()
-                .orElse(0.0) / 3600.0; // 转换为小时
+        double solvableAvgResponseTime = solvable.responseSeconds.average() / 3600.0; // 转换为小时
 
         // 不可解决问题有回答的平均响应时间
-        double notSolvableAvgResponseTime = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getAnswers() != null && !t.getAnswers().isEmpty())
-                .filter(t -> t.getQuestion().getCreationDate() != null)
-                .mapToLong(t -> {
-                    long questionTime = t.getQuestion().getCreationDate();
-                    long firstAnswerTime = t.getAnswers().stream()
-                            .filter(a -> a.getCreationDate() != null)
-                            .mapToLong(Answer::getCreationDate)
-                            .min()
-                            .orElse(questionTime);
-                    return firstAnswerTime - questionTime;
-                })
-                .average()
-                .orElse(0.0) / 3600.0;
+        double notSolvableAvgResponseTime = notSolvable.responseSeconds.average() / 3600.0;
 
         // 计算无回答的问题比例
-        long notSolvableWithoutAnswers = notSolvable.stream()
-                .filter(t -> t.getAnswers() == null || t.getAnswers().isEmpty())
-                .count();
-        
-        double noAnswerPercentage = notSolvable.isEmpty() ? 0.0 : 
-                (double) notSolvableWithoutAnswers / notSolvable.size() * 100;
+        double noAnswerPercentage = notSolvable.threads == 0 ? 0.0 :
+                (double) notSolvable.withoutAnswers / notSolvable.threads * 100;
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgResponseHours", Math.round(solvableAvgResponseTime * 100.0) / 100.0);
@@ -268,19 +172,10 @@ public class SolvableAnalysisService {
     /**
      * 分析问题得分
      */
-    private Map<String, Object> getQuestionScoreAnalysis(List<StackOverflowThread> solvable,
-                                                         List<StackOverflowThread> notSolvable) {
-        double solvableAvgScore = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getScore() != null)
-                .mapToInt(t -> t.getQuestion().getScore())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgScore = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getScore() != null)
-                .mapToInt(t -> t.getQuestion().getScore())
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getQuestionScoreAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgScore = solvable.score.average();
+
+        double notSolvableAvgScore = notSolvable.score.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgScore", Math.round(solvableAvgScore * 100.0) / 100.0);
@@ -293,19 +188,10 @@ public class SolvableAnalysisService {
     /**
      * 分析浏览量
      */
-    private Map<String, Object> getViewCountAnalysis(List<StackOverflowThread> solvable,
-                                                     List<StackOverflowThread> notSolvable) {
-        double solvableAvgViews = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getViewCount() != null)
-                .mapToInt(t -> t.getQuestion().getViewCount())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgViews = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getViewCount() != null)
-                .mapToInt(t -> t.getQuestion().getViewCount())
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getViewCountAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgViews = solvable.views.average();
+
+        double notSolvableAvgViews = notSolvable.views.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgViews", Math.round(solvableAvgViews * 100.0) / 100.0);
@@ -318,31 +204,14 @@ public class SolvableAnalysisService {
     /**
      * 分析标题长度
      */
-    private Map<String, Object> getTitleLengthAnalysis(List<StackOverflowThread> solvable,
-                                                       List<StackOverflowThread> notSolvable) {
-        double solvableAvgTitleLength = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTitle() != null)
-                .mapToInt(t -> t.getQuestion().getTitle().length())
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgTitleLength = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTitle() != null)
-                .mapToInt(t -> t.getQuestion().getTitle().length())
-                .average()
-                .orElse(0.0);
-
-        double solvableAvgTitleWords = solvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTitle() != null)
-                .mapToInt(t -> countWords(t.getQuestion().getTitle()))
-                .average()
-                .orElse(0.0);
-
-        double notSolvableAvgTitleWords = notSolvable.parallelStream()
-                .filter(t -> t.getQuestion() != null && t.getQuestion().getTitle() != null)
-                .mapToInt(t -> countWords(t.getQuestion().getTitle()))
-                .average()
-                .orElse(0.0);
+    private Map<String, Object> getTitleLengthAnalysis(SideStats solvable, SideStats notSolvable) {
+        double solvableAvgTitleLength = solvable.titleCharacters.average();
+
+        double notSolvableAvgTitleLength = notSolvable.titleCharacters.average();
+
+        double solvableAvgTitleWords = solvable.titleWords.average();
+
+        double notSolvableAvgTitleWords = notSolvable.titleWords.average();
 
         Map<String, Object> map = new HashMap<>();
         map.put("solvableAvgCharacters", Math.round(solvableAvgTitleLength * 100.0) / 100.0);
@@ -357,47 +226,124 @@ public class SolvableAnalysisService {
     /**
      * 基本统计信息
      */
-    private Map<String, Object> getBasicStats(List<StackOverflowThread> solvable,
-                                              List<StackOverflowThread> notSolvable) {
+    private Map<String, Object> getBasicStats(long solvable, long notSolvable) {
         Map<String, Object> map = new HashMap<>();
-        map.put("totalSolvable", solvable.size());
-        map.put("totalNotSolvable", notSolvable.size());
-        map.put("totalQuestions", solvable.size() + notSolvable.size());
-        map.put("solvablePercentage", Math.round((double) solvable.size() / 
-                (solvable.size() + notSolvable.size()) * 10000.0) / 100.0);
-        map.put("notSolvablePercentage", Math.round((double) notSolvable.size() / 
-                (solvable.size() + notSolvable.size()) * 10000.0) / 100.0);
+        map.put("totalSolvable", (int) solvable);
+        map.put("totalNotSolvable", (int) notSolvable);
+        map.put("totalQuestions", (int) (solvable + notSolvable));
+        map.put("solvablePercentage", Math.round((double) solvable /
+                (solvable + notSolvable) * 10000.0) / 100.0);
+        map.put("notSolvablePercentage", Math.round((double) notSolvable /
+                (solvable + notSolvable) * 10000.0) / 100.0);
 
         return map;
     }
 
     /**
-     * 统计单词数（简单按空格分割）
+     * 并行扫描的累加器：按问题是否被采纳分别计入两侧
      */
-    private int countWords(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return 0;
+    private static final class Accumulator {
+        final SideStats solvable = new SideStats();
+        final SideStats notSolvable = new SideStats();
+
+        void add(ThreadStore store, ThreadFeatures features, int id) {
+            (store.isAccepted(id) ? solvable : notSolvable).add(store, features, id);
+        }
+
+        void merge(Accumulator other) {
+            solvable.merge(other.solvable);
+            notSolvable.merge(other.notSolvable);
         }
-        // 移除HTML标签后统计
-        String cleanText = text.replaceAll("<[^>]+>", " ");
-        return cleanText.trim().split("\\s+").length;
     }
 
     /**
-     * 统计代码块数量
+     * 一类问题的全部统计量。每个平均值只对存在该字段的线程求和计数，
+     * 与 IntStream / LongStream.average() 一样用 long 精确求和，合并顺序不影响结果
      */
-    private int countCodeBlocks(String text) {
-        if (text == null) {
-            return 0;
+    private static final class SideStats {
+        long threads;
+        long withCode;
+        long withoutAnswers;
+        final Mean reputation = new Mean();
+        final Mean bodyCharacters = new Mean();
+        final Mean bodyWords = new Mean();
+        final Mean codeBlocks = new Mean();
+        final Mean tags = new Mean();
+        final Mean responseSeconds = new Mean();
+        final Mean score = new Mean();
+        final Mean views = new Mean();
+        final Mean titleCharacters = new Mean();
+        final Mean titleWords = new Mean();
+
+        void add(ThreadStore store, ThreadFeatures features, int id) {
+            threads++;
+            if (store.hasReputation(id)) {
+                reputation.add(store.reputation(id));
+            }
+            if (store.hasTags(id)) {
+                tags.add(store.listedTagCount(id));
+            }
+            if (store.hasScore(id)) {
+                score.add(store.score(id));
+            }
+            if (store.hasViewCount(id)) {
+                views.add(store.viewCount(id));
+            }
+
+            // 文本相关的量在加载时已提取为 ThreadFeatures
+            if (features.hasBody(id)) {
+                bodyCharacters.add(features.bodyCharacters(id));
+                bodyWords.add(features.bodyWords(id));
+                codeBlocks.add(features.codeBlocks(id));
+                if (features.hasCode(id)) {
+                    withCode++;
+                }
+            }
+            if (features.hasTitle(id)) {
+                titleCharacters.add(features.titleCharacters(id));
+                titleWords.add(features.titleWords(id));
+            }
+            if (!features.hasAnswers(id)) {
+                withoutAnswers++;
+            } else if (features.firstAnswerDelay(id) != ThreadFeatures.NO_DELAY) {
+                responseSeconds.add(features.firstAnswerDelay(id));
+            }
+        }
+
+        void merge(SideStats other) {
+            threads += other.threads;
+            withCode += other.withCode;
+            withoutAnswers += other.withoutAnswers;
+            reputation.merge(other.reputation);
+            bodyCharacters.merge(other.bodyCharacters);
+            bodyWords.merge(other.bodyWords);
+            codeBlocks.merge(other.codeBlocks);
+            tags.merge(other.tags);
+            responseSeconds.merge(other.responseSeconds);
+            score.merge(other.score);
+            views.merge(other.views);
+            titleCharacters.merge(other.titleCharacters);
+            titleWords.merge(other.titleWords);
+        }
+    }
+
+    private static final class Mean {
+        long count;
+        long sum;
+
+        void add(long value) {
+            count++;
+            sum += value;
+        }
+
+        void merge(Mean other) {
+            count += other.count;
+            sum += other.sum;
+        }
+
+        double average() {
+            return count == 0 ? 0.0 : (double) sum / count;
         }
-        int count = 0;
-        // 统计<code>标签
-        count += text.split("<code>", -1).length - 1;
-        // 统计<pre>标签
-        count += text.split("<pre>", -1).length - 1;
-        // 统计```标记（Markdown代码块）
-        count += text.split("```", -1).length - 1;
-        return count;
     }
 
 }
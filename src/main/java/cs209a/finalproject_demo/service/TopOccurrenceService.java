@@ -1,13 +1,24 @@
 package cs209a.finalproject_demo.service;
 
 import cs209a.finalproject_demo.config.TopicKeywordsConfig;
-import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.result.PairRanking;
+import cs209a.finalproject_demo.result.TagNeighbours;
+import cs209a.finalproject_demo.store.CoOccurrenceCounter;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.InvertedIndex;
+import cs209a.finalproject_demo.store.TagCoOccurrenceGraph;
+import cs209a.finalproject_demo.store.ThreadFeatures;
+import cs209a.finalproject_demo.store.ThreadStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 @Service
 public class TopOccurrenceService {
@@ -15,99 +26,129 @@ public class TopOccurrenceService {
 
     private final DataLoaderService dataLoaderService;
     private final TopicKeywordsConfig topicKeywordsConfig;
+    private final AnalysisMetrics analysisMetrics;
 
-    public TopOccurrenceService(DataLoaderService dataLoaderService, TopicKeywordsConfig topicKeywordsConfig) {
+    public TopOccurrenceService(DataLoaderService dataLoaderService, TopicKeywordsConfig topicKeywordsConfig,
+                                AnalysisMetrics analysisMetrics) {
         this.dataLoaderService = dataLoaderService;
         this.topicKeywordsConfig = topicKeywordsConfig;
+        this.analysisMetrics = analysisMetrics;
     }
 
-    public Map<String, Object> getTopOccurrence(int n) {
+    public PairRanking getTopOccurrence(int n) {
         logger.info("Analyzing top {} co-occurrence pairs", n);
-
-        List<StackOverflowThread> allThreads = dataLoaderService.getAllThreads();
-
-        Map<String, Integer> coOccurrenceMap = new HashMap<>();
-
-        for (StackOverflowThread thread : allThreads) {
-            if (thread.getQuestion() == null) {
-                continue;
-            }
-            
-            Set<String> topics = new HashSet<>();
-            
-            if (thread.getQuestion().getTags() != null) {
-                List<String> tags = thread.getQuestion().getTags().stream()
-                        .distinct()
-                        .collect(Collectors.toList());
-                
-                tags.stream()
-                        .map(topicKeywordsConfig::mapTagToTopic)
-                        .filter(Objects::nonNull)
-                        .forEach(topics::add);
-            }
-            
-            if (thread.getQuestion().getTitle() != null) {
-                String title = thread.getQuestion().getTitle().toLowerCase();
-                for (String topic : topicKeywordsConfig.getAllTopics()) {
-                    List<String> keywords = topicKeywordsConfig.getKeywordsForTopic(topic);
-                    if (keywords.stream().anyMatch(keyword -> title.contains(keyword.toLowerCase()))) {
-                        topics.add(topic);
-                    }
-                }
-            }
-            
-            List<String> topicList = new ArrayList<>(topics);
-
-            for (int i = 0; i < topicList.size(); i++) {
-                for (int j = i + 1; j < topicList.size(); j++) {
-                    String topic1 = topicList.get(i);
-                    String topic2 = topicList.get(j);
-                    
-                    String key = topic1.compareTo(topic2) < 0 ? topic1 + "," + topic2 : topic2 + "," + topic1;
-
-                    coOccurrenceMap.put(key, coOccurrenceMap.getOrDefault(key, 0) + 1);
-                }
-            }
+        AnalysisMetrics.Phases phases = analysisMetrics.start("top-occurrence");
+
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        ThreadStore store = snapshot.store();
+        InvertedIndex index = snapshot.index();
+        ThreadFeatures features = snapshot.features();
+
+        // 一个线程的主题 = 标签经 mapTagToTopic 映射到的主题 ∪ 标题中出现关键词的主题，
+        // 主题用 getAllTopics 中的下标表示，每个标签映射到的主题在标签字典上只算一次
+        List<String> allTopics = topicKeywordsConfig.getAllTopics();
+        long[] tagTopicBits = new long[store.tagDictionarySize()];
+        for (int tagId = 0; tagId < tagTopicBits.length; tagId++) {
+            tagTopicBits[tagId] = TopicKeywordMatcher.bit(allTopics.indexOf(index.tagTopic(tagId)));
         }
+        phases.end("match");
+
+        // 每个并行分片累加自己的上三角计数矩阵，最后合并
+        CoOccurrenceCounter counter = IntStream.range(0, store.size()).parallel()
+                .collect(() -> new CoOccurrenceCounter(allTopics.size()), (partial, id) -> {
+                    long topics = features.titleTopics(id);
+                    for (int k = 0, count = store.tagCount(id); k < count; k++) {
+                        topics |= tagTopicBits[store.tagId(id, k)];
+                    }
+                    partial.addMask(topics);
+                }, CoOccurrenceCounter::merge);
+        phases.end("aggregate");
 
-        List<CoOccurrencePair> topPairs = coOccurrenceMap.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(n)
-                .map(entry -> {
-                    String[] topics = entry.getKey().split(",");
-                    return new CoOccurrencePair(topics[0], topics[1], entry.getValue());
-                })
-                .collect(Collectors.toList());
+        List<PairRanking.Pair> topPairs = namedPairs(counter.top(n), allTopics::get);
+        phases.end("sort");
 
         logger.info("Found {} topic co-occurrence pairs", topPairs.size());
 
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("totalPairs", coOccurrenceMap.size());
-        result.put("topN", n);
-        result.put("coOccurrences", topPairs);
-        
-        return result;
+        return PairRanking.of(PairRanking.Kind.TOPIC, counter.nonZeroPairs(), n, topPairs);
     }
 
-    // DTO 类用于JSON序列化
-    public static class CoOccurrencePair {
-        private String topic1;
-        private String topic2;
-        private int count;
+    /**
+     * 标签两两共同出现次数最多的 N 对，直接读取加载时建立的标签共同出现图
+     */
+    public PairRanking getTopTagOccurrence(int n) {
+        logger.info("Analyzing top {} tag co-occurrence pairs", n);
 
-        public CoOccurrencePair(String topic1, String topic2, int count) {
-            this.topic1 = topic1;
-            this.topic2 = topic2;
-            this.count = count;
-        }
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        TagCoOccurrenceGraph graph = snapshot.tagGraph();
+        return PairRanking.of(PairRanking.Kind.TAG, graph.pairCount(), n,
+                namedPairs(CoOccurrenceCounter.pairs(graph.topPairs(n)), snapshot.store()::tagName));
+    }
+
+    /**
+     * 问题创建日期位于 [startDate, endDate]（含两端）的线程中，共同出现次数最多的 N 对标签
+     */
+    public PairRanking getTopTagOccurrenceBetween(String startDate, String endDate, int n) {
+        logger.info("Analyzing top {} tag co-occurrence pairs from {} to {}", n, startDate, endDate);
+
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        CoOccurrenceCounter counter = new CoOccurrenceCounter(snapshot.store().tagDictionarySize());
+        snapshot.tagGraph().forEachPairBetween(LocalDate.parse(startDate).toEpochDay(),
+                LocalDate.parse(endDate).toEpochDay(), counter::add);
+
+        return PairRanking.of(PairRanking.Kind.TAG, counter.nonZeroPairs(), n,
+                        namedPairs(counter.top(n), snapshot.store()::tagName))
+                .withDateRange(startDate, endDate);
+    }
 
-        public String getTopic1() { return topic1; }
-        public void setTopic1(String topic1) { this.topic1 = topic1; }
+    /**
+     * 给定的标签之间共同出现次数最多的 N 对，语料中不存在的标签被忽略
+     */
+    public PairRanking getTopTagOccurrenceAmong(List<String> tags, int n) {
+        logger.info("Analyzing top {} co-occurrence pairs among {} tags", n, tags.size());
 
-        public String getTopic2() { return topic2; }
-        public void setTopic2(String topic2) { this.topic2 = topic2; }
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        CoOccurrenceCounter counter = new CoOccurrenceCounter(snapshot.store().tagDictionarySize());
+        snapshot.tagGraph().forEachPairAmong(snapshot.store().tagIdSet(tags), counter::add);
 
-        public int getCount() { return count; }
-        public void setCount(int count) { this.count = count; }
+        return PairRanking.of(PairRanking.Kind.TAG, counter.nonZeroPairs(), n,
+                        namedPairs(counter.top(n), snapshot.store()::tagName))
+                .withTags(tags);
+    }
+
+    /**
+     * 与 tag 共同出现次数最多的 N 个标签，次数相同时按标签 id 排序
+     */
+    public TagNeighbours getTagNeighbours(String tag, int n) {
+        logger.info("Analyzing top {} neighbours of tag {}", n, tag);
+        if (n < 0) {
+            throw new IllegalArgumentException(Integer.toString(n));
+        }
+
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
+        ThreadStore store = snapshot.store();
+        TagCoOccurrenceGraph graph = snapshot.tagGraph();
+        int tagId = store.tagIdOf(tag);
+        int degree = graph.degree(tagId);
+
+        // 邻居已按次数降序排列，取前缀即可
+        List<TagNeighbours.Neighbour> neighbours = new ArrayList<>();
+        for (int rank = 0; rank < Math.min(n, degree); rank++) {
+            neighbours.add(new TagNeighbours.Neighbour(store.tagName(graph.neighbour(tagId, rank)),
+                    graph.neighbourWeight(tagId, rank)));
+        }
+        return new TagNeighbours(tag, degree, n, neighbours);
+    }
+
+    /** 把 id 组合换成名称，两个名称按字典序排列 */
+    private static List<PairRanking.Pair> namedPairs(List<CoOccurrenceCounter.Pair> pairs, IntFunction<String> names) {
+        List<PairRanking.Pair> named = new ArrayList<>(pairs.size());
+        for (CoOccurrenceCounter.Pair pair : pairs) {
+            String first = names.apply(pair.first());
+            String second = names.apply(pair.second());
+            named.add(first.compareTo(second) < 0
+                    ? new PairRanking.Pair(first, second, pair.count())
+                    : new PairRanking.Pair(second, first, pair.count()));
+        }
+        return named;
     }
 }
@@ -1,126 +1,114 @@
 package cs209a.finalproject_demo.service;
 
 import cs209a.finalproject_demo.config.TopicKeywordsConfig;
-import cs209a.finalproject_demo.model.Question;
-import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.result.TopicSeries;
+import cs209a.finalproject_demo.result.TopicSeriesResult;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.IsoFields;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class TopicAnalysisService {
     private static final Logger logger = LoggerFactory.getLogger(TopicAnalysisService.class);
     private final DataLoaderService dataLoaderService;
     private final TopicKeywordsConfig topicKeywordsConfig;
+    private final AnalysisMetrics analysisMetrics;
 
-    public TopicAnalysisService(DataLoaderService dataLoaderService, TopicKeywordsConfig topicKeywordsConfig) {
+    public TopicAnalysisService(DataLoaderService dataLoaderService, TopicKeywordsConfig topicKeywordsConfig,
+                                AnalysisMetrics analysisMetrics) {
         this.dataLoaderService = dataLoaderService;
         this.topicKeywordsConfig = topicKeywordsConfig;
+        this.analysisMetrics = analysisMetrics;
     }
 
-    public Map<String, Object> getTopicTrends(List<String> topics, String startDate, String endDate, String period) {
+    public TopicSeriesResult getTopicTrends(List<String> topics, String startDate, String endDate, String period) {
         logger.info("Analyzing Topic Trends: topics={}, startDate={}, endDate={}, period={}"
                 , topics, startDate, endDate, period);
+        AnalysisMetrics.Phases phases = analysisMetrics.start("topic-trends");
 
-        List<StackOverflowThread> allThreads = dataLoaderService.getAllThreads();
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
 
-        List<StackOverflowThread> filteredThreads = filterTopicAndDate(
-                allThreads, topics, startDate, endDate
-        );
+        RoaringBitmap filteredThreads = filterTopicAndDate(snapshot, topics, startDate, endDate);
+        phases.end("filter");
+        long fromDay = LocalDate.parse(startDate).toEpochDay();
+        long toDay = LocalDate.parse(endDate).toEpochDay();
+        Map<Integer, String> bucketKeys = new HashMap<>();
 
-        Map<String, List<Map<String, Object>>> topicTrends = new LinkedHashMap<>();
+        // 重复的主题只输出一个序列，与按主题放入 Map 的旧输出一致
+        List<String> distinctTopics = topics.stream().distinct().toList();
+        List<TopicSeries> topicTrends = new ArrayList<>(distinctTopics.size());
 
-        for (String topic : topics) {
-            // 当前 topic 对应的 keywords
-            List<String> keywords = topicKeywordsConfig.getKeywordsForTopic(topic);
-
-            // 3.1 先找到属于这个 topic 的 threads（在 filteredThreads 里再细分一次）
-            List<StackOverflowThread> topicThreads = filteredThreads.stream()
-                    .filter(thread -> {
-                        List<String> tags = thread.getQuestion().getTags();
-                        return keywords.stream().anyMatch(tags::contains);
-                    })
-                    .toList();
-
-            // 3.2 按 period 分桶并计数：bucketKey -> count
-            Map<String, Long> bucketCount = topicThreads.stream()
-                    .collect(Collectors.groupingBy(
-                            thread -> {
-                                LocalDate date = Instant.ofEpochSecond(thread.getQuestion().getCreationDate())
-                                        .atZone(ZoneId.systemDefault())
-                                        .toLocalDate();
-                                return formatTimePeriod(date, period);
-                            },
-                            // 用 TreeMap 保证时间顺序
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-
-            // 3.3 把 Map<String, Long> 转成 List<{"period":..., "count":...}>
-            List<Map<String, Object>> series = bucketCount.entrySet().stream()
-                    .map(e -> {
-                        Map<String, Object> point = new LinkedHashMap<>();
-                        point.put("period", e.getKey());
-                        point.put("count", e.getValue());
-                        return point;
-                    })
-                    .toList();
-
-            topicTrends.put(topic, series);
+        for (String topic : distinctTopics) {
+            // 按天预聚合的问题数：epochDay -> count，再按 period 分桶求和
+            LongLongHashMap dayCount = new LongLongHashMap();
+            snapshot.rollup().forEachQuestionCount(topic, fromDay, toDay, dayCount::addTo);
+            topicTrends.add(toSeries(topic, dayCount, bucketKeys, period));
         }
+        phases.end("aggregate");
 
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("period", period.toLowerCase());
-        result.put("dateRange", Map.of("start", startDate, "end", endDate));
-        result.put("totalThreads", filteredThreads.size());
-        result.put("topicTrends", topicTrends);
+        return new TopicSeriesResult(TopicSeriesResult.Measure.COUNT, period.toLowerCase(), startDate, endDate,
+                filteredThreads.getCardinality(), topicTrends);
+    }
 
-        return result;
+    /**
+     * 按日期累加的值按 period 分桶求和。日期升序时桶的键也升序（年份为四位数），
+     * 所以顺序扫描即可得到按时间排序的序列
+     */
+    private TopicSeries toSeries(String topic, LongLongHashMap byDay, Map<Integer, String> bucketKeys,
+                                 String period) {
+        long[] days = byDay.sortedKeys();
+        String[] periods = new String[days.length];
+        long[] values = new long[days.length];
+        int n = 0;
+        for (long day : days) {
+            String key = bucketKey(bucketKeys, (int) day, period);
+            if (n > 0 && periods[n - 1].equals(key)) {
+                values[n - 1] += byDay.get(day, 0);
+            } else {
+                periods[n] = key;
+                values[n++] = byDay.get(day, 0);
+            }
+        }
+        return new TopicSeries(topic, Arrays.copyOf(periods, n), Arrays.copyOf(values, n));
     }
 
-    private List<StackOverflowThread> filterTopicAndDate(
-            List<StackOverflowThread> allThreads,
-            List<String> topics, String startDate, String endDate){
-        List<String> keywords =
+    private RoaringBitmap filterTopicAndDate(CorpusSnapshot snapshot, List<String> topics,
+                                             String startDate, String endDate) {
+        ThreadStore store = snapshot.store();
+        BitSet keywordTags = store.tagIdSet(
                 topics.stream()
                         .flatMap(t -> topicKeywordsConfig.getKeywordsForTopic(t).stream())
                         .distinct()
-                        .toList();
-
-        LocalDate start = LocalDate.parse(startDate);
-        LocalDate end = LocalDate.parse(endDate);
+                        .toList());
 
-        List<StackOverflowThread> filteredThreads = allThreads.stream()
-                .filter(thread -> {
-                    if (thread.getQuestion() == null || thread.getQuestion().getCreationDate() == null) {
-                        return false;
-                    }
-                    // filter keywords (topics)
-                    if (keywords.stream().noneMatch(keyword -> thread.getQuestion().getTags().contains(keyword)))
-                        return false;
+        // [start 当天 0 点, end 次日 0 点) 的 epoch 秒区间，与按本地日期比较等价
+        ZoneId zone = ZoneId.systemDefault();
+        long startEpoch = LocalDate.parse(startDate).atStartOfDay(zone).toEpochSecond();
+        long endEpoch = LocalDate.parse(endDate).plusDays(1).atStartOfDay(zone).toEpochSecond();
 
-                    LocalDate creationDate = Instant.ofEpochSecond(thread.getQuestion().getCreationDate())
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate();
-                    if (!creationDate.isBefore(start) && !creationDate.isAfter(end)) {
-                        logger.info(String.valueOf(creationDate));
-                        return true;
-                    }
-                    return false;
-                })
-                .collect(Collectors.toList());
+        // 时间索引只访问与区间重叠的月份分区，再与关键词标签的倒排位图求交集
+        RoaringBitmap filteredThreads = RoaringBitmap.and(
+                snapshot.dateIndex().between(startEpoch, endEpoch),
+                snapshot.index().unionOfTags(keywordTags));
 
-        logger.info("Threads filtered: {}", filteredThreads.size());
+        logger.info("Threads filtered: {}", filteredThreads.getCardinality());
         return filteredThreads;
     }
 
+    private String bucketKey(Map<Integer, String> cache, int epochDay, String period) {
+        return cache.computeIfAbsent(epochDay, day -> formatTimePeriod(LocalDate.ofEpochDay(day), period));
+    }
+
     private String formatTimePeriod(LocalDate date, String period) {
         if (period == null || period.isBlank()) {
             period = "month";
@@ -147,120 +135,28 @@ public class TopicAnalysisService {
         return topicKeywordsConfig.getAllTopics();
     }
 
-    public Map<String, Object> getTopicActivityScore(
+    public TopicSeriesResult getTopicActivityScore(
             List<String> topics, String startDate, String endDate, String period) {
 
-        List<StackOverflowThread> allThreads = dataLoaderService.getAllThreads();
-
-        List<StackOverflowThread> filteredThreads = filterTopicAndDate(
-                allThreads, topics, startDate, endDate
-        );
-        
-        Map<String, List<Map<String, Object>>> topicActivityScore = new LinkedHashMap<>();
-
-        for (String topic : topics) {
-            // 当前 topic 对应的 keywords
-            List<String> keywords = topicKeywordsConfig.getKeywordsForTopic(topic);
+        CorpusSnapshot snapshot = dataLoaderService.getSnapshot();
 
-            // 找到属于这个 topic 的 threads
-            List<StackOverflowThread> topicThreads = filteredThreads.stream()
-                    .filter(thread -> {
-                        List<String> tags = thread.getQuestion().getTags();
-                        return keywords.stream().anyMatch(tags::contains);
-                    })
-                    .toList();
+        RoaringBitmap filteredThreads = filterTopicAndDate(snapshot, topics, startDate, endDate);
+        long fromDay = LocalDate.parse(startDate).toEpochDay();
+        long toDay = LocalDate.parse(endDate).toEpochDay();
+        Map<Integer, String> bucketKeys = new HashMap<>();
 
-            // 按 period 分桶计算活跃度分数：bucketKey -> activityScore
-            Map<String, Double> bucketActivityScore = new TreeMap<>();
+        List<String> distinctTopics = topics.stream().distinct().toList();
+        List<TopicSeries> topicActivityScore = new ArrayList<>(distinctTopics.size());
 
-            for (StackOverflowThread thread : topicThreads) {
-                Question question = thread.getQuestion();
-
-                // 1. 处理 Question 的活跃度（权重 1.0）
-                if (question != null && question.getCreationDate() != null) {
-                    LocalDate qDate = Instant.ofEpochSecond(question.getCreationDate())
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate();
-                    String qPeriod = formatTimePeriod(qDate, period);
-                    int qScore = question.getScore() != null ? question.getScore() : 0;
-                    
-                    bucketActivityScore.merge(qPeriod, 1.0 * ReLU(qScore), Double::sum);
-                }
-
-                // 2. 处理 Answers 的活跃度（权重 0.8）
-                if (thread.getAnswers() != null) {
-                    for (var answer : thread.getAnswers()) {
-                        if (answer.getCreationDate() != null) {
-                            LocalDate aDate = Instant.ofEpochSecond(answer.getCreationDate())
-                                    .atZone(ZoneId.systemDefault())
-                                    .toLocalDate();
-                            String aPeriod = formatTimePeriod(aDate, period);
-                            int aScore = answer.getScore() != null ? answer.getScore() : 0;
-                            
-                            bucketActivityScore.merge(aPeriod, 0.8 * ReLU(aScore), Double::sum);
-                        }
-                    }
-                }
-
-                // 3. 处理 Question Comments 的活跃度（权重 0.5）
-                if (thread.getQuestionComments() != null) {
-                    for (var comment : thread.getQuestionComments()) {
-                        if (comment.getCreationDate() != null) {
-                            LocalDate cDate = Instant.ofEpochSecond(comment.getCreationDate())
-                                    .atZone(ZoneId.systemDefault())
-                                    .toLocalDate();
-                            String cPeriod = formatTimePeriod(cDate, period);
-                            int cScore = comment.getScore() != null ? comment.getScore() : 0;
-                            
-                            bucketActivityScore.merge(cPeriod, 0.5 * ReLU(cScore), Double::sum);
-                        }
-                    }
-                }
-
-                // 4. 处理 Answer Comments 的活跃度（权重 0.5）
-                if (thread.getAnswerComments() != null) {
-                    for (var commentList : thread.getAnswerComments().values()) {
-                        if (commentList != null) {
-                            for (var comment : commentList) {
-                                if (comment.getCreationDate() != null) {
-                                    LocalDate cDate = Instant.ofEpochSecond(comment.getCreationDate())
-                                            .atZone(ZoneId.systemDefault())
-                                            .toLocalDate();
-                                    String cPeriod = formatTimePeriod(cDate, period);
-                                    int cScore = comment.getScore() != null ? comment.getScore() : 0;
-                                    
-                                    bucketActivityScore.merge(cPeriod, 0.5 * ReLU(cScore), Double::sum);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-
-            // 把 Map<String, Double> 转成 List<{"period":..., "activityScore":...}>
-            List<Map<String, Object>> series = bucketActivityScore.entrySet().stream()
-                    .map(e -> {
-                        Map<String, Object> point = new LinkedHashMap<>();
-                        point.put("period", e.getKey());
-                        point.put("activityScore", Math.round(e.getValue() * 100.0) / 100.0); // 保留两位小数
-                        return point;
-                    })
-                    .toList();
-
-            topicActivityScore.put(topic, series);
+        for (String topic : distinctTopics) {
+            // 按 period 分桶计算活跃度分数（十分之一为单位，输出时保留两位小数）
+            // Question 权重 1.0，Answer 0.8，Comment 0.5，均按事件发生的日期分桶，已在加载时按天预聚合
+            LongLongHashMap dayActivityScore = new LongLongHashMap();
+            snapshot.rollup().forEachActivity(topic, fromDay, toDay, dayActivityScore::addTo);
+            topicActivityScore.add(toSeries(topic, dayActivityScore, bucketKeys, period));
         }
 
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("period", period.toLowerCase());
-        result.put("dateRange", Map.of("start", startDate, "end", endDate));
-        result.put("totalThreads", filteredThreads.size());
-        result.put("topicActivityScore", topicActivityScore);
-
-        return result;
+        return new TopicSeriesResult(TopicSeriesResult.Measure.ACTIVITY, period.toLowerCase(), startDate, endDate,
+                filteredThreads.getCardinality(), topicActivityScore);
     }
-
-    private int ReLU(int score) {
-        return Math.max(0, score);
-    }
-
 }
@@ -0,0 +1,173 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import cs209a.finalproject_demo.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 稠密 id（主题下标、标签 id 等）两两共同出现次数的计数器。
+ * <p>
+ * id 数量较少时使用上三角 long[] 矩阵，(a, b)（a &lt; b）位于 a * (2n - a - 1) / 2 + (b - a - 1)；
+ * 超过 {@link #DENSE_MAX_PAIRS} 个组合时改用以 a &lt;&lt; 32 | b 为键的稀疏哈希表，只保存出现过的组合。
+ * 并行统计时每个分片各自累加一个计数器，最后用 {@link #merge} 合并。非线程安全。
+ */
+public final class CoOccurrenceCounter {
+    /** 稠密矩阵最多的组合数（2 MB），更大的 id 空间使用稀疏模式 */
+    public static final long DENSE_MAX_PAIRS = 1 << 18;
+
+    private final int dimension;
+    private final long[] dense;
+    private final LongLongHashMap sparse;
+    // 去重排序用的缓冲区
+    private int[] scratch = new int[16];
+
+    /** 一个组合及其次数，first &lt; second */
+    public record Pair(int first, int second, long count) {
+    }
+
+    public CoOccurrenceCounter(int dimension) {
+        this.dimension = dimension;
+        long pairs = (long) dimension * (dimension - 1) / 2;
+        if (pairs <= DENSE_MAX_PAIRS) {
+            this.dense = new long[(int) Math.max(0, pairs)];
+            this.sparse = null;
+        } else {
+            this.dense = null;
+            this.sparse = new LongLongHashMap();
+        }
+    }
+
+    public int dimension() { return dimension; }
+
+    public boolean isSparse() { return sparse != null; }
+
+    public void add(int a, int b, long count) {
+        if (a == b) {
+            return;
+        }
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        if (dense != null) {
+            dense[denseIndex(lo, hi)] += count;
+        } else {
+            sparse.addTo(key(lo, hi), count);
+        }
+    }
+
+    /** 掩码中的 id（均小于 64）两两计一次 */
+    public void addMask(long mask) {
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int a = Long.numberOfTrailingZeros(rest);
+            for (long other = rest & (rest - 1); other != 0; other &= other - 1) {
+                add(a, Long.numberOfTrailingZeros(other), 1);
+            }
+        }
+    }
+
+    /** 线程 id 的标签（标签 id）去重后两两计一次 */
+    public void addTags(ThreadStore store, int id) {
+        int n = store.tagCount(id);
+        if (n < 2) {
+            return;
+        }
+        if (scratch.length < n) {
+            scratch = new int[Math.max(n, scratch.length * 2)];
+        }
+        for (int k = 0; k < n; k++) {
+            scratch[k] = store.tagId(id, k);
+        }
+        Arrays.sort(scratch, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && scratch[i] == scratch[i - 1]) {
+                continue;
+            }
+            for (int j = i + 1; j < n; j++) {
+                if (scratch[j] != scratch[j - 1]) {
+                    add(scratch[i], scratch[j], 1);
+                }
+            }
+        }
+    }
+
+    public void merge(CoOccurrenceCounter other) {
+        if (dense != null && other.dense != null) {
+            for (int i = 0; i < dense.length; i++) {
+                dense[i] += other.dense[i];
+            }
+        } else {
+            other.forEach(this::add);
+        }
+    }
+
+    public long count(int a, int b) {
+        if (a == b) {
+            return 0;
+        }
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        return dense != null ? dense[denseIndex(lo, hi)] : sparse.get(key(lo, hi), 0);
+    }
+
+    /** 次数大于 0 的组合数 */
+    public int nonZeroPairs() {
+        if (sparse != null) {
+            return sparse.size();
+        }
+        int pairs = 0;
+        for (long count : dense) {
+            if (count > 0) {
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second, long count);
+    }
+
+    /** 遍历次数大于 0 的组合，顺序不定 */
+    public void forEach(PairConsumer consumer) {
+        if (sparse != null) {
+            sparse.forEach((key, count) -> consumer.accept((int) (key >>> 32), (int) key, count));
+            return;
+        }
+        int index = 0;
+        for (int a = 0; a < dimension; a++) {
+            for (int b = a + 1; b < dimension; b++, index++) {
+                if (dense[index] > 0) {
+                    consumer.accept(a, b, dense[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 次数最多的 n 个组合，次数相同时 id 小的在前。用 {@link TopK} 选取，不对全部组合排序
+     */
+    public List<Pair> top(int n) {
+        TopK topK = new TopK(n);
+        forEach((a, b, count) -> topK.offer(count, key(a, b)));
+        return pairs(topK);
+    }
+
+    /** TopK 中以 {@link #key} 为键的组合，按排名排列 */
+    public static List<Pair> pairs(TopK topK) {
+        List<Pair> result = new ArrayList<>(topK.size());
+        topK.forEachRanked((count, key) -> result.add(new Pair((int) (key >>> 32), (int) key, count)));
+        return result;
+    }
+
+    private int denseIndex(int lo, int hi) {
+        return (int) ((long) lo * (2L * dimension - lo - 1) / 2 + (hi - lo - 1));
+    }
+
+    /** 组合 (lo, hi) 的键，lo &lt; hi 时按键排序即先按 lo 再按 hi 排序 */
+    public static long key(int lo, int hi) {
+        return (long) lo << 32 | (hi & 0xFFFFFFFFL);
+    }
+}
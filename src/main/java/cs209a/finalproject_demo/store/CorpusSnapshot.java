@@ -0,0 +1,76 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 某一版本语料的不可变快照。读取方直接持有引用，无需复制；
+ * 重新加载时由 DataLoaderService 原子地替换为新版本，正在执行的查询继续使用旧快照。
+ */
+public final class CorpusSnapshot {
+    private final long version;
+    private final ThreadStore store;
+    private final InvertedIndex index;
+    private final DateIndex dateIndex;
+    private final TopicRollup rollup;
+    private final ThreadFeatures features;
+    private final TagCoOccurrenceGraph tagGraph;
+    private final long loadedAtMillis;
+
+    public CorpusSnapshot(long version, ThreadStore store, InvertedIndex index, DateIndex dateIndex,
+                          TopicRollup rollup, ThreadFeatures features, TagCoOccurrenceGraph tagGraph) {
+        this.version = version;
+        this.store = store;
+        this.index = index;
+        this.dateIndex = dateIndex;
+        this.rollup = rollup;
+        this.features = features;
+        this.tagGraph = tagGraph;
+        this.loadedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 为 store 建立全部索引、预聚合、逐线程特征和标签共同出现图。日期分区、rollup 和共同出现图按 zone 下的本地日期划分，
+     * 应与分析服务分桶使用的时区一致。
+     */
+    public static CorpusSnapshot build(long version, ThreadStore store, TopicKeywordsConfig topicKeywordsConfig,
+                                       ZoneId zone) {
+        return new CorpusSnapshot(version, store, InvertedIndex.build(store, topicKeywordsConfig),
+                DateIndex.build(store, zone), TopicRollup.build(store, topicKeywordsConfig, zone),
+                ThreadFeatures.extract(store, topicKeywordsConfig.getKeywordMatcher()),
+                TagCoOccurrenceGraph.build(store, zone));
+    }
+
+    /**
+     * 在本快照之后追加一批新线程，得到下一个版本；只为新线程计算派生数据，本快照不受影响
+     */
+    public CorpusSnapshot append(long nextVersion, List<StackOverflowThread> newThreads) {
+        ThreadStore nextStore = store.append(newThreads);
+        return new CorpusSnapshot(nextVersion, nextStore, index.append(nextStore), dateIndex.append(nextStore),
+                rollup.append(nextStore), features.append(nextStore), tagGraph.append(nextStore));
+    }
+
+    public long version() { return version; }
+
+    public ThreadStore store() { return store; }
+
+    public InvertedIndex index() { return index; }
+
+    public DateIndex dateIndex() { return dateIndex; }
+
+    public TopicRollup rollup() { return rollup; }
+
+    public ThreadFeatures features() { return features; }
+
+    public TagCoOccurrenceGraph tagGraph() { return tagGraph; }
+
+    /** 不可修改的线程列表 */
+    public List<StackOverflowThread> threads() { return store.threads(); }
+
+    public int size() { return store.size(); }
+
+    public long loadedAtMillis() { return loadedAtMillis; }
+}
@@ -0,0 +1,147 @@
+package cs209a.finalproject_demo.store;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按问题创建时间（epoch 秒）建立的索引，按自然月分区。
+ * 每个分区内的线程按创建时间排序，并附带一个线程 id 位图；
+ * 区间查询只访问与区间重叠的分区，完全覆盖的分区直接合并位图，两端的分区二分查找。
+ * 没有创建时间的线程不在索引中。构建后不可变。
+ */
+public final class DateIndex {
+    private final ZoneId zone;
+    private final int size;
+    // 分区按起始时间升序，partitionStarts[i] 为第 i 个分区所在月份第一天 0 点
+    private final long[] partitionStarts;
+    private final Partition[] partitions;
+
+    private static final class Partition {
+        final long[] dates;
+        final int[] ids;
+        final RoaringBitmap bitmap;
+
+        Partition(long[] dates, int[] ids) {
+            this.dates = dates;
+            this.ids = ids;
+            this.bitmap = RoaringBitmap.bitmapOf(ids);
+            this.bitmap.runOptimize();
+        }
+    }
+
+    private DateIndex(ZoneId zone, int size, long[] partitionStarts, Partition[] partitions) {
+        this.zone = zone;
+        this.size = size;
+        this.partitionStarts = partitionStarts;
+        this.partitions = partitions;
+    }
+
+    public static DateIndex build(ThreadStore store, ZoneId zone) {
+        return new DateIndex(zone, 0, new long[0], new Partition[0]).append(store);
+    }
+
+    /**
+     * 为 store 中 id >= 当前 size 的新线程建立索引，返回新的索引；只重建有新线程落入的分区
+     */
+    public DateIndex append(ThreadStore next) {
+        Map<Long, List<Integer>> added = new TreeMap<>();
+        for (int id = size; id < next.size(); id++) {
+            if (next.hasCreationDate(id)) {
+                added.computeIfAbsent(partitionStart(next.creationDate(id)), k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        TreeMap<Long, Partition> merged = new TreeMap<>();
+        for (int i = 0; i < partitions.length; i++) {
+            merged.put(partitionStarts[i], partitions[i]);
+        }
+        added.forEach((start, ids) -> merged.put(start, merge(start, merged.get(start), next, ids)));
+
+        long[] starts = new long[merged.size()];
+        Partition[] parts = new Partition[merged.size()];
+        int i = 0;
+        for (Map.Entry<Long, Partition> entry : merged.entrySet()) {
+            starts[i] = entry.getKey();
+            parts[i++] = entry.getValue();
+        }
+        return new DateIndex(zone, next.size(), starts, parts);
+    }
+
+    private static Partition merge(long start, Partition base, ThreadStore store, List<Integer> newIds) {
+        int baseCount = base == null ? 0 : base.ids.length;
+        // 分区不超过一个月，(时间 - 分区起点) 与 id 可以拼成一个 long 排序；同一时间的线程按 id 排序
+        long[] packed = new long[baseCount + newIds.size()];
+        for (int k = 0; k < baseCount; k++) {
+            packed[k] = (base.dates[k] - start) << 32 | base.ids[k];
+        }
+        for (int k = 0; k < newIds.size(); k++) {
+            int id = newIds.get(k);
+            packed[baseCount + k] = (store.creationDate(id) - start) << 32 | id;
+        }
+        Arrays.sort(packed);
+        long[] dates = new long[packed.length];
+        int[] ids = new int[packed.length];
+        for (int k = 0; k < packed.length; k++) {
+            dates[k] = start + (packed[k] >>> 32);
+            ids[k] = (int) packed[k];
+        }
+        return new Partition(dates, ids);
+    }
+
+    private long partitionStart(long epochSecond) {
+        LocalDate date = Instant.ofEpochSecond(epochSecond).atZone(zone).toLocalDate();
+        return date.withDayOfMonth(1).atStartOfDay(zone).toEpochSecond();
+    }
+
+    public int partitionCount() { return partitions.length; }
+
+    /**
+     * 创建时间位于 [fromEpoch, toEpoch) 的线程，返回新位图
+     */
+    public RoaringBitmap between(long fromEpoch, long toEpoch) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (fromEpoch >= toEpoch || partitions.length == 0) {
+            return result;
+        }
+        // 第一个可能与区间重叠的分区：起始时间 <= fromEpoch 的最后一个分区
+        int first = Arrays.binarySearch(partitionStarts, fromEpoch);
+        first = first >= 0 ? first : Math.max(0, -first - 2);
+        for (int p = first; p < partitions.length && partitionStarts[p] < toEpoch; p++) {
+            Partition partition = partitions[p];
+            int length = partition.dates.length;
+            if (partition.dates[0] >= fromEpoch && partition.dates[length - 1] < toEpoch) {
+                result.or(partition.bitmap);
+                continue;
+            }
+            int lo = lowerBound(partition.dates, fromEpoch);
+            int hi = lowerBound(partition.dates, toEpoch);
+            if (lo < hi) {
+                result.addN(partition.ids, lo, hi - lo);
+            }
+        }
+        return result;
+    }
+
+    /** 第一个 >= key 的位置 */
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,161 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
+import cs209a.finalproject_demo.model.Question;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 倒排索引：标签 / 主题 -> 线程 id 的压缩位图（RoaringBitmap）。
+ * 与 ThreadStore 一起在加载时构建，构建后不可变；返回的位图只能读取，组合查询请使用
+ * RoaringBitmap.or / and 等生成新位图的方法。追加数据时只复制被新线程修改到的位图。
+ */
+public final class InvertedIndex {
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final TopicKeywordsConfig topicKeywordsConfig;
+    // 建立索引时对应的 store，用于查找标签名
+    private final ThreadStore store;
+    // 下标为标签 id
+    private final RoaringBitmap[] tagPostings;
+    private final String[] tagTopics;
+    // 标签包含关键词的全部主题，见 TopicKeywordsConfig.getTagTopicMask
+    private final long[] tagTopicMasks;
+    // 标签经 mapTagToTopic 映射到的主题
+    private final Map<String, RoaringBitmap> topicPostings;
+    // 标题包含主题关键词（忽略大小写）
+    private final Map<String, RoaringBitmap> titleTopicPostings;
+
+    private InvertedIndex(TopicKeywordsConfig topicKeywordsConfig, ThreadStore store, RoaringBitmap[] tagPostings,
+                          String[] tagTopics, long[] tagTopicMasks, Map<String, RoaringBitmap> topicPostings,
+                          Map<String, RoaringBitmap> titleTopicPostings) {
+        this.topicKeywordsConfig = topicKeywordsConfig;
+        this.store = store;
+        this.tagPostings = tagPostings;
+        this.tagTopics = tagTopics;
+        this.tagTopicMasks = tagTopicMasks;
+        this.topicPostings = topicPostings;
+        this.titleTopicPostings = titleTopicPostings;
+    }
+
+    public static InvertedIndex build(ThreadStore store, TopicKeywordsConfig topicKeywordsConfig) {
+        InvertedIndex empty = new InvertedIndex(topicKeywordsConfig, null, new RoaringBitmap[0], new String[0], new long[0],
+                new LinkedHashMap<>(), new LinkedHashMap<>());
+        return empty.append(store);
+    }
+
+    /**
+     * 为 store 中 id >= 当前 size 的新线程建立索引，返回新的索引；当前实例保持不变
+     */
+    public InvertedIndex append(ThreadStore next) {
+        int tagCount = next.tagDictionarySize();
+        RoaringBitmap[] tags = Arrays.copyOf(tagPostings, tagCount);
+        String[] topics = Arrays.copyOf(tagTopics, tagCount);
+        long[] topicMasks = Arrays.copyOf(tagTopicMasks, tagCount);
+        // 标签字典只对新出现的标签计算一次主题
+        for (int tagId = tagTopics.length; tagId < tagCount; tagId++) {
+            topics[tagId] = topicKeywordsConfig.mapTagToTopic(next.tagName(tagId));
+            topicMasks[tagId] = topicKeywordsConfig.getTagTopicMask(next.tagName(tagId));
+        }
+        Map<String, RoaringBitmap> byTopic = new LinkedHashMap<>(topicPostings);
+        Map<String, RoaringBitmap> byTitle = new LinkedHashMap<>(titleTopicPostings);
+
+        TopicKeywordMatcher keywordMatcher = topicKeywordsConfig.getKeywordMatcher();
+        List<String> titleTopics = keywordMatcher.topics();
+
+        // copy-on-write：继承自旧索引的位图第一次被修改前先复制
+        BitSet copiedTags = new BitSet(tagCount);
+        Set<String> copiedTopics = new HashSet<>();
+        Set<String> copiedTitles = new HashSet<>();
+
+        for (int id = size(); id < next.size(); id++) {
+            for (int k = 0, n = next.tagCount(id); k < n; k++) {
+                int tagId = next.tagId(id, k);
+                if (!copiedTags.get(tagId)) {
+                    tags[tagId] = tags[tagId] == null ? new RoaringBitmap() : tags[tagId].clone();
+                    copiedTags.set(tagId);
+                }
+                tags[tagId].add(id);
+                if (topics[tagId] != null) {
+                    writable(byTopic, copiedTopics, topics[tagId]).add(id);
+                }
+            }
+
+            Question question = next.thread(id).getQuestion();
+            if (question != null) {
+                for (long mask = keywordMatcher.match(question.getTitle()); mask != 0; mask &= mask - 1) {
+                    String topic = titleTopics.get(Long.numberOfTrailingZeros(mask));
+                    writable(byTitle, copiedTitles, topic).add(id);
+                }
+            }
+        }
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            if (copiedTags.get(tagId)) {
+                tags[tagId].runOptimize();
+            }
+        }
+        copiedTopics.forEach(topic -> byTopic.get(topic).runOptimize());
+        copiedTitles.forEach(topic -> byTitle.get(topic).runOptimize());
+        return new InvertedIndex(topicKeywordsConfig, next, tags, topics, topicMasks, byTopic, byTitle);
+    }
+
+    private static RoaringBitmap writable(Map<String, RoaringBitmap> postings, Set<String> copied, String key) {
+        if (copied.add(key)) {
+            RoaringBitmap inherited = postings.get(key);
+            postings.put(key, inherited == null ? new RoaringBitmap() : inherited.clone());
+        }
+        return postings.get(key);
+    }
+
+    public int size() { return store == null ? 0 : store.size(); }
+
+    /** 带有该标签的线程 */
+    public RoaringBitmap tagPostings(int tagId) {
+        return tagId >= 0 && tagId < tagPostings.length ? tagPostings[tagId] : EMPTY;
+    }
+
+    /** 标签 mapTagToTopic 后得到的主题，不属于任何主题时为 null */
+    public String tagTopic(int tagId) { return tagTopics[tagId]; }
+
+    /** 标签包含关键词的全部主题掩码 */
+    public long tagTopicMask(int tagId) { return tagTopicMasks[tagId]; }
+
+    /** 任一标签经 mapTagToTopic 映射为该主题的线程 */
+    public RoaringBitmap topicPostings(String topic) {
+        return topicPostings.getOrDefault(topic, EMPTY);
+    }
+
+    /** 标题包含该主题任一关键词的线程 */
+    public RoaringBitmap titleTopicPostings(String topic) {
+        return titleTopicPostings.getOrDefault(topic, EMPTY);
+    }
+
+    /** 带有其中任一标签的线程，返回新位图 */
+    public RoaringBitmap unionOfTags(BitSet tagIds) {
+        List<RoaringBitmap> postings = new ArrayList<>(tagIds.cardinality());
+        for (int tagId = tagIds.nextSetBit(0); tagId >= 0; tagId = tagIds.nextSetBit(tagId + 1)) {
+            postings.add(tagPostings(tagId));
+        }
+        return RoaringBitmap.or(postings.iterator());
+    }
+
+    /** 带有任一包含 topicMask 中某个主题关键词的标签的线程 */
+    public RoaringBitmap tagsWithTopics(long topicMask) {
+        List<RoaringBitmap> postings = new ArrayList<>();
+        for (int tagId = 0; tagId < tagPostings.length; tagId++) {
+            if ((tagTopicMasks[tagId] & topicMask) != 0) {
+                postings.add(tagPostings[tagId]);
+            }
+        }
+        return RoaringBitmap.or(postings.iterator());
+    }
+}
@@ -0,0 +1,349 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import cs209a.finalproject_demo.util.TopK;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * 标签共同出现图，加载时建立，追加线程时增量更新，查询不再扫描线程。
+ * <p>
+ * 一个线程的标签去重后两两计一次。
+ * <ul>
+ *     <li>邻接表：每个标签一行，邻居标签 id 和次数存在原始类型数组中，按次数降序、id 升序排列，
+ *     前 N 个邻居即为前缀；</li>
+ *     <li>按日期：每个有线程的日期（问题创建日，zone 下的 epoch day）一个单元，
+ *     单元是按 a &lt;&lt; 32 | b（a &lt; b）升序排列的组合键和次数，区间查询二分定位后顺序读日单元。
+ *     不另存按月的汇总：标签长尾使同一组合在一个月内很少重复，月汇总的条目数接近日单元，
+ *     省下的扫描量抵不上多出的一份内存。</li>
+ * </ul>
+ * 没有创建时间的线程只计入邻接表。追加时只重建有新组合的行和单元，其余与旧版本共享。构建后不可变。
+ */
+public final class TagCoOccurrenceGraph {
+    private static final int[] NO_NEIGHBOURS = new int[0];
+    private static final long[] NO_WEIGHTS = new long[0];
+
+    private final ZoneId zone;
+    private final int size;
+    // 标签 id -> 邻居及次数，没有邻居时为空数组
+    private final int[][] neighbours;
+    private final long[][] weights;
+    // 不同组合的数量
+    private final long pairCount;
+    // 按日期升序
+    private final int[] days;
+    private final Cells[] dayCells;
+
+    /** 按组合键升序的组合及次数 */
+    private static final class Cells {
+        static final Cells EMPTY = new Cells(new long[0], new long[0]);
+
+        final long[] keys;
+        final long[] counts;
+
+        Cells(long[] keys, long[] counts) {
+            this.keys = keys;
+            this.counts = counts;
+        }
+    }
+
+    /** 接收一个组合，first &lt; second */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second, long count);
+    }
+
+    private TagCoOccurrenceGraph(ZoneId zone, int size, int[][] neighbours, long[][] weights, long pairCount,
+                                 int[] days, Cells[] dayCells) {
+        this.zone = zone;
+        this.size = size;
+        this.neighbours = neighbours;
+        this.weights = weights;
+        this.pairCount = pairCount;
+        this.days = days;
+        this.dayCells = dayCells;
+    }
+
+    public static TagCoOccurrenceGraph build(ThreadStore store, ZoneId zone) {
+        return new TagCoOccurrenceGraph(zone, 0, new int[0][], new long[0][], 0,
+                new int[0], new Cells[0]).append(store);
+    }
+
+    /**
+     * 把 store 中 id >= 当前 size 的新线程计入，返回新的图；只重建有新组合的行和日期
+     */
+    public TagCoOccurrenceGraph append(ThreadStore next) {
+        LongLongHashMap added = new LongLongHashMap();
+        Map<Integer, LongLongHashMap> addedByDay = new TreeMap<>();
+        int[] tags = new int[16];
+        for (int id = size; id < next.size(); id++) {
+            int n = next.tagCount(id);
+            if (n < 2) {
+                continue;
+            }
+            if (tags.length < n) {
+                tags = new int[Math.max(n, tags.length * 2)];
+            }
+            int distinct = distinctTags(next, id, tags);
+            if (distinct < 2) {
+                continue;
+            }
+            LongLongHashMap day = next.hasCreationDate(id)
+                    ? addedByDay.computeIfAbsent(epochDay(next.creationDate(id)), d -> new LongLongHashMap())
+                    : null;
+            for (int i = 0; i < distinct; i++) {
+                for (int j = i + 1; j < distinct; j++) {
+                    long key = CoOccurrenceCounter.key(tags[i], tags[j]);
+                    added.addTo(key, 1);
+                    if (day != null) {
+                        day.addTo(key, 1);
+                    }
+                }
+            }
+        }
+
+        int dictionarySize = next.tagDictionarySize();
+        int[][] nextNeighbours = Arrays.copyOf(neighbours, dictionarySize);
+        long[][] nextWeights = Arrays.copyOf(weights, dictionarySize);
+        for (int tagId = neighbours.length; tagId < dictionarySize; tagId++) {
+            nextNeighbours[tagId] = NO_NEIGHBOURS;
+            nextWeights[tagId] = NO_WEIGHTS;
+        }
+        long nextPairCount = pairCount + updateRows(added, nextNeighbours, nextWeights);
+
+        TreeMap<Integer, Cells> nextDays = toMap(days, dayCells);
+        addedByDay.forEach((day, pairs) -> nextDays.put(day, merge(nextDays.get(day), pairs)));
+
+        return new TagCoOccurrenceGraph(zone, next.size(), nextNeighbours, nextWeights, nextPairCount,
+                keys(nextDays), nextDays.values().toArray(new Cells[0]));
+    }
+
+    /** 线程 id 的标签 id 去重升序写入 buffer，返回个数 */
+    private static int distinctTags(ThreadStore store, int id, int[] buffer) {
+        int n = store.tagCount(id);
+        for (int k = 0; k < n; k++) {
+            buffer[k] = store.tagId(id, k);
+        }
+        Arrays.sort(buffer, 0, n);
+        int distinct = 0;
+        for (int k = 0; k < n; k++) {
+            if (k == 0 || buffer[k] != buffer[k - 1]) {
+                buffer[distinct++] = buffer[k];
+            }
+        }
+        return distinct;
+    }
+
+    /** 把新增的组合计入两端标签的行，返回新出现的组合数 */
+    private static long updateRows(LongLongHashMap added, int[][] neighbours, long[][] weights) {
+        // 每个标签新增的邻居，先数个数再填入
+        int[] degree = new int[neighbours.length];
+        added.forEach((key, count) -> {
+            degree[(int) (key >>> 32)]++;
+            degree[(int) key]++;
+        });
+        int[][] addedNeighbours = new int[neighbours.length][];
+        long[][] addedWeights = new long[neighbours.length][];
+        for (int tagId = 0; tagId < neighbours.length; tagId++) {
+            if (degree[tagId] > 0) {
+                addedNeighbours[tagId] = new int[degree[tagId]];
+                addedWeights[tagId] = new long[degree[tagId]];
+                degree[tagId] = 0;
+            }
+        }
+        added.forEach((key, count) -> {
+            int a = (int) (key >>> 32);
+            int b = (int) key;
+            addedNeighbours[a][degree[a]] = b;
+            addedWeights[a][degree[a]++] = count;
+            addedNeighbours[b][degree[b]] = a;
+            addedWeights[b][degree[b]++] = count;
+        });
+
+        // 每个新组合在两端的行中各新增一个邻居
+        long newNeighbours = 0;
+        for (int tagId = 0; tagId < neighbours.length; tagId++) {
+            if (addedNeighbours[tagId] != null) {
+                int before = neighbours[tagId].length;
+                mergeRow(neighbours, weights, tagId, addedNeighbours[tagId], addedWeights[tagId]);
+                newNeighbours += neighbours[tagId].length - before;
+            }
+        }
+        return newNeighbours / 2;
+    }
+
+    private static void mergeRow(int[][] neighbours, long[][] weights, int tagId, int[] addedNeighbours,
+                                 long[] addedWeights) {
+        LongLongHashMap row = new LongLongHashMap(neighbours[tagId].length + addedNeighbours.length);
+        for (int k = 0; k < neighbours[tagId].length; k++) {
+            row.addTo(neighbours[tagId][k], weights[tagId][k]);
+        }
+        for (int k = 0; k < addedNeighbours.length; k++) {
+            row.addTo(addedNeighbours[k], addedWeights[k]);
+        }
+        // 次数不超过线程数（int），(MAX - 次数) << 32 | 邻居 升序即次数降序、邻居升序
+        long[] order = new long[row.size()];
+        int[] n = {0};
+        row.forEach((neighbour, weight) -> order[n[0]++] = (Integer.MAX_VALUE - weight) << 32 | neighbour);
+        Arrays.sort(order);
+        int[] rowNeighbours = new int[order.length];
+        long[] rowWeights = new long[order.length];
+        for (int k = 0; k < order.length; k++) {
+            rowNeighbours[k] = (int) order[k];
+            rowWeights[k] = Integer.MAX_VALUE - (order[k] >>> 32);
+        }
+        neighbours[tagId] = rowNeighbours;
+        weights[tagId] = rowWeights;
+    }
+
+    private static long weightOf(int[] rowNeighbours, long[] rowWeights, int neighbour) {
+        for (int k = 0; k < rowNeighbours.length; k++) {
+            if (rowNeighbours[k] == neighbour) {
+                return rowWeights[k];
+            }
+        }
+        return 0;
+    }
+
+    /** 有序单元与新增组合合并成新的单元 */
+    private static Cells merge(Cells base, LongLongHashMap added) {
+        if (base == null) {
+            base = Cells.EMPTY;
+        }
+        long[] addedKeys = added.sortedKeys();
+        long[] keys = new long[base.keys.length + addedKeys.length];
+        long[] counts = new long[keys.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < base.keys.length || j < addedKeys.length) {
+            if (j == addedKeys.length || (i < base.keys.length && base.keys[i] < addedKeys[j])) {
+                keys[n] = base.keys[i];
+                counts[n++] = base.counts[i++];
+            } else if (i == base.keys.length || addedKeys[j] < base.keys[i]) {
+                keys[n] = addedKeys[j];
+                counts[n++] = added.get(addedKeys[j++], 0);
+            } else {
+                keys[n] = base.keys[i];
+                counts[n++] = base.counts[i++] + added.get(addedKeys[j++], 0);
+            }
+        }
+        return new Cells(Arrays.copyOf(keys, n), Arrays.copyOf(counts, n));
+    }
+
+    private static TreeMap<Integer, Cells> toMap(int[] keys, Cells[] cells) {
+        TreeMap<Integer, Cells> map = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], cells[i]);
+        }
+        return map;
+    }
+
+    private static int[] keys(TreeMap<Integer, Cells> map) {
+        return map.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int epochDay(long epochSecond) {
+        return (int) Instant.ofEpochSecond(epochSecond).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /** 已计入的线程数 */
+    public int size() { return size; }
+
+    /** 不同组合的数量 */
+    public long pairCount() { return pairCount; }
+
+    /** 标签的邻居数 */
+    public int degree(int tagId) {
+        return tagId < 0 || tagId >= neighbours.length ? 0 : neighbours[tagId].length;
+    }
+
+    /** 次数第 rank 多的邻居（次数相同时 id 小的在前），rank &lt; degree(tagId) */
+    public int neighbour(int tagId, int rank) { return neighbours[tagId][rank]; }
+
+    public long neighbourWeight(int tagId, int rank) { return weights[tagId][rank]; }
+
+    /** 两个标签共同出现的次数 */
+    public long weight(int a, int b) {
+        if (a == b || degree(a) == 0 || degree(b) == 0) {
+            return 0;
+        }
+        // 扫描较短的一行
+        return degree(a) <= degree(b)
+                ? weightOf(neighbours[a], weights[a], b)
+                : weightOf(neighbours[b], weights[b], a);
+    }
+
+    /** 遍历所有组合，顺序不定 */
+    public void forEachPair(PairConsumer consumer) {
+        for (int a = 0; a < neighbours.length; a++) {
+            for (int k = 0; k < neighbours[a].length; k++) {
+                if (neighbours[a][k] > a) {
+                    consumer.accept(a, neighbours[a][k], weights[a][k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 次数最多的 n 个组合，键为 {@link CoOccurrenceCounter#key}，次数相同时键小的在前。
+     * 按标签并行扫描各行，每个分片各自选取后合并
+     */
+    public TopK topPairs(int n) {
+        return IntStream.range(0, neighbours.length).parallel()
+                .collect(() -> new TopK(n), (topK, a) -> {
+                    for (int k = 0; k < neighbours[a].length; k++) {
+                        if (neighbours[a][k] > a) {
+                            topK.offer(weights[a][k], CoOccurrenceCounter.key(a, neighbours[a][k]));
+                        }
+                    }
+                }, TopK::merge);
+    }
+
+    /** 两端都在 tagIds 中的组合，顺序不定 */
+    public void forEachPairAmong(BitSet tagIds, PairConsumer consumer) {
+        for (int a = tagIds.nextSetBit(0); a >= 0 && a < neighbours.length; a = tagIds.nextSetBit(a + 1)) {
+            for (int k = 0; k < neighbours[a].length; k++) {
+                int b = neighbours[a][k];
+                if (b > a && tagIds.get(b)) {
+                    consumer.accept(a, b, weights[a][k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 问题创建日位于 [fromDay, toDay]（含两端）的线程中出现的组合；同一组合可能回调多次，需由调用方累加
+     */
+    public void forEachPairBetween(long fromDay, long toDay, PairConsumer consumer) {
+        for (int d = lowerBound(days, fromDay); d < days.length && days[d] <= toDay; d++) {
+            forEach(dayCells[d], consumer);
+        }
+    }
+
+    private static void forEach(Cells cells, PairConsumer consumer) {
+        for (int i = 0; i < cells.keys.length; i++) {
+            consumer.accept((int) (cells.keys[i] >>> 32), (int) cells.keys[i], cells.counts[i]);
+        }
+    }
+
+    private static int lowerBound(int[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
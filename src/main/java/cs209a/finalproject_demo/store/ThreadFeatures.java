@@ -0,0 +1,163 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.util.HtmlTokenizer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * 加载时从文本字段提取的逐线程特征，下标与 ThreadStore 的线程 id 一致。
+ * 分析服务直接读取这些原始类型列，请求的开销与正文长度无关。
+ * <p>
+ * 字段不存在时长度类特征为 -1（没有正文 / 标题），首个回答延迟为 {@link #NO_DELAY}。
+ * 提取按线程并行，每个线程只写自己的下标。构建后不可变。
+ */
+public final class ThreadFeatures {
+    /** 没有创建时间或没有回答时的首个回答延迟 */
+    public static final long NO_DELAY = Long.MIN_VALUE;
+
+    private static final Pattern CODE_PATTERN = Pattern.compile("<code>|<pre>|```", Pattern.CASE_INSENSITIVE);
+
+    private final int size;
+    private final int[] bodyCharacters;
+    private final int[] bodyWords;
+    private final int[] codeBlocks;
+    private final boolean[] hasCode;
+    private final int[] titleCharacters;
+    private final int[] titleWords;
+    private final int[] answerCount;
+    // 秒
+    private final long[] firstAnswerDelay;
+    // 标题、标题或正文、第一个回答的正文中出现了关键词的主题掩码，见 TopicKeywordMatcher
+    private final long[] titleTopics;
+    private final long[] questionTopics;
+    private final long[] firstAnswerTopics;
+    private final TopicKeywordMatcher keywordMatcher;
+
+    private ThreadFeatures(TopicKeywordMatcher keywordMatcher, int size, int[] bodyCharacters, int[] bodyWords,
+                           int[] codeBlocks, boolean[] hasCode, int[] titleCharacters, int[] titleWords,
+                           int[] answerCount, long[] firstAnswerDelay, long[] titleTopics,
+                           long[] questionTopics, long[] firstAnswerTopics) {
+        this.keywordMatcher = keywordMatcher;
+        this.size = size;
+        this.bodyCharacters = bodyCharacters;
+        this.bodyWords = bodyWords;
+        this.codeBlocks = codeBlocks;
+        this.hasCode = hasCode;
+        this.titleCharacters = titleCharacters;
+        this.titleWords = titleWords;
+        this.answerCount = answerCount;
+        this.firstAnswerDelay = firstAnswerDelay;
+        this.titleTopics = titleTopics;
+        this.questionTopics = questionTopics;
+        this.firstAnswerTopics = firstAnswerTopics;
+    }
+
+    public static ThreadFeatures extract(ThreadStore store, TopicKeywordMatcher keywordMatcher) {
+        return new ThreadFeatures(keywordMatcher, 0, new int[0], new int[0], new int[0], new boolean[0], new int[0],
+                new int[0], new int[0], new long[0], new long[0], new long[0], new long[0]).append(store);
+    }
+
+    /**
+     * 为 store 中 id >= 当前 size 的新线程提取特征，返回新的实例；已有线程的特征直接复制
+     */
+    public ThreadFeatures append(ThreadStore next) {
+        int n = next.size();
+        ThreadFeatures features = new ThreadFeatures(keywordMatcher, n,
+                Arrays.copyOf(bodyCharacters, n), Arrays.copyOf(bodyWords, n), Arrays.copyOf(codeBlocks, n),
+                Arrays.copyOf(hasCode, n), Arrays.copyOf(titleCharacters, n), Arrays.copyOf(titleWords, n),
+                Arrays.copyOf(answerCount, n), Arrays.copyOf(firstAnswerDelay, n),
+                Arrays.copyOf(titleTopics, n), Arrays.copyOf(questionTopics, n), Arrays.copyOf(firstAnswerTopics, n));
+        IntStream.range(size, n).parallel().forEach(id -> features.fill(next, id));
+        return features;
+    }
+
+    private void fill(ThreadStore store, int id) {
+        StackOverflowThread thread = store.thread(id);
+        Question question = thread.getQuestion();
+
+        String body = question == null ? null : question.getBody();
+        bodyCharacters[id] = body == null ? -1 : body.length();
+        if (body != null) {
+            bodyWords[id] = HtmlTokenizer.countWords(body);
+            codeBlocks[id] = countCodeBlocks(body);
+            hasCode[id] = CODE_PATTERN.matcher(body).find();
+        }
+
+        String title = question == null ? null : question.getTitle();
+        titleCharacters[id] = title == null ? -1 : title.length();
+        if (title != null) {
+            titleWords[id] = HtmlTokenizer.countWords(title);
+        }
+        titleTopics[id] = keywordMatcher.match(title);
+        questionTopics[id] = titleTopics[id] | keywordMatcher.match(body);
+
+        List<Answer> answers = thread.getAnswers();
+        answerCount[id] = answers == null ? 0 : answers.size();
+        firstAnswerDelay[id] = NO_DELAY;
+        if (answerCount[id] > 0) {
+            Answer first = answers.get(0);
+            if (first != null) {
+                firstAnswerTopics[id] = keywordMatcher.match(first.getBody());
+            }
+            if (store.hasCreationDate(id)) {
+                // 最早的回答时间，没有回答带时间时为 0
+                long questionTime = store.creationDate(id);
+                long firstAnswerTime = Long.MAX_VALUE;
+                for (Answer answer : answers) {
+                    if (answer != null && answer.getCreationDate() != null) {
+                        firstAnswerTime = Math.min(firstAnswerTime, answer.getCreationDate());
+                    }
+                }
+                firstAnswerDelay[id] = firstAnswerTime == Long.MAX_VALUE ? 0 : firstAnswerTime - questionTime;
+            }
+        }
+    }
+
+    /**
+     * 统计代码块数量：&lt;code&gt;、&lt;pre&gt; 和 ```（Markdown代码块）不重叠出现的次数之和
+     */
+    static int countCodeBlocks(String text) {
+        return occurrences(text, "<code>") + occurrences(text, "<pre>") + occurrences(text, "```");
+    }
+
+    /** 不重叠出现的次数，与 text.split(literal, -1).length - 1 相同 */
+    private static int occurrences(String text, String literal) {
+        int count = 0;
+        for (int at = text.indexOf(literal); at >= 0; at = text.indexOf(literal, at + literal.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    public int size() { return size; }
+
+    public boolean hasBody(int id) { return bodyCharacters[id] >= 0; }
+    public int bodyCharacters(int id) { return bodyCharacters[id]; }
+    /** 去掉 HTML 标签后按空白分割的单词数 */
+    public int bodyWords(int id) { return bodyWords[id]; }
+    public int codeBlocks(int id) { return codeBlocks[id]; }
+    /** 正文包含 &lt;code&gt;、&lt;pre&gt; 或 ```（不区分大小写） */
+    public boolean hasCode(int id) { return hasCode[id]; }
+
+    public boolean hasTitle(int id) { return titleCharacters[id] >= 0; }
+    public int titleCharacters(int id) { return titleCharacters[id]; }
+    public int titleWords(int id) { return titleWords[id]; }
+
+    public boolean hasAnswers(int id) { return answerCount[id] > 0; }
+    /** 问题创建到最早回答的秒数，为 {@link #NO_DELAY} 时表示没有创建时间或没有回答 */
+    public long firstAnswerDelay(int id) { return firstAnswerDelay[id]; }
+
+    /** 标题中出现了关键词的主题掩码 */
+    public long titleTopics(int id) { return titleTopics[id]; }
+    /** 标题或正文中出现了关键词的主题掩码 */
+    public long questionTopics(int id) { return questionTopics[id]; }
+    /** 第一个回答的正文中出现了关键词的主题掩码 */
+    public long firstAnswerTopics(int id) { return firstAnswerTopics[id]; }
+}
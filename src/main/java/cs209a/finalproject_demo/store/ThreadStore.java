@@ -0,0 +1,299 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式存储的语料：每个字段一列原始类型数组，下标即线程 id（与加载顺序一致）。
+ * 可能为 null 的字段另有一个 BitSet 记录是否存在；标签做字典编码，按 CSR 方式存放。
+ * 原始线程对象仍然保留：并发问题匹配、标题关键词和二进制快照需要正文等文本字段，只有数值和标签改为列式读取。
+ * 构建完成后不可变，可以被多个请求线程并发读取。
+ */
+public final class ThreadStore {
+    private final int size;
+    private final List<StackOverflowThread> threads;
+
+    private final BitSet hasQuestion;
+    private final int[] score;
+    private final BitSet hasScore;
+    private final int[] viewCount;
+    private final BitSet hasViewCount;
+    private final int[] reputation;
+    private final BitSet hasReputation;
+    private final long[] creationDate;
+    private final BitSet hasCreationDate;
+    private final BitSet accepted;
+    private final BitSet answered;
+
+    // 标签字典与 CSR：线程 i 的标签 id 位于 tagIds[tagOffsets[i] .. tagOffsets[i + 1])
+    private final String[] tagNames;
+    private final Map<String, Integer> tagIdsByName;
+    private final BitSet hasTags;
+    private final int[] tagOffsets;
+    private final int[] tagIds;
+    // 标签列表中 null 元素的个数，只记录有 null 的线程（通常为空）
+    private final Map<Integer, Integer> nullTagCounts;
+
+    private ThreadStore(Builder builder) {
+        this.size = builder.size;
+        this.threads = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(builder.threads, size)));
+        this.hasQuestion = builder.hasQuestion;
+        this.score = Arrays.copyOf(builder.score, size);
+        this.hasScore = builder.hasScore;
+        this.viewCount = Arrays.copyOf(builder.viewCount, size);
+        this.hasViewCount = builder.hasViewCount;
+        this.reputation = Arrays.copyOf(builder.reputation, size);
+        this.hasReputation = builder.hasReputation;
+        this.creationDate = Arrays.copyOf(builder.creationDate, size);
+        this.hasCreationDate = builder.hasCreationDate;
+        this.accepted = builder.accepted;
+        this.answered = builder.answered;
+        this.tagNames = builder.tagNames.toArray(new String[0]);
+        this.tagIdsByName = builder.tagIdsByName;
+        this.hasTags = builder.hasTags;
+        this.tagOffsets = Arrays.copyOf(builder.tagOffsets, size + 1);
+        this.tagIds = Arrays.copyOf(builder.tagIds, builder.tagOffsets[size]);
+        this.nullTagCounts = builder.nullTagCounts;
+    }
+
+    public static ThreadStore of(List<StackOverflowThread> threads) {
+        Builder builder = new Builder(threads.size());
+        threads.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * 在当前数据之后追加新线程，返回新的 ThreadStore；已有线程的列直接复制，只为新线程计算派生字段。
+     * 当前实例保持不变。列的复制与语料总量成正比，每次轮询最多追加一次，代价远小于解析新增的行。
+     */
+    public ThreadStore append(List<StackOverflowThread> newThreads) {
+        Builder builder = new Builder(this, newThreads.size());
+        newThreads.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() { return size; }
+
+    /** 原始线程对象，仅在需要读取正文等文本字段时使用 */
+    public StackOverflowThread thread(int id) { return threads.get(id); }
+    public List<StackOverflowThread> threads() { return threads; }
+
+    public boolean hasQuestion(int id) { return hasQuestion.get(id); }
+
+    public boolean hasScore(int id) { return hasScore.get(id); }
+    public int score(int id) { return score[id]; }
+
+    public boolean hasViewCount(int id) { return hasViewCount.get(id); }
+    public int viewCount(int id) { return viewCount[id]; }
+
+    public boolean hasReputation(int id) { return hasReputation.get(id); }
+    public int reputation(int id) { return reputation[id]; }
+
+    public boolean hasCreationDate(int id) { return hasCreationDate.get(id); }
+    public long creationDate(int id) { return creationDate[id]; }
+
+    /** 至少有一个被采纳的回答，即 {@link StackOverflowThread#isSolvable()} */
+    public boolean isAccepted(int id) { return accepted.get(id); }
+    public boolean isAnswered(int id) { return answered.get(id); }
+
+    public boolean hasTags(int id) { return hasTags.get(id); }
+    public int tagCount(int id) { return tagOffsets[id + 1] - tagOffsets[id]; }
+    public int tagId(int id, int index) { return tagIds[tagOffsets[id] + index]; }
+
+    /** 标签列表的长度，与 getTags().size() 相同，包括 null 元素；tagCount 只计非 null 的标签 */
+    public int listedTagCount(int id) { return tagCount(id) + nullTagCounts.getOrDefault(id, 0); }
+
+    public boolean hasAnyTag(int id, BitSet tagIdSet) {
+        for (int k = tagOffsets[id], end = tagOffsets[id + 1]; k < end; k++) {
+            if (tagIdSet.get(tagIds[k])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int tagDictionarySize() { return tagNames.length; }
+    public String tagName(int tagId) { return tagNames[tagId]; }
+
+    /** 标签在字典中的 id，不存在时返回 -1 */
+    public int tagIdOf(String tag) {
+        Integer tagId = tagIdsByName.get(tag);
+        return tagId == null ? -1 : tagId;
+    }
+
+    /** 把一组标签名转换成字典 id 集合，语料中不存在的标签被忽略 */
+    public BitSet tagIdSet(Iterable<String> tags) {
+        BitSet set = new BitSet(tagNames.length);
+        for (String tag : tags) {
+            int tagId = tagIdOf(tag);
+            if (tagId >= 0) {
+                set.set(tagId);
+            }
+        }
+        return set;
+    }
+
+    public static final class Builder {
+        private int size;
+        private StackOverflowThread[] threads;
+        private BitSet hasQuestion = new BitSet();
+        private int[] score;
+        private BitSet hasScore = new BitSet();
+        private int[] viewCount;
+        private BitSet hasViewCount = new BitSet();
+        private int[] reputation;
+        private BitSet hasReputation = new BitSet();
+        private long[] creationDate;
+        private BitSet hasCreationDate = new BitSet();
+        private BitSet accepted = new BitSet();
+        private BitSet answered = new BitSet();
+
+        private final List<String> tagNames;
+        private final Map<String, Integer> tagIdsByName;
+        private final BitSet hasTags;
+        private int[] tagOffsets;
+        private int[] tagIds;
+        private final Map<Integer, Integer> nullTagCounts;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            threads = new StackOverflowThread[capacity];
+            score = new int[capacity];
+            viewCount = new int[capacity];
+            reputation = new int[capacity];
+            creationDate = new long[capacity];
+            tagNames = new ArrayList<>();
+            tagIdsByName = new HashMap<>();
+            hasTags = new BitSet();
+            tagOffsets = new int[capacity + 1];
+            tagIds = new int[capacity * 3];
+            nullTagCounts = new HashMap<>();
+        }
+
+        /**
+         * 以已有的 store 为起点继续追加，线程 id 与标签 id 保持不变
+         */
+        public Builder(ThreadStore base, int expectedExtra) {
+            int capacity = base.size + Math.max(16, expectedExtra);
+            size = base.size;
+            threads = Arrays.copyOf(base.threads.toArray(new StackOverflowThread[0]), capacity);
+            hasQuestion = (BitSet) base.hasQuestion.clone();
+            score = Arrays.copyOf(base.score, capacity);
+            hasScore = (BitSet) base.hasScore.clone();
+            viewCount = Arrays.copyOf(base.viewCount, capacity);
+            hasViewCount = (BitSet) base.hasViewCount.clone();
+            reputation = Arrays.copyOf(base.reputation, capacity);
+            hasReputation = (BitSet) base.hasReputation.clone();
+            creationDate = Arrays.copyOf(base.creationDate, capacity);
+            hasCreationDate = (BitSet) base.hasCreationDate.clone();
+            accepted = (BitSet) base.accepted.clone();
+            answered = (BitSet) base.answered.clone();
+            tagNames = new ArrayList<>(Arrays.asList(base.tagNames));
+            tagIdsByName = new HashMap<>(base.tagIdsByName);
+            hasTags = (BitSet) base.hasTags.clone();
+            tagOffsets = Arrays.copyOf(base.tagOffsets, capacity + 1);
+            tagIds = Arrays.copyOf(base.tagIds, Math.max(16, base.tagIds.length + expectedExtra * 3));
+            nullTagCounts = new HashMap<>(base.nullTagCounts);
+        }
+
+        public Builder add(StackOverflowThread thread) {
+            ensureCapacity(size + 1);
+            int id = size++;
+            threads[id] = thread;
+            tagOffsets[id + 1] = tagOffsets[id];
+
+            if (isAccepted(thread.getAnswers())) {
+                accepted.set(id);
+            }
+
+            Question question = thread.getQuestion();
+            if (question == null) {
+                return this;
+            }
+            hasQuestion.set(id);
+            if (question.getScore() != null) {
+                hasScore.set(id);
+                score[id] = question.getScore();
+            }
+            if (question.getViewCount() != null) {
+                hasViewCount.set(id);
+                viewCount[id] = question.getViewCount();
+            }
+            if (question.getOwner() != null && question.getOwner().getReputation() != null) {
+                hasReputation.set(id);
+                reputation[id] = question.getOwner().getReputation();
+            }
+            if (question.getCreationDate() != null) {
+                hasCreationDate.set(id);
+                creationDate[id] = question.getCreationDate();
+            }
+            if (Boolean.TRUE.equals(question.getIsAnswered())) {
+                answered.set(id);
+            }
+            if (question.getTags() != null) {
+                hasTags.set(id);
+                for (String tag : question.getTags()) {
+                    if (tag != null) {
+                        appendTag(id, tag);
+                    } else {
+                        nullTagCounts.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public ThreadStore build() {
+            return new ThreadStore(this);
+        }
+
+        private void appendTag(int id, String tag) {
+            Integer tagId = tagIdsByName.get(tag);
+            if (tagId == null) {
+                tagId = tagNames.size();
+                tagNames.add(tag);
+                tagIdsByName.put(tag, tagId);
+            }
+            int pos = tagOffsets[id + 1];
+            if (pos == tagIds.length) {
+                tagIds = Arrays.copyOf(tagIds, tagIds.length * 2);
+            }
+            tagIds[pos] = tagId;
+            tagOffsets[id + 1] = pos + 1;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= threads.length) {
+                return;
+            }
+            int capacity = Math.max(required, threads.length * 2);
+            threads = Arrays.copyOf(threads, capacity);
+            score = Arrays.copyOf(score, capacity);
+            viewCount = Arrays.copyOf(viewCount, capacity);
+            reputation = Arrays.copyOf(reputation, capacity);
+            creationDate = Arrays.copyOf(creationDate, capacity);
+            tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+        }
+
+        private static boolean isAccepted(List<Answer> answers) {
+            if (answers == null) {
+                return false;
+            }
+            for (Answer answer : answers) {
+                if (answer != null && Boolean.TRUE.equals(answer.getIsAccepted())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
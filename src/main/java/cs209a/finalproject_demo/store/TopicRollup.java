@@ -0,0 +1,267 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Comment;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.util.LongLongHashMap;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 主题 × 天的预聚合（rollup cube），供主题趋势和活跃度查询使用。
+ * <p>
+ * 线程属于某主题 = 问题带有该主题的任一关键词标签。日期均为系统时区下的 epoch day。
+ * <ul>
+ *     <li>问题数：问题创建日 -> 线程数</li>
+ *     <li>活跃度：(问题创建日, 事件日) -> 分数之和。按问题创建日过滤、按事件（问题/回答/评论）
+ *     发生日分桶，因此需要保留两个日期。分数以十分之一为单位存为整数
+ *     （问题 10、回答 8、评论 5 倍 ReLU(score)），求和没有浮点误差。</li>
+ * </ul>
+ * 每个单元按问题创建日排序存放在原始类型数组中，区间查询二分定位后顺序扫描。构建后不可变。
+ */
+public final class TopicRollup {
+    private static final long QUESTION_WEIGHT = 10;
+    private static final long ANSWER_WEIGHT = 8;
+    private static final long COMMENT_WEIGHT = 5;
+
+    private final TopicKeywordsConfig topicKeywordsConfig;
+    private final ZoneId zone;
+    private final int size;
+    private final Map<String, Cells> cellsByTopic;
+
+    /** 接收问题数单元 */
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(int epochDay, int count);
+    }
+
+    /** 接收活跃度单元，分数以十分之一为单位 */
+    @FunctionalInterface
+    public interface ScoreConsumer {
+        void accept(int eventEpochDay, long scoreTenths);
+    }
+
+    private static final class Cells {
+        static final Cells EMPTY = new Cells(new int[0], new int[0], new int[0], new int[0], new long[0]);
+
+        // 问题数，按日期升序
+        final int[] questionDays;
+        final int[] questionCounts;
+        // 活跃度，按问题创建日升序
+        final int[] activityQuestionDays;
+        final int[] activityEventDays;
+        final long[] activityTenths;
+
+        Cells(int[] questionDays, int[] questionCounts, int[] activityQuestionDays,
+              int[] activityEventDays, long[] activityTenths) {
+            this.questionDays = questionDays;
+            this.questionCounts = questionCounts;
+            this.activityQuestionDays = activityQuestionDays;
+            this.activityEventDays = activityEventDays;
+            this.activityTenths = activityTenths;
+        }
+    }
+
+    private TopicRollup(TopicKeywordsConfig topicKeywordsConfig, ZoneId zone, int size, Map<String, Cells> cellsByTopic) {
+        this.topicKeywordsConfig = topicKeywordsConfig;
+        this.zone = zone;
+        this.size = size;
+        this.cellsByTopic = cellsByTopic;
+    }
+
+    public static TopicRollup build(ThreadStore store, TopicKeywordsConfig topicKeywordsConfig, ZoneId zone) {
+        return new TopicRollup(topicKeywordsConfig, zone, 0, new LinkedHashMap<>()).append(store);
+    }
+
+    /**
+     * 把 store 中 id >= 当前 size 的新线程计入，返回新的 rollup；只重建有新线程的主题
+     */
+    public TopicRollup append(ThreadStore next) {
+        List<String> topics = new ArrayList<>();
+        List<BitSet> keywordTags = new ArrayList<>();
+        topicKeywordsConfig.getTopicKeywords().forEach((topic, keywords) -> {
+            topics.add(topic);
+            keywordTags.add(next.tagIdSet(keywords));
+        });
+
+        CellsBuilder[] builders = new CellsBuilder[topics.size()];
+        Events events = new Events();
+        for (int id = size; id < next.size(); id++) {
+            if (!next.hasCreationDate(id)) {
+                continue;
+            }
+            // 一个线程的事件只展开一次，再计入它所属的每个主题
+            events.clear();
+            for (int t = 0; t < topics.size(); t++) {
+                if (!next.hasAnyTag(id, keywordTags.get(t))) {
+                    continue;
+                }
+                if (events.size == 0) {
+                    collectEvents(events, next, id);
+                }
+                if (builders[t] == null) {
+                    builders[t] = new CellsBuilder(cellsByTopic.getOrDefault(topics.get(t), Cells.EMPTY));
+                }
+                builders[t].add(events);
+            }
+        }
+
+        Map<String, Cells> cells = new LinkedHashMap<>(cellsByTopic);
+        for (int t = 0; t < topics.size(); t++) {
+            if (builders[t] != null) {
+                cells.put(topics.get(t), builders[t].build());
+            }
+        }
+        return new TopicRollup(topicKeywordsConfig, zone, next.size(), cells);
+    }
+
+    private void collectEvents(Events events, ThreadStore store, int id) {
+        events.questionDay = epochDay(store.creationDate(id));
+        events.add(events.questionDay, QUESTION_WEIGHT * relu(store.hasScore(id) ? store.score(id) : null));
+
+        StackOverflowThread thread = store.thread(id);
+        if (thread.getAnswers() != null) {
+            for (Answer answer : thread.getAnswers()) {
+                if (answer != null && answer.getCreationDate() != null) {
+                    events.add(epochDay(answer.getCreationDate()), ANSWER_WEIGHT * relu(answer.getScore()));
+                }
+            }
+        }
+        collectComments(events, thread.getQuestionComments());
+        if (thread.getAnswerComments() != null) {
+            for (List<Comment> comments : thread.getAnswerComments().values()) {
+                collectComments(events, comments);
+            }
+        }
+    }
+
+    private void collectComments(Events events, List<Comment> comments) {
+        if (comments == null) {
+            return;
+        }
+        for (Comment comment : comments) {
+            if (comment != null && comment.getCreationDate() != null) {
+                events.add(epochDay(comment.getCreationDate()), COMMENT_WEIGHT * relu(comment.getScore()));
+            }
+        }
+    }
+
+    private int epochDay(long epochSecond) {
+        return (int) Instant.ofEpochSecond(epochSecond).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private static int relu(Integer score) {
+        return score == null ? 0 : Math.max(0, score);
+    }
+
+    /**
+     * 问题创建日位于 [fromDay, toDay]（含两端）的问题数，按日期升序回调
+     */
+    public void forEachQuestionCount(String topic, long fromDay, long toDay, CountConsumer consumer) {
+        Cells cells = cellsByTopic.getOrDefault(topic, Cells.EMPTY);
+        for (int i = lowerBound(cells.questionDays, fromDay); i < cells.questionDays.length
+                && cells.questionDays[i] <= toDay; i++) {
+            consumer.accept(cells.questionDays[i], cells.questionCounts[i]);
+        }
+    }
+
+    /**
+     * 问题创建日位于 [fromDay, toDay]（含两端）的线程产生的活跃度，按事件发生日回调；
+     * 每个有事件的日期至少回调一次，分数可能为 0
+     */
+    public void forEachActivity(String topic, long fromDay, long toDay, ScoreConsumer consumer) {
+        Cells cells = cellsByTopic.getOrDefault(topic, Cells.EMPTY);
+        for (int i = lowerBound(cells.activityQuestionDays, fromDay); i < cells.activityQuestionDays.length
+                && cells.activityQuestionDays[i] <= toDay; i++) {
+            consumer.accept(cells.activityEventDays[i], cells.activityTenths[i]);
+        }
+    }
+
+    private static int lowerBound(int[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** 一个线程展开后的事件：问题创建日，以及每个事件的发生日和分数 */
+    private static final class Events {
+        int questionDay;
+        int size;
+        int[] days = new int[16];
+        long[] tenths = new long[16];
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int day, long score) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                tenths = Arrays.copyOf(tenths, size * 2);
+            }
+            days[size] = day;
+            tenths[size++] = score;
+        }
+    }
+
+    private static final class CellsBuilder {
+        final Map<Integer, Integer> questionCounts = new HashMap<>();
+        // key = 问题创建日 << 32 | 事件日
+        final LongLongHashMap activity = new LongLongHashMap();
+
+        CellsBuilder(Cells base) {
+            for (int i = 0; i < base.questionDays.length; i++) {
+                questionCounts.put(base.questionDays[i], base.questionCounts[i]);
+            }
+            for (int i = 0; i < base.activityQuestionDays.length; i++) {
+                activity.addTo(key(base.activityQuestionDays[i], base.activityEventDays[i]), base.activityTenths[i]);
+            }
+        }
+
+        void add(Events events) {
+            questionCounts.merge(events.questionDay, 1, Integer::sum);
+            for (int i = 0; i < events.size; i++) {
+                activity.addTo(key(events.questionDay, events.days[i]), events.tenths[i]);
+            }
+        }
+
+        static long key(int questionDay, int eventDay) {
+            return ((long) questionDay << 32) | (eventDay & 0xFFFFFFFFL);
+        }
+
+        Cells build() {
+            int[] days = questionCounts.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] counts = new int[days.length];
+            for (int i = 0; i < days.length; i++) {
+                counts[i] = questionCounts.get(days[i]);
+            }
+            long[] keys = activity.sortedKeys();
+            int[] questionDays = new int[keys.length];
+            int[] eventDays = new int[keys.length];
+            long[] tenths = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                questionDays[i] = (int) (keys[i] >> 32);
+                eventDays[i] = (int) keys[i];
+                tenths[i] = activity.get(keys[i], 0);
+            }
+            return new Cells(days, counts, questionDays, eventDays, tenths);
+        }
+    }
+}
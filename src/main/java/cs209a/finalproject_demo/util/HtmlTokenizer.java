@@ -0,0 +1,93 @@
+package cs209a.finalproject_demo.util;
+
+/**
+ * 按空白分词并跳过 HTML 标签，一次顺序扫描，不创建中间字符串、正则或数组。
+ * <p>
+ * 结果与下面的写法完全相同（包括它的边界行为）：
+ * <pre>
+ * if (text == null || text.trim().isEmpty()) return 0;
+ * return text.replaceAll("&lt;[^&gt;]+&gt;", " ").trim().split("\\s+").length;
+ * </pre>
+ * 即：标签（"&lt;" 后至少一个字符直到第一个 "&gt;"）视为一个空格；单词是不含
+ * " \t\n\u000B\f\r" 的最长连续片段；首尾 &lt;= ' ' 的字符被 trim 掉。
+ * 原文非空白但去掉标签后只剩空白时，split 返回一个空串，因此计为 1。
+ * HTML 实体（如 &amp;amp;）按普通字符处理，与原写法一致。
+ */
+public final class HtmlTokenizer {
+    private HtmlTokenizer() {
+    }
+
+    public static int countWords(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int n = text.length();
+        // 下一个 '>' 的位置；'<' 与它之间没有其他 '>'，可以复用到越过它为止
+        int nextClose = -1;
+        boolean anySignificant = false;
+        boolean anySignificantAfterTags = false;
+        // 当前单词的序号（从 1 开始），以及首个 / 最后一个 > ' ' 字符所在单词的序号
+        int words = 0;
+        boolean inWord = false;
+        int firstWord = 0;
+        int lastWord = 0;
+
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                if (nextClose <= i) {
+                    nextClose = indexOf(text, '>', i + 1);
+                    if (nextClose < 0) {
+                        nextClose = Integer.MAX_VALUE;
+                    }
+                }
+                if (nextClose != Integer.MAX_VALUE && nextClose > i + 1) {
+                    // 整个标签替换为一个空格；'<' 本身使 text.trim() 非空
+                    anySignificant = true;
+                    inWord = false;
+                    i = nextClose;
+                    continue;
+                }
+            }
+            if (isWhitespace(c)) {
+                inWord = false;
+                continue;
+            }
+            if (!inWord) {
+                inWord = true;
+                words++;
+            }
+            if (c > ' ') {
+                anySignificant = true;
+                if (!anySignificantAfterTags) {
+                    anySignificantAfterTags = true;
+                    firstWord = words;
+                }
+                lastWord = words;
+            }
+        }
+
+        if (!anySignificant) {
+            return 0;
+        }
+        // trim 后为空串时 split 返回 [""]
+        return anySignificantAfterTags ? lastWord - firstWord + 1 : 1;
+    }
+
+    /** 与正则 \s 相同 */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int indexOf(CharSequence text, char target, int from) {
+        if (text instanceof String s) {
+            return s.indexOf(target, from);
+        }
+        for (int i = from, n = text.length(); i < n; i++) {
+            if (text.charAt(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,131 @@
+package cs209a.finalproject_demo.util;
+
+import java.util.Arrays;
+
+/**
+ * 按 (score, key) 选出排名最靠前的 k 项：score 大的在前，score 相同时 key 小的在前，结果与输入顺序无关。
+ * <p>
+ * 用大小为 k 的最小堆（堆顶是当前保留的项中排名最靠后的一个），score 和 key 存在两个 long 数组中，
+ * 比较时不装箱；M 项选取的代价为 O(M log k)。k 来自请求参数，可能远大于候选项数，数组按需增长到 k 为止。并行统计时每个分片各自维护一个 TopK，
+ * 最后用 {@link #merge} 合并，合并结果与顺序选取相同。非线程安全。
+ */
+public final class TopK {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private long[] scores;
+    private long[] keys;
+    private int size;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long score, long key);
+    }
+
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+        this.k = k;
+        this.scores = new long[Math.min(k, INITIAL_CAPACITY)];
+        this.keys = new long[scores.length];
+    }
+
+    public int k() { return k; }
+
+    public int size() { return size; }
+
+    public void offer(long score, long key) {
+        if (size < k) {
+            if (size == scores.length) {
+                grow();
+            }
+            scores[size] = score;
+            keys[size] = key;
+            siftUp(size++);
+        } else if (k > 0 && ranksBefore(score, key, scores[0], keys[0])) {
+            scores[0] = score;
+            keys[0] = key;
+            siftDown(0, size);
+        }
+    }
+
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.keys[i]);
+        }
+    }
+
+    /** 按排名从前到后回调保留的项，不改变本对象 */
+    public void forEachRanked(EntryConsumer consumer) {
+        long[] rankedScores = new long[size];
+        long[] rankedKeys = new long[size];
+        TopK heap = copy();
+        // 依次弹出的是排名最靠后的，从后往前填
+        for (int end = size - 1; end >= 0; end--) {
+            rankedScores[end] = heap.scores[0];
+            rankedKeys[end] = heap.keys[0];
+            heap.scores[0] = heap.scores[end];
+            heap.keys[0] = heap.keys[end];
+            heap.siftDown(0, end);
+        }
+        for (int i = 0; i < size; i++) {
+            consumer.accept(rankedScores[i], rankedKeys[i]);
+        }
+    }
+
+    private TopK copy() {
+        TopK copy = new TopK(k);
+        copy.scores = Arrays.copyOf(scores, size);
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(k, Math.max(INITIAL_CAPACITY, 2L * scores.length));
+        scores = Arrays.copyOf(scores, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    /** (score, key) 是否排在 (otherScore, otherKey) 前面 */
+    private static boolean ranksBefore(long score, long key, long otherScore, long otherKey) {
+        return score != otherScore ? score > otherScore : key < otherKey;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBefore(scores[parent], keys[parent], scores[i], keys[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < end; child++) {
+                if (ranksBefore(scores[worst], keys[worst], scores[child], keys[child])) {
+                    worst = child;
+                }
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+}
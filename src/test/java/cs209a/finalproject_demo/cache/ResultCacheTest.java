@@ -0,0 +1,91 @@
+package cs209a.finalproject_demo.cache;
+
+import cs209a.finalproject_demo.service.DataLoaderService;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultCacheTest {
+    private final DataLoaderService dataLoaderService = mock(DataLoaderService.class);
+    private final ResultCache cache = new ResultCache(dataLoaderService);
+    private final AtomicInteger computations = new AtomicInteger();
+
+    ResultCacheTest() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        // 每个结果是一个 3 个元素的 List，权重 4
+        ReflectionTestUtils.setField(cache, "maxWeight", 10L);
+        publish(1);
+    }
+
+    @Test
+    void hitsUntilNewVersionIsPublished() {
+        List<Integer> first = get("a");
+        assertSame(first, get("a"));
+        assertEquals(1, computations.get());
+
+        publish(2);
+        get("a");
+        assertEquals(2, computations.get());
+        assertStats(1, 2, 0, 1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxWeight() {
+        get("a");
+        get("b");
+        get("a");
+        // a 最近使用过，c 放入后淘汰 b
+        get("c");
+        get("a");
+        get("b");
+        assertEquals(4, computations.get());
+        assertStats(2, 4, 2, 0);
+        assertEquals(8L, cache.stats().get("weight"));
+    }
+
+    @Test
+    void cachedMapsAndListsAreReadOnly() {
+        Map<String, Object> result = cache.get("map", List.of(), () -> {
+            Map<String, Object> map = new HashMap<>();
+            map.put("list", new ArrayList<>(List.of(1, 2)));
+            map.put("nested", new HashMap<>(Map.of("k", 1)));
+            return map;
+        });
+        assertThrows(UnsupportedOperationException.class, () -> result.put("x", 1));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) result.get("list")).clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> ((Map<?, ?>) result.get("nested")).remove("k"));
+    }
+
+    private List<Integer> get(String key) {
+        return cache.get("test", List.of(key), () -> {
+            computations.incrementAndGet();
+            return new ArrayList<>(List.of(1, 2, 3));
+        });
+    }
+
+    private void publish(long version) {
+        when(dataLoaderService.getSnapshot())
+                .thenReturn(new CorpusSnapshot(version, null, null, null, null, null, null));
+    }
+
+    private void assertStats(long hits, long misses, long evictions, long invalidations) {
+        Map<String, Object> stats = cache.stats();
+        assertEquals(hits, stats.get("hits"));
+        assertEquals(misses, stats.get("misses"));
+        assertEquals(evictions, stats.get("evictions"));
+        assertEquals(invalidations, stats.get("invalidations"));
+    }
+}
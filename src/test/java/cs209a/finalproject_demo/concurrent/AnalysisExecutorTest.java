@@ -0,0 +1,96 @@
+package cs209a.finalproject_demo.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisExecutorTest {
+
+    @Test
+    void resultsInTaskOrderAndSlowTasksCancelledAtDeadline() throws InterruptedException {
+        AnalysisExecutor executor = new AnalysisExecutor();
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        ReflectionTestUtils.setField(executor, "deadlineMs", 200L);
+        ReflectionTestUtils.setField(executor, "threads", 2);
+        executor.start();
+        try {
+            List<Callable<Integer>> ordered = List.of(() -> {
+                Thread.sleep(50);
+                return 1;
+            }, () -> 2, () -> 3);
+            assertEquals(List.of(1, 2, 3), executor.invokeAll("ordered", ordered));
+
+            AtomicBoolean interrupted = new AtomicBoolean();
+            AtomicBoolean exited = new AtomicBoolean();
+            List<Callable<Integer>> slow = List.of(() -> 1, () -> {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    // 收到中断后还要一段时间才退出
+                    busyWait(100);
+                } finally {
+                    exited.set(true);
+                }
+                return 2;
+            });
+            assertThrows(AnalysisTimeoutException.class, () -> executor.invokeAll("slow", slow));
+            // 超时后剩下的子任务被中断，并且在 invokeAll 返回前已经退出
+            assertTrue(interrupted.get());
+            assertTrue(exited.get());
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    void failureWaitsForCancelledTasksIncludingOnesNotStarted() {
+        AnalysisExecutor executor = new AnalysisExecutor();
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        ReflectionTestUtils.setField(executor, "deadlineMs", 10_000L);
+        // 两个线程的平台线程池：第三个子任务通常在失败时还没有开始，取消后不会再运行
+        ReflectionTestUtils.setField(executor, "threads", 2);
+        executor.start();
+        try {
+            AtomicInteger running = new AtomicInteger();
+            CountDownLatch failing = new CountDownLatch(1);
+            List<Callable<Integer>> tasks = List.of(() -> {
+                failing.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("failed");
+            }, () -> {
+                running.incrementAndGet();
+                try {
+                    failing.countDown();
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    busyWait(100);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return 2;
+            }, () -> 3);
+            assertThrows(IllegalStateException.class, () -> executor.invokeAll("failing", tasks));
+            assertEquals(0, running.get());
+        } finally {
+            executor.stop();
+        }
+    }
+
+    /** 不响应中断的一段计算 */
+    private static void busyWait(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package cs209a.finalproject_demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.cache.ResultCache;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.result.PairRanking;
+import cs209a.finalproject_demo.result.TagNeighbours;
+import cs209a.finalproject_demo.service.DataLoaderService;
+import cs209a.finalproject_demo.service.TopOccurrenceService;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TopOcurrenceControllerTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final TopOccurrenceService service;
+    private final MockMvc mockMvc;
+
+    TopOcurrenceControllerTest() {
+        TopicKeywordsConfig config = new TopicKeywordsConfig();
+        DataLoaderService dataLoaderService = mock(DataLoaderService.class);
+        when(dataLoaderService.getSnapshot()).thenReturn(CorpusSnapshot.build(1,
+                ThreadStore.of(SyntheticCorpus.threads(3000, 43)), config, ZoneId.systemDefault()));
+        service = new TopOccurrenceService(dataLoaderService, config, new AnalysisMetrics(new SimpleMeterRegistry()));
+        ResultCache resultCache = new ResultCache(dataLoaderService);
+        ReflectionTestUtils.setField(resultCache, "enabled", true);
+        ReflectionTestUtils.setField(resultCache, "maxWeight", 1_000_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TopOcurrenceController(service, resultCache,
+                new StreamingJson(objectMapper))).build();
+    }
+
+    @Test
+    void topicAndTagPairsStreamSameJsonAsMapPayload() throws Exception {
+        assertSameBody(json(service.getTopOccurrence(10)), "/api/occurrence/top");
+        assertSameBody(json(service.getTopOccurrence(3)), "/api/occurrence/top?n=3");
+        assertSameBody(json(service.getTopTagOccurrence(25)), "/api/occurrence/tags/top?n=25");
+        String none = json(service.getTopTagOccurrence(0));
+        assertTrue(none.contains("\"coOccurrences\":[]"), none);
+        assertSameBody(none, "/api/occurrence/tags/top?n=0");
+    }
+
+    @Test
+    void rangeAndAmongStreamSameJsonAsMapPayload() throws Exception {
+        assertSameBody(json(service.getTopTagOccurrenceBetween("2013-03-15", "2015-06-30", 15)),
+                "/api/occurrence/tags/range?startDate=2013-03-15&endDate=2015-06-30&n=15");
+        String empty = json(service.getTopTagOccurrenceBetween("1990-01-01", "1990-12-31", 10));
+        assertTrue(empty.startsWith("{\"totalPairs\":0,"), empty);
+        assertSameBody(empty, "/api/occurrence/tags/range?startDate=1990-01-01&endDate=1990-12-31");
+
+        List<String> tags = List.of("hibernate", "java", "maven", "no-such-tag", "spring-boot");
+        assertSameBody(json(service.getTopTagOccurrenceAmong(tags, 4)),
+                "/api/occurrence/tags/among?tags=java,spring-boot,hibernate,maven,java,no-such-tag&n=4");
+        String unknown = json(service.getTopTagOccurrenceAmong(List.of("no-such-tag"), 10));
+        assertTrue(unknown.endsWith("\"coOccurrences\":[],\"tags\":[\"no-such-tag\"]}"), unknown);
+        assertSameBody(unknown, "/api/occurrence/tags/among?tags=no-such-tag");
+    }
+
+    @Test
+    void neighboursStreamSameJsonAsMapPayload() throws Exception {
+        assertSameBody(json(service.getTagNeighbours("java", 7)), "/api/occurrence/tags/neighbours?tag=java&n=7");
+        String unknown = json(service.getTagNeighbours("no-such-tag", 10));
+        assertEquals("{\"tag\":\"no-such-tag\",\"totalNeighbours\":0,\"topN\":10,\"neighbours\":[]}", unknown);
+        assertSameBody(unknown, "/api/occurrence/tags/neighbours?tag=no-such-tag");
+    }
+
+    /** 请求两次（第二次命中缓存），响应都与原来的 Map 结果经 Jackson 序列化后的文本逐字相同 */
+    private void assertSameBody(String expected, String uri) throws Exception {
+        for (int round = 0; round < 2; round++) {
+            MvcResult started = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+            String body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/json"))
+                    .andReturn().getResponse().getContentAsString();
+            assertEquals(expected, body, uri);
+        }
+    }
+
+    /** 原来的 Map 结构：LinkedHashMap 保持字段顺序，日期区间和标签子集附在末尾 */
+    private String json(PairRanking ranking) throws Exception {
+        String first = ranking.kind() == PairRanking.Kind.TOPIC ? "topic1" : "tag1";
+        String second = ranking.kind() == PairRanking.Kind.TOPIC ? "topic2" : "tag2";
+        List<Map<String, Object>> pairs = new ArrayList<>();
+        for (PairRanking.Pair pair : ranking.pairs()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put(first, pair.first());
+            entry.put(second, pair.second());
+            entry.put("count", pair.count());
+            pairs.add(entry);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("totalPairs", ranking.totalPairs());
+        payload.put("topN", ranking.topN());
+        payload.put("coOccurrences", pairs);
+        if (ranking.startDate() != null) {
+            payload.put("startDate", ranking.startDate());
+            payload.put("endDate", ranking.endDate());
+        }
+        if (ranking.tags() != null) {
+            payload.put("tags", ranking.tags());
+        }
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    private String json(TagNeighbours neighbours) throws Exception {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (TagNeighbours.Neighbour neighbour : neighbours.neighbours()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("tag", neighbour.tag());
+            entry.put("count", neighbour.count());
+            entries.add(entry);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("tag", neighbours.tag());
+        payload.put("totalNeighbours", neighbours.totalNeighbours());
+        payload.put("topN", neighbours.topN());
+        payload.put("neighbours", entries);
+        return objectMapper.writeValueAsString(payload);
+    }
+}
@@ -0,0 +1,142 @@
+package cs209a.finalproject_demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.cache.ResultCache;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.result.TopicSeries;
+import cs209a.finalproject_demo.result.TopicSeriesResult;
+import cs209a.finalproject_demo.service.DataLoaderService;
+import cs209a.finalproject_demo.service.TopicAnalysisService;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TopicAnalysisControllerTest {
+    // 请求中的顺序，含重复主题和没有关键词的主题
+    private static final List<String> TOPICS =
+            List.of("multithreading", "lambda", "collections", "lambda", "no-such-topic");
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final TopicAnalysisService service;
+    private final MockMvc mockMvc;
+
+    TopicAnalysisControllerTest() {
+        TopicKeywordsConfig config = new TopicKeywordsConfig();
+        DataLoaderService dataLoaderService = mock(DataLoaderService.class);
+        when(dataLoaderService.getSnapshot()).thenReturn(CorpusSnapshot.build(1,
+                ThreadStore.of(SyntheticCorpus.threads(3000, 41)), config, ZoneId.systemDefault()));
+        service = new TopicAnalysisService(dataLoaderService, config,
+                new AnalysisMetrics(new SimpleMeterRegistry()));
+        ResultCache resultCache = new ResultCache(dataLoaderService);
+        ReflectionTestUtils.setField(resultCache, "enabled", true);
+        ReflectionTestUtils.setField(resultCache, "maxWeight", 1_000_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TopicAnalysisController(service, resultCache,
+                new StreamingJson(objectMapper))).build();
+    }
+
+    @Test
+    void trendsStreamSameJsonAsMapPayload() throws Exception {
+        for (String period : List.of("day", "week", "month", "year")) {
+            assertSameAsMapPayload("/api/topics/trend", "2012-02-10", "2016-11-03", period);
+        }
+        // 区间内没有线程时每个主题都是空序列
+        String empty = assertSameAsMapPayload("/api/topics/trend", "1990-01-01", "1990-12-31", "month");
+        assertTrue(empty.contains("\"totalThreads\":0"), empty);
+        assertTrue(empty.contains("\"multithreading\":[]"), empty);
+    }
+
+    @Test
+    void activityStreamsSameJsonAsMapPayload() throws Exception {
+        for (String period : List.of("day", "week", "month", "year")) {
+            assertSameAsMapPayload("/api/topics/activity", "2012-02-10", "2016-11-03", period);
+        }
+        String empty = assertSameAsMapPayload("/api/topics/activity", "1990-01-01", "1990-12-31", "year");
+        assertTrue(empty.contains("\"no-such-topic\":[]"), empty);
+    }
+
+    @Test
+    void periodDefaultsToMonth() throws Exception {
+        String body = body("/api/topics/trend?topics=lambda&startDate=2012-02-10&endDate=2016-11-03");
+        assertEquals(json(service.getTopicTrends(List.of("lambda"), "2012-02-10", "2016-11-03", "month")), body);
+    }
+
+    /** 请求两次（第二次命中缓存），响应都与原来的 Map 结果经 Jackson 序列化后的文本逐字相同 */
+    private String assertSameAsMapPayload(String path, String startDate, String endDate, String period)
+            throws Exception {
+        List<String> sortedTopics = TOPICS.stream().distinct().sorted().toList();
+        TopicSeriesResult result = path.endsWith("/trend")
+                ? service.getTopicTrends(sortedTopics, startDate, endDate, period)
+                : service.getTopicActivityScore(sortedTopics, startDate, endDate, period);
+        String expected = json(result.inOrder(TOPICS));
+        String uri = path + "?topics=" + String.join(",", TOPICS)
+                + "&startDate=" + startDate + "&endDate=" + endDate + "&period=" + period.toUpperCase();
+        for (int round = 0; round < 2; round++) {
+            assertEquals(expected, body(uri), uri);
+        }
+        return expected;
+    }
+
+    private String body(String uri) throws Exception {
+        MvcResult started = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * 原来的 Map 结构：LinkedHashMap 保持字段顺序，问题数为 Long，活跃度为保留两位小数的 Double。
+     * dateRange 原来是 Map.of，两个键的顺序不固定，这里取 start、end
+     */
+    private String json(TopicSeriesResult result) throws Exception {
+        boolean count = result.measure() == TopicSeriesResult.Measure.COUNT;
+        Map<String, List<Map<String, Object>>> byTopic = new LinkedHashMap<>();
+        for (TopicSeries series : result.series()) {
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (int i = 0; i < series.size(); i++) {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("period", series.periods()[i]);
+                if (count) {
+                    point.put("count", series.values()[i]);
+                } else {
+                    point.put("activityScore", Math.round(series.values()[i] / 10.0 * 100.0) / 100.0);
+                }
+                points.add(point);
+            }
+            byTopic.put(series.topic(), points);
+        }
+        Map<String, Object> dateRange = new LinkedHashMap<>();
+        dateRange.put("start", result.startDate());
+        dateRange.put("end", result.endDate());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("period", result.period());
+        payload.put("dateRange", dateRange);
+        payload.put("totalThreads", result.totalThreads());
+        payload.put(count ? "topicTrends" : "topicActivityScore", byTopic);
+        return objectMapper.writeValueAsString(payload);
+    }
+}
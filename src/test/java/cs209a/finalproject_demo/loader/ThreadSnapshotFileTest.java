@@ -0,0 +1,76 @@
+package cs209a.finalproject_demo.loader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ThreadSnapshotFileTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsEveryDecodedField() throws IOException {
+        Path jsonl = dir.resolve("threads.jsonl");
+        SyntheticCorpus.write(jsonl, 2000, 21);
+        ParallelJsonlLoader.Result parsed = new ParallelJsonlLoader(2,
+                () -> new StreamingThreadParser(objectMapper.getFactory(), new ConcurrentHashMap<>())).load(jsonl);
+        List<StackOverflowThread> threads = new ArrayList<>(parsed.getThreads());
+        // 快照要能表示 null 标签、没有问题和没有回答的线程
+        threads.get(0).getQuestion().setTags(Arrays.asList(null, "java", null));
+        threads.get(1).setQuestion(null);
+        threads.get(2).setAnswers(null);
+
+        long checksum = ThreadSnapshotFile.checksum(jsonl, parsed.getEndOffset());
+        Path snapshot = dir.resolve("threads.snapshot");
+        ThreadSnapshotFile.write(snapshot, parsed.getEndOffset(), checksum, 3, threads);
+
+        ThreadSnapshotFile file = ThreadSnapshotFile.open(snapshot);
+        assertEquals(Files.size(jsonl), file.sourceLength());
+        assertEquals(checksum, file.sourceChecksum());
+        assertEquals(threads.size(), file.threadCount());
+        assertEquals(3, file.failCount());
+        List<StackOverflowThread> read = file.readThreads();
+        assertEquals(threads.size(), read.size());
+        for (int i = 0; i < threads.size(); i++) {
+            assertEquals(objectMapper.valueToTree(threads.get(i)), objectMapper.valueToTree(read.get(i)),
+                    "thread " + i);
+        }
+    }
+
+    @Test
+    void rejectsOtherFormatVersionAndTruncatedFiles() throws IOException {
+        Path snapshot = dir.resolve("threads.snapshot");
+        ThreadSnapshotFile.write(snapshot, 0, 0, 0, SyntheticCorpus.threads(500, 5));
+
+        Path truncated = dir.resolve("truncated.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+        ThreadSnapshotFile file = ThreadSnapshotFile.open(truncated);
+        assertThrows(IOException.class, file::readThreads);
+        Files.write(truncated, Arrays.copyOf(bytes, 20));
+        assertThrows(IOException.class, () -> ThreadSnapshotFile.open(truncated));
+
+        // 格式版本紧跟在 8 字节的魔数之后
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeInt(99);
+        }
+        assertThrows(IOException.class, () -> ThreadSnapshotFile.open(snapshot));
+    }
+}
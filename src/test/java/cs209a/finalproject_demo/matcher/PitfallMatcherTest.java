@@ -0,0 +1,65 @@
+package cs209a.finalproject_demo.matcher;
+
+import cs209a.finalproject_demo.config.PatternMatchingConfig;
+import cs209a.finalproject_demo.config.PatternMatchingConfig.PitfallPattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PitfallMatcherTest {
+
+    private final List<PitfallPattern> patterns = new PatternMatchingConfig().concurrencyPatterns();
+    private final PitfallMatcher matcher = new PitfallMatcher(patterns);
+
+    @Test
+    void matchesSameAsRegexPerPattern() {
+        // 用模式本身的片段拼出文本，覆盖大小写、通配跨越换行、非 ASCII 字符等情况
+        List<String> fragments = new ArrayList<>();
+        for (PitfallPattern pattern : patterns) {
+            for (String alternative : pattern.regexStrings) {
+                fragments.addAll(List.of(alternative.split("\\.\\*|\\.")));
+                fragments.add(alternative.replace(".*", " some words ").replace('.', '_'));
+            }
+        }
+        fragments.addAll(List.of(" ", "\n", "\r\n", "<p>", "K", "ſ", "İ", "the ", "THREAD", "Memory"));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int k = 0, n = 1 + random.nextInt(6); k < n; k++) {
+                String fragment = fragments.get(random.nextInt(fragments.size()));
+                text.append(random.nextBoolean() ? fragment.toUpperCase() : fragment);
+            }
+            assertEquals(expected(text.toString()), actual(text.toString()), text::toString);
+        }
+    }
+
+    @Test
+    void requiredLiteralIsLongestRun() {
+        assertEquals("unable to obtain", PitfallMatcher.requiredLiteral("unable to obtain.*connection"));
+        assertEquals("OutOfMemoryError", PitfallMatcher.requiredLiteral("java.lang.OutOfMemoryError"));
+        assertNull(PitfallMatcher.requiredLiteral("a+b"));
+    }
+
+    private BitSet expected(String text) {
+        BitSet matched = new BitSet();
+        for (int p = 0; p < patterns.size(); p++) {
+            if (patterns.get(p).compiledPattern.matcher(text).find()) {
+                matched.set(p);
+            }
+        }
+        return matched;
+    }
+
+    private BitSet actual(String text) {
+        BitSet matched = new BitSet();
+        matcher.matchInto(text, matched);
+        return matched;
+    }
+}
@@ -0,0 +1,52 @@
+package cs209a.finalproject_demo.matcher;
+
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopicKeywordMatcherTest {
+
+    private final Map<String, List<String>> topicKeywords = new TopicKeywordsConfig().getTopicKeywords();
+    private final TopicKeywordMatcher matcher = new TopicKeywordMatcher(topicKeywords);
+
+    @Test
+    void matchesSameAsLowerCaseContains() {
+        // 关键词片段加上大小写变化、KELVIN SIGN、'İ' 等小写后变成 ASCII 的字符
+        List<String> fragments = new ArrayList<>();
+        topicKeywords.values().forEach(keywords -> keywords.forEach(keyword -> {
+            fragments.add(keyword);
+            fragments.add(keyword.substring(0, keyword.length() / 2));
+            fragments.add(keyword.substring(keyword.length() / 2));
+        }));
+        fragments.addAll(List.of(" ", "<p>", "K", "İ", "İO", "ſ", "THREAD", "Map", "é"));
+
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int k = 0, n = 1 + random.nextInt(5); k < n; k++) {
+                String fragment = fragments.get(random.nextInt(fragments.size()));
+                text.append(random.nextBoolean() ? fragment.toUpperCase() : fragment);
+            }
+            assertEquals(expected(text.toString()), matcher.match(text), text::toString);
+        }
+    }
+
+    private long expected(String text) {
+        String lower = text.toLowerCase();
+        long mask = 0;
+        int topic = 0;
+        for (List<String> keywords : topicKeywords.values()) {
+            if (keywords.stream().anyMatch(keyword -> lower.contains(keyword.toLowerCase()))) {
+                mask |= 1L << topic;
+            }
+            topic++;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,214 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.TagCoOccurrenceGraph;
+import cs209a.finalproject_demo.store.ThreadFeatures;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataLoaderServiceTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotIsReusedOnlyWhileItMatchesTheDataFile() throws IOException {
+        Path jsonl = dir.resolve("threads.jsonl");
+        Path snapshot = dir.resolve("threads.snapshot");
+        SyntheticCorpus.write(jsonl, 1000, 1);
+        DataLoaderService first = service(jsonl, snapshot, false);
+        assertTrue(first.reload());
+        assertTrue(Files.exists(snapshot));
+        assertEquals(titles(first), titles(service(jsonl, snapshot, false), 1000));
+
+        // 数据文件被替换：快照记录的长度和校验和对不上，重新解析
+        SyntheticCorpus.write(jsonl, 800, 2);
+        DataLoaderService replaced = service(jsonl, snapshot, false);
+        assertEquals(800, titles(replaced, 800).size());
+
+        // 快照格式版本不同或被截断：读取失败后解析 JSONL
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeInt(99);
+        }
+        assertEquals(titles(replaced), titles(service(jsonl, snapshot, false), 800));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 3));
+        assertEquals(titles(replaced), titles(service(jsonl, snapshot, false), 800));
+    }
+
+    @Test
+    void appendedLinesGiveSameDataAsColdLoad() throws IOException {
+        ByteArrayOutputStream corpus = new ByteArrayOutputStream();
+        SyntheticCorpus.write(corpus, 1000, 3);
+        byte[] bytes = corpus.toByteArray();
+        int line600 = lineStart(bytes, 600);
+        int line601 = lineStart(bytes, 601);
+
+        // 第 601 行只写了一半
+        Path jsonl = dir.resolve("threads.jsonl");
+        Files.write(jsonl, Arrays.copyOf(bytes, line600 + (line601 - line600) / 2));
+        DataLoaderService watched = service(jsonl, null, true);
+        assertTrue(watched.reload());
+        assertEquals(600, watched.getSnapshot().size());
+        assertEquals(0, watched.pollForUpdates());
+        assertEquals(600, watched.getSnapshot().size());
+
+        Files.write(jsonl, Arrays.copyOf(bytes, lineStart(bytes, 750)));
+        assertEquals(150, watched.pollForUpdates());
+        Files.write(jsonl, bytes);
+        assertEquals(250, watched.pollForUpdates());
+
+        DataLoaderService cold = service(jsonl, null, false);
+        assertTrue(cold.reload());
+        assertSameDerivedData(cold.getSnapshot(), watched.getSnapshot());
+    }
+
+    @Test
+    void truncatedOrRotatedFileIsReloadedFromScratch() throws IOException {
+        ByteArrayOutputStream corpus = new ByteArrayOutputStream();
+        SyntheticCorpus.write(corpus, 500, 4);
+        byte[] bytes = corpus.toByteArray();
+        Path jsonl = dir.resolve("threads.jsonl");
+        Files.write(jsonl, bytes);
+        DataLoaderService watched = service(jsonl, null, true);
+        assertTrue(watched.reload());
+        long version = watched.getSnapshot().version();
+
+        Files.write(jsonl, Arrays.copyOf(bytes, lineStart(bytes, 200)));
+        watched.pollForUpdates();
+        assertEquals(200, watched.getSnapshot().size());
+        assertTrue(watched.getSnapshot().version() > version);
+
+        // 轮转：换成另一个更长的文件，已读部分的指纹不同
+        SyntheticCorpus.write(jsonl, 700, 5);
+        watched.pollForUpdates();
+        DataLoaderService cold = service(jsonl, null, false);
+        assertTrue(cold.reload());
+        assertEquals(titles(cold), titles(watched));
+    }
+
+    /** 第 line 行（从 0 开始）的起始偏移 */
+    private static int lineStart(byte[] bytes, int line) {
+        int offset = 0;
+        for (int i = 0; i < line; i++) {
+            while (bytes[offset++] != '\n') {
+            }
+        }
+        return offset;
+    }
+
+    private static void assertSameDerivedData(CorpusSnapshot expected, CorpusSnapshot actual) {
+        ThreadStore store = expected.store();
+        ThreadStore appendedStore = actual.store();
+        assertEquals(store.size(), appendedStore.size());
+        assertEquals(store.tagDictionarySize(), appendedStore.tagDictionarySize());
+        for (int tagId = 0; tagId < store.tagDictionarySize(); tagId++) {
+            String tag = store.tagName(tagId);
+            int appendedTagId = appendedStore.tagIdOf(tag);
+            assertEquals(expected.index().tagPostings(tagId), actual.index().tagPostings(appendedTagId), tag);
+            assertEquals(expected.index().tagTopicMask(tagId), actual.index().tagTopicMask(appendedTagId), tag);
+        }
+        TopicKeywordsConfig config = new TopicKeywordsConfig();
+        for (String topic : config.getAllTopics()) {
+            assertEquals(expected.index().topicPostings(topic), actual.index().topicPostings(topic), topic);
+            assertEquals(expected.index().titleTopicPostings(topic), actual.index().titleTopicPostings(topic), topic);
+            assertEquals(rollup(expected, topic), rollup(actual, topic), topic);
+        }
+
+        assertEquals(expected.dateIndex().partitionCount(), actual.dateIndex().partitionCount());
+        assertEquals(expected.dateIndex().between(Long.MIN_VALUE, Long.MAX_VALUE),
+                actual.dateIndex().between(Long.MIN_VALUE, Long.MAX_VALUE));
+        for (int year = 2008; year <= 2024; year++) {
+            long from = LocalDate.of(year, 3, 15).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+            long to = LocalDate.of(year, 9, 2).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+            assertEquals(expected.dateIndex().between(from, to), actual.dateIndex().between(from, to));
+        }
+
+        ThreadFeatures features = expected.features();
+        ThreadFeatures appendedFeatures = actual.features();
+        assertEquals(features.size(), appendedFeatures.size());
+        for (int id = 0; id < features.size(); id++) {
+            assertEquals(List.of(features.bodyCharacters(id), features.bodyWords(id), features.codeBlocks(id),
+                            features.hasCode(id), features.titleCharacters(id), features.titleWords(id),
+                            features.hasAnswers(id), features.firstAnswerDelay(id), features.titleTopics(id),
+                            features.questionTopics(id), features.firstAnswerTopics(id)),
+                    List.of(appendedFeatures.bodyCharacters(id), appendedFeatures.bodyWords(id),
+                            appendedFeatures.codeBlocks(id), appendedFeatures.hasCode(id),
+                            appendedFeatures.titleCharacters(id), appendedFeatures.titleWords(id),
+                            appendedFeatures.hasAnswers(id), appendedFeatures.firstAnswerDelay(id),
+                            appendedFeatures.titleTopics(id), appendedFeatures.questionTopics(id),
+                            appendedFeatures.firstAnswerTopics(id)), "thread " + id);
+        }
+
+        assertEquals(expected.tagGraph().pairCount(), actual.tagGraph().pairCount());
+        assertEquals(pairs(expected.tagGraph(), Long.MIN_VALUE, Long.MAX_VALUE),
+                pairs(actual.tagGraph(), Long.MIN_VALUE, Long.MAX_VALUE));
+        long from = LocalDate.of(2012, 2, 10).toEpochDay();
+        long to = LocalDate.of(2019, 11, 3).toEpochDay();
+        assertEquals(pairs(expected.tagGraph(), from, to), pairs(actual.tagGraph(), from, to));
+    }
+
+    private static Map<Integer, String> rollup(CorpusSnapshot snapshot, String topic) {
+        Map<Integer, String> cells = new TreeMap<>();
+        snapshot.rollup().forEachQuestionCount(topic, Long.MIN_VALUE, Long.MAX_VALUE,
+                (day, count) -> cells.merge(day, "q" + count, String::concat));
+        snapshot.rollup().forEachActivity(topic, Long.MIN_VALUE, Long.MAX_VALUE,
+                (day, tenths) -> cells.merge(day, "a" + tenths, String::concat));
+        return cells;
+    }
+
+    /** 全部组合（from 为 Long.MIN_VALUE 时）或问题创建日在 [from, to] 内的组合，按标签名 */
+    private static Map<String, Long> pairs(TagCoOccurrenceGraph graph, long from, long to) {
+        Map<String, Long> counts = new TreeMap<>();
+        TagCoOccurrenceGraph.PairConsumer collect = (a, b, count) -> counts.merge(a + "," + b, count, Long::sum);
+        if (from == Long.MIN_VALUE) {
+            graph.forEachPair(collect);
+        } else {
+            graph.forEachPairBetween(from, to, collect);
+        }
+        return counts;
+    }
+
+    static DataLoaderService service(Path jsonl, Path snapshot, boolean watch) {
+        DataLoaderService service = new DataLoaderService(new ObjectMapper(), new TopicKeywordsConfig());
+        ReflectionTestUtils.setField(service, "dataFilePath", jsonl.toString());
+        ReflectionTestUtils.setField(service, "parserMode", "streaming");
+        ReflectionTestUtils.setField(service, "loadParallelism", 2);
+        ReflectionTestUtils.setField(service, "watchEnabled", watch);
+        ReflectionTestUtils.setField(service, "snapshotEnabled", snapshot != null);
+        ReflectionTestUtils.setField(service, "snapshotFilePath", snapshot == null ? "" : snapshot.toString());
+        return service;
+    }
+
+    private static List<String> titles(DataLoaderService service, int expectedSize) {
+        assertTrue(service.reload());
+        assertEquals(expectedSize, service.getSnapshot().size());
+        return titles(service);
+    }
+
+    private static List<String> titles(DataLoaderService service) {
+        return service.getAllThreads().stream().map(StackOverflowThread::getQuestion)
+                .map(question -> question.getTitle()).toList();
+    }
+}
@@ -0,0 +1,132 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.concurrent.AnalysisExecutor;
+import cs209a.finalproject_demo.concurrent.AnalysisTimeoutException;
+import cs209a.finalproject_demo.config.PatternMatchingConfig;
+import cs209a.finalproject_demo.config.PatternMatchingConfig.PitfallPattern;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MultithreadingServiceTest {
+    private static final List<String> BODIES = List.of(
+            // 同名的两个模式都命中，只计一次
+            "a deadlock caused by a race condition",
+            "deadlock",
+            "race condition and thread starvation",
+            "nothing to see");
+
+    @Test
+    void patternsSharingANameCountOncePerThread() {
+        MultithreadingService service = service(threads(1), new AnalysisExecutor());
+
+        Map<String, Object> result = service.getRecurrenceProblems(10);
+        assertEquals(4, result.get("totalThreads"));
+        assertEquals(Map.of("lock_issue", 3L, "starvation", 1L), counts(result));
+        // 与原来一样，同名模式的类别取配置中最后一个
+        assertEquals("ROOT_CAUSE", problems(result).get(0).get("category"));
+    }
+
+    @Test
+    void concurrentChunksCountSameAsParallelStream() {
+        // 最后一块不满
+        int copies = MultithreadingService.MATCH_CHUNK_SIZE + 7;
+        List<StackOverflowThread> threads = threads(copies);
+        AnalysisExecutor executor = enabledExecutor();
+        try {
+            Map<String, Object> concurrent = service(threads, executor).getRecurrenceProblems(10);
+            assertEquals(service(threads, new AnalysisExecutor()).getRecurrenceProblems(10), concurrent);
+            assertEquals(Map.of("lock_issue", 3L * copies, "starvation", (long) copies), counts(concurrent));
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    void interruptedRequestStopsConcurrentMatch() {
+        AnalysisExecutor executor = enabledExecutor();
+        MultithreadingService service = service(threads(3 * MultithreadingService.MATCH_CHUNK_SIZE), executor);
+        // Spring 在异步请求超时或客户端断开时中断处理请求的线程
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(AnalysisTimeoutException.class, () -> service.getRecurrenceProblems(10));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+            executor.stop();
+        }
+    }
+
+    private static AnalysisExecutor enabledExecutor() {
+        AnalysisExecutor executor = new AnalysisExecutor();
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        ReflectionTestUtils.setField(executor, "deadlineMs", 10_000L);
+        ReflectionTestUtils.setField(executor, "threads", 2);
+        executor.start();
+        return executor;
+    }
+
+    private static MultithreadingService service(List<StackOverflowThread> threads, AnalysisExecutor executor) {
+        PatternMatchingConfig patternMatchingConfig = mock(PatternMatchingConfig.class);
+        when(patternMatchingConfig.concurrencyPatterns()).thenReturn(List.of(
+                new PitfallPattern("lock_issue", "SYMPTOM", List.of("deadlock")),
+                new PitfallPattern("starvation", "SYMPTOM", List.of("starv")),
+                new PitfallPattern("lock_issue", "ROOT_CAUSE", List.of("race condition"))));
+
+        TopicKeywordsConfig config = new TopicKeywordsConfig();
+        DataLoaderService dataLoaderService = mock(DataLoaderService.class);
+        when(dataLoaderService.getSnapshot()).thenReturn(
+                CorpusSnapshot.build(1, ThreadStore.of(threads), config, ZoneId.systemDefault()));
+        return new MultithreadingService(dataLoaderService, config, patternMatchingConfig,
+                new AnalysisMetrics(new SimpleMeterRegistry()), executor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> problems(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("topProblems");
+    }
+
+    private static Map<String, Long> counts(Map<String, Object> result) {
+        return problems(result).stream().collect(Collectors.toMap(problem -> (String) problem.get("patternName"),
+                problem -> (Long) problem.get("count")));
+    }
+
+    /** BODIES 中每段正文各 copies 个线程 */
+    private static List<StackOverflowThread> threads(int copies) {
+        List<StackOverflowThread> threads = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            for (String body : BODIES) {
+                threads.add(thread(body));
+            }
+        }
+        return threads;
+    }
+
+    private static StackOverflowThread thread(String body) {
+        Question question = new Question();
+        question.setTags(List.of("java", "multithreading"));
+        question.setTitle("question");
+        question.setBody(body);
+        StackOverflowThread thread = new StackOverflowThread();
+        thread.setQuestion(question);
+        return thread;
+    }
+}
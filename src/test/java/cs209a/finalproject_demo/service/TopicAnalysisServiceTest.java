@@ -0,0 +1,225 @@
+package cs209a.finalproject_demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.metrics.AnalysisMetrics;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.Comment;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.result.TopicSeries;
+import cs209a.finalproject_demo.result.TopicSeriesResult;
+import cs209a.finalproject_demo.store.CorpusSnapshot;
+import cs209a.finalproject_demo.store.ThreadStore;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TopicAnalysisServiceTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // 含重复主题和没有关键词的主题
+    private static final List<String> TOPICS =
+            List.of("multithreading", "lambda", "collections", "lambda", "no-such-topic");
+    private static final List<String[]> RANGES = List.of(
+            new String[]{"2008-01-01", "2024-12-31"},
+            // 起止日期都落在周、月中间，回答和评论常常晚于区间结束
+            new String[]{"2013-03-15", "2014-01-06"},
+            new String[]{"2019-12-30", "2019-12-30"},
+            new String[]{"1990-01-01", "1990-12-31"});
+
+    private final List<StackOverflowThread> threads = SyntheticCorpus.threads(4000, 9);
+    private final TopicKeywordsConfig config = new TopicKeywordsConfig();
+    private final TopicAnalysisService service;
+
+    TopicAnalysisServiceTest() {
+        DataLoaderService dataLoaderService = mock(DataLoaderService.class);
+        when(dataLoaderService.getSnapshot()).thenReturn(
+                CorpusSnapshot.build(1, ThreadStore.of(threads), config, ZoneId.systemDefault()));
+        service = new TopicAnalysisService(dataLoaderService, config,
+                new AnalysisMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void trendsMatchPerThreadComputation() throws IOException {
+        for (String[] range : RANGES) {
+            for (String period : List.of("day", "week", "month", "year")) {
+                assertSamePayload(oldTrends(range[0], range[1], period),
+                        service.getTopicTrends(TOPICS, range[0], range[1], period), range, period);
+            }
+        }
+    }
+
+    @Test
+    void activityMatchesPerThreadComputation() throws IOException {
+        boolean eventsOutsideRange = false;
+        for (String[] range : RANGES) {
+            for (String period : List.of("day", "week", "month", "year")) {
+                Map<String, Object> expected = oldActivity(range[0], range[1], period);
+                assertSamePayload(expected, service.getTopicActivityScore(TOPICS, range[0], range[1], period),
+                        range, period);
+                eventsOutsideRange |= period.equals("day") && hasPeriodAfter(expected, "topicActivityScore", range[1]);
+            }
+        }
+        // 确认语料里确实有晚于区间结束的回答 / 评论被计入
+        assertTrue(eventsOutsideRange);
+    }
+
+    private static boolean hasPeriodAfter(Map<String, Object> payload, String field, String endDate) {
+        @SuppressWarnings("unchecked")
+        Map<String, List<Map<String, Object>>> series = (Map<String, List<Map<String, Object>>>) payload.get(field);
+        return series.values().stream().flatMap(List::stream)
+                .anyMatch(point -> ((String) point.get("period")).compareTo(endDate) > 0);
+    }
+
+    private static void assertSamePayload(Map<String, Object> expected, TopicSeriesResult actual,
+                                          String[] range, String period) throws IOException {
+        // 重复字段在解析时会被覆盖，所以单独确认重复的主题只有一个序列
+        assertEquals(TOPICS.stream().distinct().toList(),
+                actual.series().stream().map(TopicSeries::topic).toList());
+        StringWriter out = new StringWriter();
+        try (JsonGenerator json = MAPPER.getFactory().createGenerator(out)) {
+            actual.writeJson(json);
+        }
+        // 两边都先写成文本再解析后比较：整数 / 小数的写法和保留的位数都要一致
+        JsonNode expectedTree = MAPPER.readTree(MAPPER.writeValueAsString(expected));
+        JsonNode actualTree = MAPPER.readTree(out.toString());
+        assertEquals(expectedTree, actualTree, range[0] + ".." + range[1] + " by " + period);
+    }
+
+    // 以下是改用 rollup 之前逐线程过滤、分组的实现
+
+    private Map<String, Object> oldTrends(String startDate, String endDate, String period) {
+        List<StackOverflowThread> filtered = oldFilter(startDate, endDate);
+        Map<String, List<Map<String, Object>>> topicTrends = new LinkedHashMap<>();
+        for (String topic : TOPICS) {
+            Map<String, Long> counts = new TreeMap<>();
+            for (StackOverflowThread thread : filtered) {
+                if (hasKeyword(thread, topic)) {
+                    counts.merge(format(localDate(thread.getQuestion().getCreationDate()), period), 1L, Long::sum);
+                }
+            }
+            topicTrends.put(topic, series(counts, "count"));
+        }
+        return payload(period, startDate, endDate, filtered.size(), "topicTrends", topicTrends);
+    }
+
+    private Map<String, Object> oldActivity(String startDate, String endDate, String period) {
+        List<StackOverflowThread> filtered = oldFilter(startDate, endDate);
+        Map<String, List<Map<String, Object>>> topicActivity = new LinkedHashMap<>();
+        for (String topic : TOPICS) {
+            Map<String, Double> scores = new TreeMap<>();
+            BiConsumer<Long, Double> add = (date, score) -> scores.merge(format(localDate(date), period),
+                    score, Double::sum);
+            for (StackOverflowThread thread : filtered) {
+                if (!hasKeyword(thread, topic)) {
+                    continue;
+                }
+                add.accept(thread.getQuestion().getCreationDate(), 1.0 * relu(thread.getQuestion().getScore()));
+                if (thread.getAnswers() != null) {
+                    for (Answer answer : thread.getAnswers()) {
+                        if (answer.getCreationDate() != null) {
+                            add.accept(answer.getCreationDate(), 0.8 * relu(answer.getScore()));
+                        }
+                    }
+                }
+                List<Comment> comments = new ArrayList<>();
+                if (thread.getQuestionComments() != null) {
+                    comments.addAll(thread.getQuestionComments());
+                }
+                if (thread.getAnswerComments() != null) {
+                    thread.getAnswerComments().values().stream()
+                            .filter(list -> list != null)
+                            .forEach(comments::addAll);
+                }
+                for (Comment comment : comments) {
+                    if (comment.getCreationDate() != null) {
+                        add.accept(comment.getCreationDate(), 0.5 * relu(comment.getScore()));
+                    }
+                }
+            }
+            Map<String, Double> rounded = new TreeMap<>();
+            scores.forEach((key, value) -> rounded.put(key, Math.round(value * 100.0) / 100.0));
+            topicActivity.put(topic, series(rounded, "activityScore"));
+        }
+        return payload(period, startDate, endDate, filtered.size(), "topicActivityScore", topicActivity);
+    }
+
+    private List<StackOverflowThread> oldFilter(String startDate, String endDate) {
+        List<String> keywords = TOPICS.stream()
+                .flatMap(topic -> config.getKeywordsForTopic(topic).stream())
+                .distinct()
+                .toList();
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return threads.stream()
+                .filter(thread -> thread.getQuestion() != null && thread.getQuestion().getCreationDate() != null)
+                .filter(thread -> keywords.stream().anyMatch(thread.getQuestion().getTags()::contains))
+                .filter(thread -> {
+                    LocalDate date = localDate(thread.getQuestion().getCreationDate());
+                    return !date.isBefore(start) && !date.isAfter(end);
+                })
+                .toList();
+    }
+
+    private boolean hasKeyword(StackOverflowThread thread, String topic) {
+        return config.getKeywordsForTopic(topic).stream().anyMatch(thread.getQuestion().getTags()::contains);
+    }
+
+    private static Map<String, Object> payload(String period, String startDate, String endDate, int totalThreads,
+                                               String field, Map<String, List<Map<String, Object>>> series) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("period", period);
+        result.put("dateRange", Map.of("start", startDate, "end", endDate));
+        result.put("totalThreads", totalThreads);
+        result.put(field, series);
+        return result;
+    }
+
+    private static <V> List<Map<String, Object>> series(Map<String, V> byPeriod, String valueField) {
+        List<Map<String, Object>> series = new ArrayList<>();
+        byPeriod.forEach((key, value) -> {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("period", key);
+            point.put(valueField, value);
+            series.add(point);
+        });
+        return series;
+    }
+
+    private static LocalDate localDate(long epochSecond) {
+        return Instant.ofEpochSecond(epochSecond).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static int relu(Integer score) {
+        return Math.max(0, score != null ? score : 0);
+    }
+
+    private static String format(LocalDate date, String period) {
+        return switch (period) {
+            case "day" -> date.toString();
+            case "year" -> String.valueOf(date.getYear());
+            case "week" -> String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR),
+                    date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            default -> date.getYear() + "-" + String.format("%02d", date.getMonthValue());
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoOccurrenceCounterTest {
+    // 724 * 723 / 2 <= DENSE_MAX_PAIRS < 725 * 724 / 2
+    private static final int LARGEST_DENSE = 724;
+
+    @Test
+    void switchesToSparseAboveDenseMaxPairs() {
+        assertFalse(new CoOccurrenceCounter(0).isSparse());
+        assertFalse(new CoOccurrenceCounter(1).isSparse());
+        assertFalse(new CoOccurrenceCounter(LARGEST_DENSE).isSparse());
+        assertTrue(new CoOccurrenceCounter(LARGEST_DENSE + 1).isSparse());
+        assertTrue(new CoOccurrenceCounter(1 << 20).isSparse());
+    }
+
+    @Test
+    void denseAndSparseCountSameAsMap() {
+        Random random = new Random(23);
+        for (int dimension : new int[]{2, 13, LARGEST_DENSE, LARGEST_DENSE + 1, 100_000}) {
+            CoOccurrenceCounter counter = new CoOccurrenceCounter(dimension);
+            Map<Long, Long> expected = new HashMap<>();
+            for (int i = 0; i < 5000; i++) {
+                // 集中在少数 id 上，制造大量重复的组合和相同的次数
+                int a = random.nextInt(Math.min(dimension, 40));
+                int b = random.nextInt(dimension);
+                counter.add(a, b, 1);
+                if (a != b) {
+                    expected.merge(CoOccurrenceCounter.key(Math.min(a, b), Math.max(a, b)), 1L, Long::sum);
+                }
+            }
+            assertSameAsMap(expected, counter, "dimension " + dimension);
+        }
+    }
+
+    @Test
+    void mergeOfShardsSameAsOneCounter() {
+        Random random = new Random(29);
+        for (int dimension : new int[]{50, LARGEST_DENSE + 1}) {
+            CoOccurrenceCounter whole = new CoOccurrenceCounter(dimension);
+            CoOccurrenceCounter merged = new CoOccurrenceCounter(dimension);
+            Map<Long, Long> expected = new HashMap<>();
+            for (int shard = 0; shard < 4; shard++) {
+                CoOccurrenceCounter part = new CoOccurrenceCounter(dimension);
+                for (int i = 0; i < 1000; i++) {
+                    int a = random.nextInt(dimension);
+                    int b = random.nextInt(dimension);
+                    long count = 1 + random.nextInt(3);
+                    part.add(a, b, count);
+                    whole.add(b, a, count);
+                    if (a != b) {
+                        expected.merge(CoOccurrenceCounter.key(Math.min(a, b), Math.max(a, b)), count, Long::sum);
+                    }
+                }
+                merged.merge(part);
+            }
+            assertSameAsMap(expected, whole, "whole " + dimension);
+            assertSameAsMap(expected, merged, "merged " + dimension);
+        }
+    }
+
+    @Test
+    void masksAndTagsCountedOncePerDistinctPair() {
+        CoOccurrenceCounter topics = new CoOccurrenceCounter(64);
+        topics.addMask(1L | 1L << 5 | 1L << 63);
+        topics.addMask(1L << 5 | 1L << 63);
+        topics.addMask(1L << 7);
+        topics.addMask(0);
+        assertEquals(1, topics.count(0, 5));
+        assertEquals(1, topics.count(63, 0));
+        assertEquals(2, topics.count(5, 63));
+        assertEquals(3, topics.nonZeroPairs());
+
+        List<StackOverflowThread> threads = SyntheticCorpus.threads(1500, 31);
+        // 部分线程的标签重复出现，重复的标签只算一次
+        for (int i = 0; i < threads.size(); i += 5) {
+            List<String> tags = new ArrayList<>(threads.get(i).getQuestion().getTags());
+            tags.addAll(tags);
+            threads.get(i).getQuestion().setTags(tags);
+        }
+        ThreadStore store = ThreadStore.of(threads);
+        for (int dimension : new int[]{store.tagDictionarySize(), LARGEST_DENSE + store.tagDictionarySize()}) {
+            CoOccurrenceCounter counter = new CoOccurrenceCounter(dimension);
+            Map<Long, Long> expected = new HashMap<>();
+            for (int id = 0; id < store.size(); id++) {
+                counter.addTags(store, id);
+                TreeSet<Integer> distinct = new TreeSet<>();
+                for (int k = 0; k < store.tagCount(id); k++) {
+                    distinct.add(store.tagId(id, k));
+                }
+                for (int a : distinct) {
+                    for (int b : distinct.tailSet(a, false)) {
+                        expected.merge(CoOccurrenceCounter.key(a, b), 1L, Long::sum);
+                    }
+                }
+            }
+            assertSameAsMap(expected, counter, "tags in dimension " + dimension);
+        }
+    }
+
+    private static void assertSameAsMap(Map<Long, Long> expected, CoOccurrenceCounter counter, String message) {
+        assertEquals(expected.size(), counter.nonZeroPairs(), message);
+        Map<Long, Long> visited = new HashMap<>();
+        counter.forEach((a, b, count) -> {
+            assertTrue(a < b, message);
+            visited.put(CoOccurrenceCounter.key(a, b), count);
+        });
+        assertEquals(expected, visited, message);
+        expected.forEach((key, count) -> {
+            int a = (int) (key >>> 32);
+            int b = (int) (long) key;
+            assertEquals(count, counter.count(a, b), message);
+            assertEquals(count, counter.count(b, a), message);
+        });
+
+        // 次数降序，次数相同时先按 first 再按 second 升序
+        List<CoOccurrenceCounter.Pair> sorted = new ArrayList<>();
+        expected.forEach((key, count) -> sorted.add(new CoOccurrenceCounter.Pair((int) (key >>> 32),
+                (int) (long) key, count)));
+        sorted.sort(Comparator.comparingLong((CoOccurrenceCounter.Pair pair) -> -pair.count())
+                .thenComparingInt(CoOccurrenceCounter.Pair::first)
+                .thenComparingInt(CoOccurrenceCounter.Pair::second));
+        for (int n : new int[]{0, 1, 7, sorted.size(), sorted.size() + 10}) {
+            assertEquals(sorted.subList(0, Math.min(n, sorted.size())), counter.top(n), message + " top " + n);
+        }
+    }
+}
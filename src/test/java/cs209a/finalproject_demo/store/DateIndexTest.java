@@ -0,0 +1,96 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateIndexTest {
+    // 有夏令时的时区，月份分区的起点不是整天的倍数
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+    @Test
+    void betweenSameAsScanningEveryThread() {
+        ThreadStore store = ThreadStore.of(threadsWithTies());
+        DateIndex index = DateIndex.build(store, ZONE);
+        assertTrue(index.partitionCount() > 100);
+        assertSameAsScan(store, index, new Random(5));
+    }
+
+    @Test
+    void appendSameAsBuildingAtOnce() {
+        List<StackOverflowThread> threads = threadsWithTies();
+        ThreadStore first = ThreadStore.of(threads.subList(0, 2500));
+        DateIndex base = DateIndex.build(first, ZONE);
+        ThreadStore all = first.append(threads.subList(2500, threads.size()));
+        DateIndex appended = base.append(all);
+
+        DateIndex built = DateIndex.build(all, ZONE);
+        assertEquals(built.partitionCount(), appended.partitionCount());
+        assertSameAsScan(all, appended, new Random(6));
+        // 旧索引只包含前 2500 个线程
+        assertSameAsScan(first, base, new Random(7));
+    }
+
+    /** 三分之一的问题取整到当天 0 点 (UTC)，制造大量相同的创建时间 */
+    private static List<StackOverflowThread> threadsWithTies() {
+        List<StackOverflowThread> threads = SyntheticCorpus.threads(4000, 13);
+        for (int i = 0; i < threads.size(); i += 3) {
+            Question question = threads.get(i).getQuestion();
+            if (question.getCreationDate() != null) {
+                question.setCreationDate(question.getCreationDate() / 86_400 * 86_400);
+            }
+        }
+        return threads;
+    }
+
+    private static void assertSameAsScan(ThreadStore store, DateIndex index, Random random) {
+        long[] dates = new long[store.size()];
+        int dated = 0;
+        for (int id = 0; id < store.size(); id++) {
+            if (store.hasCreationDate(id)) {
+                dates[dated++] = store.creationDate(id);
+            }
+        }
+        for (int round = 0; round < 300; round++) {
+            long from;
+            long to;
+            switch (round % 3) {
+                case 0 -> {
+                    // 端点正好是某个线程的创建时间
+                    from = dates[random.nextInt(dated)];
+                    to = dates[random.nextInt(dated)] + random.nextInt(2);
+                }
+                case 1 -> {
+                    // 分区边界：本地月初 0 点
+                    LocalDate month = LocalDate.of(2008 + random.nextInt(17), 1 + random.nextInt(12), 1);
+                    from = month.atStartOfDay(ZONE).toEpochSecond();
+                    to = month.plusMonths(random.nextInt(30)).atStartOfDay(ZONE).toEpochSecond();
+                }
+                default -> {
+                    from = dates[random.nextInt(dated)] - random.nextInt(1_000_000);
+                    to = from + random.nextInt(200_000_000);
+                }
+            }
+            RoaringBitmap expected = new RoaringBitmap();
+            for (int id = 0; id < store.size(); id++) {
+                if (store.hasCreationDate(id) && store.creationDate(id) >= from && store.creationDate(id) < to) {
+                    expected.add(id);
+                }
+            }
+            assertEquals(expected, index.between(from, to), from + " " + to);
+        }
+        assertEquals(dated, index.between(Long.MIN_VALUE, Long.MAX_VALUE).getCardinality());
+        assertEquals(new RoaringBitmap(), index.between(10, 10));
+        assertEquals(new RoaringBitmap(), index.between(20, 10));
+    }
+}
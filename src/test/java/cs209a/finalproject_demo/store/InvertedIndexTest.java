@@ -0,0 +1,101 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.config.TopicKeywordsConfig;
+import cs209a.finalproject_demo.matcher.TopicKeywordMatcher;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvertedIndexTest {
+    private final TopicKeywordsConfig config = new TopicKeywordsConfig();
+    private final List<StackOverflowThread> threads = SyntheticCorpus.threads(3000, 7);
+
+    @Test
+    void postingsSameAsScanningEveryThread() {
+        ThreadStore store = ThreadStore.of(threads);
+        assertSameAsScan(store, InvertedIndex.build(store, config));
+    }
+
+    @Test
+    void appendSameAsBuildingAtOnce() {
+        ThreadStore first = ThreadStore.of(threads.subList(0, 1800));
+        InvertedIndex base = InvertedIndex.build(first, config);
+        RoaringBitmap javaBefore = base.tagPostings(first.tagIdOf("java")).clone();
+
+        ThreadStore all = first.append(threads.subList(1800, threads.size()));
+        InvertedIndex appended = base.append(all);
+        assertSameAsScan(all, appended);
+        // 旧索引不受影响
+        assertEquals(javaBefore, base.tagPostings(first.tagIdOf("java")));
+        assertEquals(1800, base.size());
+    }
+
+    private void assertSameAsScan(ThreadStore store, InvertedIndex index) {
+        TopicKeywordMatcher matcher = config.getKeywordMatcher();
+        List<String> titleTopics = matcher.topics();
+        int tagCount = store.tagDictionarySize();
+        RoaringBitmap[] tags = new RoaringBitmap[tagCount];
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            tags[tagId] = new RoaringBitmap();
+        }
+        for (int id = 0; id < store.size(); id++) {
+            for (int k = 0; k < store.tagCount(id); k++) {
+                tags[store.tagId(id, k)].add(id);
+            }
+        }
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            String tag = store.tagName(tagId);
+            assertEquals(tags[tagId], index.tagPostings(tagId), tag);
+            assertEquals(config.mapTagToTopic(tag), index.tagTopic(tagId), tag);
+            assertEquals(config.getTagTopicMask(tag), index.tagTopicMask(tagId), tag);
+        }
+
+        for (String topic : config.getAllTopics()) {
+            RoaringBitmap byTag = new RoaringBitmap();
+            RoaringBitmap byTitle = new RoaringBitmap();
+            long topicBit = TopicKeywordMatcher.bit(matcher.topicIndex(topic));
+            RoaringBitmap byTagKeyword = new RoaringBitmap();
+            for (int id = 0; id < store.size(); id++) {
+                for (int k = 0; k < store.tagCount(id); k++) {
+                    String tag = store.tagName(store.tagId(id, k));
+                    if (topic.equals(config.mapTagToTopic(tag))) {
+                        byTag.add(id);
+                    }
+                    if ((config.getTagTopicMask(tag) & topicBit) != 0) {
+                        byTagKeyword.add(id);
+                    }
+                }
+                Question question = store.thread(id).getQuestion();
+                if (question != null && (matcher.match(question.getTitle()) & topicBit) != 0) {
+                    byTitle.add(id);
+                }
+            }
+            assertEquals(byTag, index.topicPostings(topic), topic);
+            assertEquals(titleTopics.contains(topic) ? byTitle : new RoaringBitmap(),
+                    index.titleTopicPostings(topic), topic);
+            assertEquals(byTagKeyword, index.tagsWithTopics(topicBit), topic);
+        }
+
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            BitSet tagIds = new BitSet();
+            RoaringBitmap expected = new RoaringBitmap();
+            for (int i = random.nextInt(5); i > 0; i--) {
+                int tagId = random.nextInt(Math.min(tagCount, 200));
+                tagIds.set(tagId);
+                expected.or(tags[tagId]);
+            }
+            assertEquals(expected, index.unionOfTags(tagIds));
+        }
+        assertEquals(new RoaringBitmap(), index.tagPostings(-1));
+        assertEquals(new RoaringBitmap(), index.tagPostings(tagCount));
+    }
+}
@@ -0,0 +1,170 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagCoOccurrenceGraphTest {
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+    private final List<StackOverflowThread> threads = threadsWithRepeatedTags();
+
+    @Test
+    void queriesSameAsCountingEveryThread() {
+        ThreadStore store = ThreadStore.of(threads);
+        assertSameAsCount(store, TagCoOccurrenceGraph.build(store, ZONE), new Random(17));
+    }
+
+    @Test
+    void appendSameAsBuildingAtOnce() {
+        ThreadStore first = ThreadStore.of(threads.subList(0, 1700));
+        TagCoOccurrenceGraph base = TagCoOccurrenceGraph.build(first, ZONE);
+        ThreadStore all = first.append(threads.subList(1700, threads.size()));
+        assertSameAsCount(all, base.append(all), new Random(18));
+        // 旧版本只包含前 1700 个线程
+        assertSameAsCount(first, base, new Random(19));
+    }
+
+    /** 每 4 个问题有一个把标签重复一遍，重复的标签只算一次 */
+    private static List<StackOverflowThread> threadsWithRepeatedTags() {
+        List<StackOverflowThread> threads = SyntheticCorpus.threads(3000, 37);
+        for (int i = 0; i < threads.size(); i += 4) {
+            Question question = threads.get(i).getQuestion();
+            List<String> tags = new ArrayList<>(question.getTags());
+            tags.addAll(tags);
+            question.setTags(tags);
+        }
+        return threads;
+    }
+
+    private void assertSameAsCount(ThreadStore store, TagCoOccurrenceGraph graph, Random random) {
+        // 组合键 -> 次数，全部线程和按问题创建日
+        Map<Long, Long> pairs = new HashMap<>();
+        TreeMap<Long, Map<Long, Long>> pairsByDay = new TreeMap<>();
+        for (StackOverflowThread thread : threads.subList(0, store.size())) {
+            Question question = thread.getQuestion();
+            TreeSet<Integer> tagIds = new TreeSet<>();
+            question.getTags().stream().filter(Objects::nonNull).forEach(tag -> tagIds.add(store.tagIdOf(tag)));
+            Map<Long, Long> day = question.getCreationDate() == null ? null : pairsByDay.computeIfAbsent(
+                    Instant.ofEpochSecond(question.getCreationDate()).atZone(ZONE).toLocalDate().toEpochDay(),
+                    d -> new HashMap<>());
+            for (int a : tagIds) {
+                for (int b : tagIds.tailSet(a, false)) {
+                    pairs.merge(CoOccurrenceCounter.key(a, b), 1L, Long::sum);
+                    if (day != null) {
+                        day.merge(CoOccurrenceCounter.key(a, b), 1L, Long::sum);
+                    }
+                }
+            }
+        }
+        assertEquals(store.size(), graph.size());
+        assertEquals(pairs.size(), graph.pairCount());
+
+        Map<Long, Long> visited = new HashMap<>();
+        graph.forEachPair((a, b, count) -> assertNull(visited.put(CoOccurrenceCounter.key(a, b), count)));
+        assertEquals(pairs, visited);
+
+        // /tags/top：次数降序，次数相同时键小的在前
+        List<long[]> ranked = new ArrayList<>();
+        pairs.forEach((key, count) -> ranked.add(new long[]{count, key}));
+        ranked.sort(Comparator.<long[]>comparingLong(e -> -e[0]).thenComparingLong(e -> e[1]));
+        for (int n : new int[]{0, 1, 25, ranked.size(), ranked.size() + 5}) {
+            List<long[]> top = new ArrayList<>();
+            graph.topPairs(n).forEachRanked((count, key) -> top.add(new long[]{count, key}));
+            assertEquals(Math.min(n, ranked.size()), top.size());
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(ranked.get(i)[0], top.get(i)[0], "top " + n + " rank " + i);
+                assertEquals(ranked.get(i)[1], top.get(i)[1], "top " + n + " rank " + i);
+            }
+        }
+
+        // /tags/neighbours：每行按次数降序、邻居 id 升序
+        for (int tagId = 0; tagId < store.tagDictionarySize(); tagId++) {
+            List<long[]> row = new ArrayList<>();
+            for (Map.Entry<Long, Long> pair : pairs.entrySet()) {
+                int a = (int) (pair.getKey() >>> 32);
+                int b = (int) (long) pair.getKey();
+                if (a == tagId || b == tagId) {
+                    row.add(new long[]{pair.getValue(), a == tagId ? b : a});
+                }
+            }
+            row.sort(Comparator.<long[]>comparingLong(e -> -e[0]).thenComparingLong(e -> e[1]));
+            assertEquals(row.size(), graph.degree(tagId), store.tagName(tagId));
+            for (int rank = 0; rank < row.size(); rank++) {
+                assertEquals(row.get(rank)[1], graph.neighbour(tagId, rank), store.tagName(tagId) + " rank " + rank);
+                assertEquals(row.get(rank)[0], graph.neighbourWeight(tagId, rank));
+                assertEquals(row.get(rank)[0], graph.weight(tagId, (int) row.get(rank)[1]));
+            }
+        }
+        assertEquals(0, graph.degree(-1));
+        assertEquals(0, graph.degree(store.tagDictionarySize()));
+
+        // /tags/among
+        int tagCount = store.tagDictionarySize();
+        for (int round = 0; round < 50; round++) {
+            BitSet tagIds = new BitSet();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                // 多数取自常见标签，少数取自长尾
+                tagIds.set(random.nextInt(random.nextBoolean() ? Math.min(tagCount, 60) : tagCount));
+            }
+            Map<Long, Long> expected = new HashMap<>();
+            pairs.forEach((key, count) -> {
+                if (tagIds.get((int) (key >>> 32)) && tagIds.get((int) (long) key)) {
+                    expected.put(key, count);
+                }
+            });
+            Map<Long, Long> among = new HashMap<>();
+            graph.forEachPairAmong(tagIds, (a, b, count) -> {
+                assertTrue(a < b);
+                assertNull(among.put(CoOccurrenceCounter.key(a, b), count));
+            });
+            assertEquals(expected, among, tagIds.toString());
+        }
+
+        // /tags/range：随机区间和超出 LocalDate 范围的区间
+        long firstDay = pairsByDay.firstKey();
+        long lastDay = pairsByDay.lastKey();
+        List<long[]> ranges = new ArrayList<>(List.of(
+                new long[]{LocalDate.MIN.toEpochDay(), LocalDate.MAX.toEpochDay()},
+                new long[]{Long.MIN_VALUE, Long.MAX_VALUE},
+                new long[]{Long.MIN_VALUE, firstDay},
+                new long[]{lastDay, Long.MAX_VALUE},
+                new long[]{firstDay, firstDay},
+                new long[]{lastDay + 1, Long.MAX_VALUE},
+                new long[]{lastDay, firstDay}));
+        for (int round = 0; round < 60; round++) {
+            long from = firstDay - 40 + random.nextInt((int) (lastDay - firstDay) + 80);
+            ranges.add(new long[]{from, from + random.nextInt(round % 2 == 0 ? 45 : 2000)});
+        }
+        for (long[] range : ranges) {
+            Map<Long, Long> expected = new HashMap<>();
+            if (range[0] <= range[1]) {
+                pairsByDay.subMap(range[0], true, range[1], true).values()
+                        .forEach(day -> day.forEach((key, count) -> expected.merge(key, count, Long::sum)));
+            }
+            Map<Long, Long> between = new HashMap<>();
+            graph.forEachPairBetween(range[0], range[1],
+                    (a, b, count) -> between.merge(CoOccurrenceCounter.key(a, b), count, Long::sum));
+            assertEquals(expected, between, range[0] + ".." + range[1]);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cs209a.finalproject_demo.store;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+import cs209a.finalproject_demo.support.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThreadStoreTest {
+
+    @Test
+    void nullTagsCountInListedTagCountOnly() {
+        List<StackOverflowThread> threads = SyntheticCorpus.threads(500, 3);
+        for (int i = 0; i < threads.size(); i += 7) {
+            Question question = threads.get(i).getQuestion();
+            question.setTags(Arrays.asList(i % 2 == 0 ? new String[]{null, "java", null} : new String[]{null}));
+        }
+        ThreadStore first = ThreadStore.of(threads.subList(0, 300));
+        ThreadStore store = first.append(threads.subList(300, threads.size()));
+
+        for (int id = 0; id < store.size(); id++) {
+            List<String> tags = store.thread(id).getQuestion().getTags();
+            assertEquals(tags.size(), store.listedTagCount(id), "thread " + id);
+            long nonNull = tags.stream().filter(tag -> tag != null).count();
+            assertEquals(nonNull, store.tagCount(id), "thread " + id);
+            for (int k = 0; k < store.tagCount(id); k++) {
+                assertEquals(tags.stream().filter(tag -> tag != null).toList().get(k),
+                        store.tagName(store.tagId(id, k)));
+            }
+        }
+    }
+}
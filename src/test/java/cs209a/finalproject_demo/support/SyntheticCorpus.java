@@ -0,0 +1,355 @@
+package cs209a.finalproject_demo.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import cs209a.finalproject_demo.model.StackOverflowThread;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 按固定种子生成 StackOverflowThread JSONL，同一 (线程数, 种子) 每次得到完全相同的文件。
+ * <p>
+ * 分布参照真实语料的形状：
+ * <ul>
+ *     <li>标签：约 80 个常见标签加上长尾的 tag-N，按 Zipf(1.05) 抽取，每个问题 1–5 个，约 60% 带 java；</li>
+ *     <li>正文单词数服从对数正态分布（中位数约 110），约一半带代码块；标题 4–14 个单词；</li>
+ *     <li>回答数集中在 0–3，首个回答的延迟服从对数正态分布（中位数约半小时），约一半的已回答问题有采纳；</li>
+ *     <li>创建时间在 2008–2024 年之间，先增后减；少量问题缺少创建时间、浏览数或作者声望。</li>
+ * </ul>
+ * 文本从包含主题关键词和并发问题描述的词表中抽取，趋势、共同出现和并发问题分析都能命中。
+ * 放在测试源码中，JMH 基准和压测驱动 (-Ploadtest) 共用。
+ * <pre>
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.main=cs209a.finalproject_demo.support.SyntheticCorpus \
+ *     -Djmh.args="data/synthetic.jsonl 1000000 42"
+ * </pre>
+ */
+public final class SyntheticCorpus {
+    private static final String[] COMMON_TAGS = {"java", "spring-boot", "multithreading", "concurrency", "android",
+            "arraylist", "hashmap", "collections", "generics", "lambda", "java-8", "stream-api", "optional",
+            "junit", "mockito", "unit-testing", "maven", "gradle", "jdbc", "mysql", "postgresql", "sql", "hibernate",
+            "jpa", "spring", "spring-mvc", "spring-security", "spring-data-jpa", "rest", "json", "jackson", "xml",
+            "sockets", "tcp", "http", "networking", "websocket", "reflection", "annotations", "exception",
+            "nullpointerexception", "try-catch", "thread-safety", "deadlock", "executorservice", "synchronized",
+            "completable-future", "java-io", "file-io", "nio", "serialization", "inputstream", "string", "regex",
+            "arrays", "list", "swing", "javafx", "kotlin", "intellij-idea", "eclipse", "tomcat", "docker",
+            "performance", "memory-leaks", "garbage-collection", "jvm", "oop", "inheritance", "interface", "enums",
+            "date", "datetime", "logging", "log4j", "selenium", "apache-kafka", "microservices", "security"};
+    private static final int TAIL_TAGS = 20_000;
+
+    private static final String[] WORDS = {"the", "a", "to", "is", "in", "it", "when", "my", "with", "not",
+            "thread", "threads", "lock", "deadlock", "race condition", "volatile", "synchronized", "executor",
+            "ExecutorService", "CompletableFuture", "happens-before", "visibility", "stuck", "waiting", "hangs",
+            "timeout", "pool exhausted", "connection refused", "heap space", "OutOfMemoryError", "memory leak",
+            "high memory usage", "InterruptedException", "NullPointerException", "IOException",
+            "ConcurrentModificationException", "IllegalStateException", "list", "map", "hashmap", "set", "queue",
+            "iterator", "stream", "lambda", "optional", "generic", "wildcard", "type-erasure", "reflection",
+            "method", "field", "annotation", "proxy", "spring-boot", "bean", "autowired", "hibernate", "jpa",
+            "transaction", "jdbc", "sql", "database", "connection", "socket", "http", "tcp", "port", "server",
+            "client", "file", "reader", "writer", "inputstream", "serialization", "maven", "pom.xml", "dependency",
+            "junit", "mockito", "mock", "assertion", "exception", "throw", "stack-trace", "works", "fails",
+            "sometimes", "randomly", "in production", "duplicate", "out of order", "inconsistent", "lost", "slow",
+            "performance", "flaky", "debug", "class", "object", "value", "null", "returns", "call", "error"};
+
+    private static final int FIRST_YEAR = 2008;
+    // 每年问题数的相对比例，2014 年前后最多
+    private static final double[] YEAR_WEIGHTS = {2, 5, 8, 11, 13, 15, 16, 15, 14, 13, 11, 10, 10, 8, 6, 4, 3};
+
+    private static final double[] TAG_CDF = zipfCdf(COMMON_TAGS.length + TAIL_TAGS, 1.05);
+    private static final double[] YEAR_CDF = cdf(YEAR_WEIGHTS);
+    private static final long[] YEAR_STARTS = new long[YEAR_WEIGHTS.length + 1];
+
+    static {
+        for (int i = 0; i < YEAR_STARTS.length; i++) {
+            YEAR_STARTS[i] = LocalDate.of(FIRST_YEAR + i, 1, 1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        }
+    }
+
+    private SyntheticCorpus() {
+    }
+
+    /** args: 输出文件 线程数 [种子，默认 42] */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: SyntheticCorpus <output.jsonl> <threads> [seed]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        long start = System.nanoTime();
+        write(output, threads, seed);
+        System.out.printf("wrote %d threads (%d MB) to %s in %d ms%n", threads, Files.size(output) >> 20, output,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public static void write(Path output, int threads, long seed) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)) {
+            write(out, threads, seed);
+        }
+    }
+
+    public static void write(OutputStream out, int threads, long seed) throws IOException {
+        JsonFactory factory = new JsonFactory();
+        SplittableRandom random = new SplittableRandom(seed);
+        try (JsonGenerator json = factory.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            json.setRootValueSeparator(null);
+            for (int i = 0; i < threads; i++) {
+                writeThread(json, random, 1_000_000L + i);
+                json.writeRaw('\n');
+            }
+        }
+    }
+
+    /** 生成后按行用 databind 解析，供单元测试直接使用 */
+    public static List<StackOverflowThread> threads(int threads, long seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(out, threads, seed);
+            ObjectReader reader = new ObjectMapper().readerFor(StackOverflowThread.class);
+            List<StackOverflowThread> parsed = new ArrayList<>(threads);
+            for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+                parsed.add(reader.readValue(line));
+            }
+            return parsed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeThread(JsonGenerator json, SplittableRandom random, long questionId) throws IOException {
+        long creation = creationDate(random);
+        int answerCount = answerCount(random);
+        int accepted = answerCount > 0 && random.nextDouble() < 0.55 ? acceptedIndex(random, answerCount) : -1;
+        long[] answerDates = new long[answerCount];
+        int[] answerScores = new int[answerCount];
+        boolean answered = accepted >= 0;
+        long delay = 0;
+        for (int a = 0; a < answerCount; a++) {
+            // 首个回答中位数约半小时，之后的回答更晚
+            delay += Math.max(30, (long) logNormal(random, 1800, a == 0 ? 1.8 : 2.2));
+            answerDates[a] = creation + delay;
+            answerScores[a] = score(random) - (a == 0 ? 0 : 1);
+            answered |= answerScores[a] > 0;
+        }
+
+        json.writeStartObject();
+        json.writeObjectFieldStart("question");
+        json.writeArrayFieldStart("tags");
+        for (String tag : tags(random)) {
+            json.writeString(tag);
+        }
+        json.writeEndArray();
+        writeOwner(json, random);
+        json.writeBooleanField("is_answered", answered);
+        if (random.nextDouble() >= 0.01) {
+            json.writeNumberField("view_count", (long) logNormal(random, 800, 1.5));
+        }
+        json.writeNumberField("answer_count", answerCount);
+        json.writeNumberField("score", score(random));
+        json.writeNumberField("last_activity_date", creation + delay + random.nextInt(86_400));
+        if (random.nextDouble() >= 0.005) {
+            json.writeNumberField("creation_date", creation);
+        }
+        json.writeNumberField("question_id", questionId);
+        json.writeStringField("content_license", "CC BY-SA 4.0");
+        json.writeStringField("link", "https://stackoverflow.com/questions/" + questionId);
+        json.writeStringField("title", text(random, 4 + random.nextInt(11), false));
+        json.writeStringField("body", text(random, clamp((int) logNormal(random, 110, 0.75), 5, 4000), true));
+        json.writeEndObject();
+
+        json.writeArrayFieldStart("answers");
+        for (int a = 0; a < answerCount; a++) {
+            json.writeStartObject();
+            writeOwner(json, random);
+            json.writeBooleanField("is_accepted", a == accepted);
+            json.writeNumberField("score", answerScores[a]);
+            json.writeNumberField("last_activity_date", answerDates[a] + random.nextInt(86_400));
+            json.writeNumberField("creation_date", answerDates[a]);
+            json.writeNumberField("answer_id", questionId * 100 + a);
+            json.writeNumberField("question_id", questionId);
+            json.writeStringField("content_license", "CC BY-SA 4.0");
+            json.writeStringField("body", text(random, clamp((int) logNormal(random, 80, 0.8), 3, 3000), true));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        json.writeArrayFieldStart("question_comments");
+        writeComments(json, random, questionId, creation, random.nextInt(4));
+        json.writeEndArray();
+        json.writeObjectFieldStart("answer_comments");
+        for (int a = 0; a < answerCount; a++) {
+            json.writeArrayFieldStart(Long.toString(questionId * 100 + a));
+            writeComments(json, random, questionId * 100 + a, answerDates[a], random.nextInt(3));
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeComments(JsonGenerator json, SplittableRandom random, long postId, long after,
+                                      int count) throws IOException {
+        for (int c = 0; c < count; c++) {
+            json.writeStartObject();
+            writeOwner(json, random);
+            json.writeBooleanField("edited", random.nextDouble() < 0.05);
+            json.writeNumberField("score", random.nextDouble() < 0.7 ? 0 : random.nextInt(1, 6));
+            json.writeNumberField("creation_date", after + (long) logNormal(random, 3600, 2.0));
+            json.writeNumberField("post_id", postId);
+            json.writeNumberField("comment_id", random.nextLong(1, 1L << 40));
+            json.writeStringField("content_license", "CC BY-SA 4.0");
+            json.writeStringField("body", text(random, 3 + random.nextInt(25), false));
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeOwner(JsonGenerator json, SplittableRandom random) throws IOException {
+        long userId = random.nextLong(1, 20_000_000);
+        json.writeObjectFieldStart("owner");
+        json.writeNumberField("account_id", userId * 3 + 1);
+        if (random.nextDouble() >= 0.03) {
+            json.writeNumberField("reputation", Math.max(1, (long) logNormal(random, 400, 2.0)));
+        }
+        json.writeNumberField("user_id", userId);
+        json.writeStringField("user_type", "registered");
+        json.writeStringField("profile_image", "https://www.gravatar.com/avatar/" + Long.toHexString(userId));
+        json.writeStringField("display_name", "user" + userId);
+        json.writeStringField("link", "https://stackoverflow.com/users/" + userId);
+        json.writeEndObject();
+    }
+
+    private static String[] tags(SplittableRandom random) {
+        double r = random.nextDouble();
+        int count = r < 0.12 ? 1 : r < 0.37 ? 2 : r < 0.67 ? 3 : r < 0.87 ? 4 : 5;
+        String[] tags = new String[count];
+        int n = 0;
+        if (random.nextDouble() < 0.6) {
+            tags[n++] = "java";
+        }
+        // 抽到重复标签时重抽，最多几次，真实数据中同一问题的标签不重复
+        for (int attempt = 0; n < count && attempt < count * 4; attempt++) {
+            String tag = tagAt(sample(random, TAG_CDF));
+            if (!contains(tags, n, tag)) {
+                tags[n++] = tag;
+            }
+        }
+        return n == count ? tags : Arrays.copyOf(tags, n);
+    }
+
+    private static String tagAt(int rank) {
+        return rank < COMMON_TAGS.length ? COMMON_TAGS[rank] : "tag-" + (rank - COMMON_TAGS.length);
+    }
+
+    private static boolean contains(String[] values, int n, String value) {
+        for (int i = 0; i < n; i++) {
+            if (values[i].equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(SplittableRandom random, int words, boolean html) {
+        StringBuilder text = new StringBuilder(words * 8);
+        if (html) {
+            text.append("<p>");
+        }
+        for (int i = 0; i < words; i++) {
+            if (html && i > 0 && random.nextDouble() < 0.02) {
+                text.append(random.nextBoolean() ? "</p>\n<p>" : "<pre><code>executor.submit(task);\n"
+                        + "lock.lock();</code></pre>\n");
+            } else if (html && random.nextDouble() < 0.01) {
+                text.append("<code>").append(WORDS[random.nextInt(WORDS.length)]).append("</code> ");
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(random.nextDouble() < 0.05 ? word.toUpperCase() : word).append(' ');
+        }
+        if (html) {
+            text.append("</p>");
+        }
+        return text.toString();
+    }
+
+    private static long creationDate(SplittableRandom random) {
+        int year = sample(random, YEAR_CDF);
+        return random.nextLong(YEAR_STARTS[year], YEAR_STARTS[year + 1]);
+    }
+
+    private static int answerCount(SplittableRandom random) {
+        double r = random.nextDouble();
+        if (r < 0.22) return 0;
+        if (r < 0.60) return 1;
+        if (r < 0.80) return 2;
+        if (r < 0.90) return 3;
+        if (r < 0.95) return 4;
+        return 5 + random.nextInt(8);
+    }
+
+    private static int acceptedIndex(SplittableRandom random, int answerCount) {
+        return random.nextDouble() < 0.7 ? 0 : random.nextInt(answerCount);
+    }
+
+    private static int score(SplittableRandom random) {
+        return (int) Math.floor(Math.exp(1 + 1.2 * gaussian(random))) - 2;
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma) {
+        return median * Math.exp(sigma * gaussian(random));
+    }
+
+    /** Box-Muller，只用 SplittableRandom 保证可复现 */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /** 按累积分布抽取下标 */
+    private static int sample(SplittableRandom random, double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] weights = new double[n];
+        for (int rank = 0; rank < n; rank++) {
+            weights[rank] = 1 / Math.pow(rank + 1, exponent);
+        }
+        return cdf(weights);
+    }
+
+    private static double[] cdf(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] cdf = new double[weights.length];
+        double running = 0;
+        for (int i = 0; i < weights.length; i++) {
+            running += weights[i];
+            cdf[i] = running / total;
+        }
+        return cdf;
+    }
+}
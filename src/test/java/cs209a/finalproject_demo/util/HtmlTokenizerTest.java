@@ -0,0 +1,40 @@
+package cs209a.finalproject_demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HtmlTokenizerTest {
+
+    @Test
+    void countsSameAsRegexSplit() {
+        // 覆盖标签、空标签 "<>"、未闭合的 "<"、非 \s 的控制字符、只有标签的文本等情况
+        String[] fragments = {"word", "a", "<p>", "</p>", "<code>", "<", ">", "<>", " ", "  ", "\t", "\n", "\r\n",
+                "\u000B", "\f", "\u0001", "\u0000", "&amp;", "<a href=\"x\">", "<\n>", "x<y", "é", ""};
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int k = 0, n = random.nextInt(8); k < n; k++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+            assertEquals(regexCount(text.toString()), HtmlTokenizer.countWords(text), text::toString);
+        }
+    }
+
+    @Test
+    void edgeCases() {
+        assertEquals(0, HtmlTokenizer.countWords(null));
+        assertEquals(0, HtmlTokenizer.countWords(" \t\u0001 "));
+        assertEquals(1, HtmlTokenizer.countWords("<p></p>"));
+        assertEquals(3, HtmlTokenizer.countWords("<p>one two</p>three"));
+    }
+
+    private static int regexCount(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return 0;
+        }
+        return text.replaceAll("<[^>]+>", " ").trim().split("\\s+").length;
+    }
+}
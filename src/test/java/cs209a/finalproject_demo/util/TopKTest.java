@@ -0,0 +1,75 @@
+package cs209a.finalproject_demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKTest {
+
+    @Test
+    void sameAsFullSortIncludingTies() {
+        Random random = new Random(19);
+        for (int round = 0; round < 200; round++) {
+            int m = random.nextInt(300);
+            int k = random.nextInt(40);
+            // 次数取值范围很小，制造大量相同次数
+            long[] scores = random.longs(m, 0, 8).toArray();
+
+            List<long[]> expected = new ArrayList<>();
+            for (int i = 0; i < m; i++) {
+                expected.add(new long[]{scores[i], i});
+            }
+            expected.sort(Comparator.<long[]>comparingLong(e -> -e[0]).thenComparingLong(e -> e[1]));
+            expected = expected.subList(0, Math.min(k, m));
+
+            TopK sequential = new TopK(k);
+            for (int i = m - 1; i >= 0; i--) {
+                sequential.offer(scores[i], i);
+            }
+            TopK parallel = IntStream.range(0, m).parallel()
+                    .collect(() -> new TopK(k), (topK, i) -> topK.offer(scores[i], i), TopK::merge);
+
+            assertEquals(render(expected), render(sequential));
+            assertEquals(render(expected), render(parallel));
+        }
+    }
+
+    @Test
+    void capacityFollowsEntriesNotK() {
+        // k 来自 ?n=，不能按 k 预先分配
+        TopK topK = new TopK(Integer.MAX_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            topK.offer(i % 7, i);
+        }
+        assertEquals(1000, topK.size());
+        long[] previous = {Long.MAX_VALUE, -1};
+        topK.forEachRanked((score, key) -> {
+            assertTrue(score < previous[0] || score == previous[0] && key > previous[1]);
+            previous[0] = score;
+            previous[1] = key;
+        });
+
+        TopK merged = IntStream.range(0, 1000).parallel()
+                .collect(() -> new TopK(2_000_000_000), (t, i) -> t.offer(i % 7, i), TopK::merge);
+        assertEquals(render(topK), render(merged));
+    }
+
+    private static String render(List<long[]> entries) {
+        StringBuilder text = new StringBuilder();
+        entries.forEach(e -> text.append(e[0]).append(':').append(e[1]).append(' '));
+        return text.toString();
+    }
+
+    private static String render(TopK topK) {
+        StringBuilder text = new StringBuilder();
+        topK.forEachRanked((score, key) -> text.append(score).append(':').append(key).append(' '));
+        return text.toString();
+    }
+}